@@ -0,0 +1,47 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Transaction;
+
+/**
+ * Throughput of the individual IAccount operations. Run with -t to vary
+ * the thread count and -prof gc to get the allocation rate, or use
+ * {@link AccountBenchmarkRunner} which does both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountBenchmark {
+
+	@Benchmark
+	public void deposit(AccountFixture f) {
+		f.account.deposit(f.pick(), 1.5d);
+	}
+
+	@Benchmark
+	public void withdraw(AccountFixture f) {
+		f.account.withdraw(f.pick(), 1.5d);
+	}
+
+	@Benchmark
+	public double enquirebalance(AccountFixture f) {
+		return f.account.enquirebalance(f.pick());
+	}
+
+	@Benchmark
+	public List<Transaction> listLastNTransactions(AccountFixture f) {
+		return f.account.listLastNTransactions(f.pick(), 10);
+	}
+}
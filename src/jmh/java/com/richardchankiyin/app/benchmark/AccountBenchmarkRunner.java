@@ -0,0 +1,37 @@
+package com.richardchankiyin.app.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks with 1, 2, 4 ... maxThreads threads and the
+ * gc profiler attached, so throughput and allocation rate are reported for
+ * every thread count.
+ *
+ * Usage: java -cp target/benchmarks.jar com.richardchankiyin.app.benchmark.AccountBenchmarkRunner [includeRegex] [maxThreads]
+ */
+public class AccountBenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "com.richardchankiyin.app.benchmark.*";
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+			Options opt = new OptionsBuilder()
+					.include(include)
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.build();
+			new Runner(opt).run();
+		}
+	}
+
+	private static int nextThreadCount(int threads, int maxThreads) {
+		if (threads == maxThreads) {
+			return maxThreads + 1;
+		}
+		return Math.min(threads * 2, maxThreads);
+	}
+}
@@ -0,0 +1,49 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.richardchankiyin.app.AccountEngine;
+import com.richardchankiyin.app.IAccount;
+
+/**
+ * Shared benchmark state: an account book pre-populated with funded accounts.
+ * accounts = 1 drives every thread into a single hot account, larger values
+ * spread the load across many accounts (and lock stripes).
+ */
+@State(Scope.Benchmark)
+public class AccountFixture {
+
+	static final double OPENING_BALANCE = 1_000_000_000_000d;
+
+	@Param({"LOCKED", "FIXED_POINT", "LOCK_FREE", "OFF_HEAP", "TIERED"})
+	public AccountEngine engine;
+
+	@Param({"1", "1024"})
+	public int accounts;
+
+	public IAccount account;
+	public String[] accountnos;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		account = engine.create();
+		accountnos = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountnos[i] = account.createAccount("benchmark_pid_" + i);
+			account.deposit(accountnos[i], OPENING_BALANCE);
+		}
+	}
+
+	public String pick() {
+		if (accounts == 1) {
+			return accountnos[0];
+		}
+		return accountnos[ThreadLocalRandom.current().nextInt(accounts)];
+	}
+}
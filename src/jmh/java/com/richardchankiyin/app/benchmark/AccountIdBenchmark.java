@@ -0,0 +1,92 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountIdStrategy;
+
+/**
+ * UUID against numeric account ids on the locked Account: createAccount
+ * throughput (a fresh book per iteration) and deposit throughput over
+ * 100k existing accounts, which measures the cost of the account lookup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountIdBenchmark {
+
+	private static final int EXISTING_ACCOUNTS = 100_000;
+
+	@State(Scope.Benchmark)
+	public static class Book {
+		@Param({"UUID", "NUMERIC"})
+		public String idStrategy;
+
+		public Account fresh;
+		public Account populated;
+		public String[] accountnos;
+		final AtomicInteger threadIds = new AtomicInteger();
+
+		Account newAccount() {
+			return Account.builder()
+					.accountIdStrategy("NUMERIC".equals(idStrategy) ? AccountIdStrategy.numeric() : AccountIdStrategy.uuid())
+					.build();
+		}
+
+		@Setup(Level.Trial)
+		public void populate() {
+			populated = newAccount();
+			accountnos = new String[EXISTING_ACCOUNTS];
+			for (int i = 0; i < EXISTING_ACCOUNTS; i++) {
+				accountnos[i] = populated.createAccount("benchmark_pid_" + i);
+			}
+		}
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			fresh = newAccount();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class PersonalIds {
+		String prefix;
+		long counter;
+
+		@Setup(Level.Trial)
+		public void setup(Book book) {
+			prefix = "pid_" + book.threadIds.getAndIncrement() + "_";
+		}
+
+		String next() {
+			return prefix + counter++;
+		}
+	}
+
+	@Benchmark
+	public String createAccount(Book book, PersonalIds ids) {
+		return book.fresh.createAccount(ids.next());
+	}
+
+	@Benchmark
+	public void deposit(Book book) {
+		book.populated.deposit(book.accountnos[ThreadLocalRandom.current().nextInt(EXISTING_ACCOUNTS)], 1.5d);
+	}
+}
@@ -0,0 +1,56 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mixed read/write traffic. readPercent of the calls are reads (split
+ * between enquirebalance and listLastNTransactions), the rest are writes
+ * (split between deposit and withdraw so balances stay stable).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountMixBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class MixFixture extends AccountFixture {
+		@Param({"0", "50", "80", "95"})
+		public int readPercent;
+	}
+
+	@Benchmark
+	public void mixed(MixFixture f, Blackhole bh) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String accountno = f.pick();
+		int dice = random.nextInt(100);
+		boolean flip = random.nextBoolean();
+		if (dice < f.readPercent) {
+			if (flip) {
+				bh.consume(f.account.enquirebalance(accountno));
+			} else {
+				bh.consume(f.account.listLastNTransactions(accountno, 10));
+			}
+		} else {
+			if (flip) {
+				f.account.deposit(accountno, 1.5d);
+			} else {
+				f.account.withdraw(accountno, 1.5d);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountAggregates;
+
+/**
+ * Bank-wide total and top 100 balances read from AccountAggregates against
+ * scanning every account, and what maintaining the aggregates adds to a
+ * deposit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class AggregatesBenchmark {
+
+	private static final int TOP = 100;
+
+	@Param({"100000", "1000000"})
+	public int accounts;
+
+	private Account plain;
+	private Account aggregated;
+	private List<String> plainAccountnos;
+	private List<String> aggregatedAccountnos;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		plain = Account.builder().expectedAccounts(accounts).build();
+		aggregated = Account.builder().expectedAccounts(accounts).aggregates(2).build();
+		plainAccountnos = open(plain);
+		aggregatedAccountnos = open(aggregated);
+	}
+
+	private List<String> open(Account account) {
+		List<String> accountnos = new ArrayList<>(accounts);
+		for (int i = 0; i < accounts; i++) {
+			String accountno = account.createAccount("benchmark_pid_" + i);
+			account.deposit(accountno, (i * 7919L % accounts) + 0.5);
+			accountnos.add(accountno);
+		}
+		return accountnos;
+	}
+
+	@Benchmark
+	public double totalByScan() {
+		double total = 0;
+		for (String accountno : plainAccountnos) {
+			total += plain.enquirebalance(accountno);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public double totalByAggregate() {
+		return aggregated.aggregates().totalBalance();
+	}
+
+	@Benchmark
+	public List<String> topByScan() {
+		PriorityQueue<String> top = new PriorityQueue<>(Comparator.comparingDouble(plain::enquirebalance));
+		for (String accountno : plainAccountnos) {
+			top.offer(accountno);
+			if (top.size() > TOP) {
+				top.poll();
+			}
+		}
+		return new ArrayList<>(top);
+	}
+
+	@Benchmark
+	public List<AccountAggregates.RankedBalance> topByAggregate() {
+		return aggregated.aggregates().topBalances(TOP);
+	}
+
+	@Benchmark
+	public void depositPlain() {
+		plain.deposit(plainAccountnos.get(ThreadLocalRandom.current().nextInt(accounts)), 1);
+	}
+
+	@Benchmark
+	public void depositAggregated() {
+		aggregated.deposit(aggregatedAccountnos.get(ThreadLocalRandom.current().nextInt(accounts)), 1);
+	}
+}
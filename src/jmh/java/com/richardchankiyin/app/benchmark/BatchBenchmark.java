@@ -0,0 +1,69 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.richardchankiyin.app.Posting;
+import com.richardchankiyin.app.PostingResult;
+
+/**
+ * Applying a gateway batch of postings one call at a time versus through
+ * applyBatch. Scores are batches per millisecond.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+	@State(Scope.Thread)
+	public static class Batch {
+		@Param({"256"})
+		public int batchSize;
+
+		public List<Posting> postings;
+
+		@Setup(Level.Trial)
+		public void setup(AccountFixture f) {
+			postings = new ArrayList<>(batchSize);
+			for (int i = 0; i < batchSize; i++) {
+				boolean isDeposit = ThreadLocalRandom.current().nextBoolean();
+				postings.add(new Posting(f.pick(), isDeposit, 1.5d));
+			}
+		}
+	}
+
+	@Benchmark
+	public void oneByOne(AccountFixture f, Batch batch) {
+		for (Posting posting : batch.postings) {
+			if (posting.isDeposit()) {
+				f.account.deposit(posting.accountno(), posting.amount());
+			} else {
+				f.account.withdraw(posting.accountno(), posting.amount());
+			}
+		}
+	}
+
+	@Benchmark
+	public void applyBatch(AccountFixture f, Batch batch, Blackhole bh) {
+		List<PostingResult> results = f.account.applyBatch(batch.postings);
+		bh.consume(results);
+	}
+}
@@ -0,0 +1,81 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountBulkLoader;
+import com.richardchankiyin.app.AccountIdStrategy;
+
+/**
+ * Importing a CSV of accounts with opening balances: AccountBulkLoader
+ * against reading the same file line by line and calling createAccount and
+ * deposit for each. Divide rows by the score for rows/sec.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class BulkLoadBenchmark {
+
+	@Param({"1000000"})
+	public int rows;
+
+	private Path dir;
+	private Path csv;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("bulk-load-benchmark");
+		csv = dir.resolve("accounts.csv");
+		try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+			for (int i = 0; i < rows; i++) {
+				out.write("benchmark_pid_" + i + "," + (i % 1000) + ".25\n");
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(csv);
+		Files.deleteIfExists(dir);
+	}
+
+	@Benchmark
+	public AccountBulkLoader.Result bulkLoad() throws IOException {
+		Account account = Account.builder().expectedAccounts(rows).accountIdStrategy(AccountIdStrategy.numeric()).build();
+		return new AccountBulkLoader(account).load(csv);
+	}
+
+	@Benchmark
+	public Account oneByOne() throws IOException {
+		Account account = new Account();
+		try (var lines = Files.lines(csv)) {
+			lines.forEach(line -> {
+				int comma = line.indexOf(',');
+				String accountno = account.createAccount(line.substring(0, comma));
+				account.deposit(accountno, Double.parseDouble(line.substring(comma + 1)));
+			});
+		}
+		return account;
+	}
+}
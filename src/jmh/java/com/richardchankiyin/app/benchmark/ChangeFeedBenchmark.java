@@ -0,0 +1,96 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.Transaction;
+import com.richardchankiyin.app.TransactionFeed;
+
+/**
+ * Cost of the change feed to deposit: no subscriber (NONE), against one
+ * subscriber counting what it receives with the BLOCK or DROP policy.
+ * NONE is the price every Account pays for having the feed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ChangeFeedBenchmark {
+
+	private static final int ACCOUNTS = 1024;
+
+	@Param({"NONE", "BLOCK", "DROP"})
+	public String subscriber;
+
+	private Account account;
+	private String[] accountnos;
+	private ExecutorService delivery;
+	private final LongAdder received = new LongAdder();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		delivery = Executors.newSingleThreadExecutor();
+		account = Account.builder().changeFeedExecutor(delivery).build();
+		accountnos = new String[ACCOUNTS];
+		for (int i = 0; i < ACCOUNTS; i++) {
+			accountnos[i] = account.createAccount("benchmark_pid_" + i);
+		}
+		if (!"NONE".equals(subscriber)) {
+			account.changeFeed().subscribe(new Flow.Subscriber<List<Transaction>>() {
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					subscription.request(Long.MAX_VALUE);
+				}
+
+				@Override
+				public void onNext(List<Transaction> batch) {
+					received.add(batch.size());
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+				}
+
+				@Override
+				public void onComplete() {
+				}
+			}, TransactionFeed.DEFAULT_BUFFER_SIZE, TransactionFeed.DEFAULT_MAX_BATCH, TransactionFeed.OverflowPolicy.valueOf(subscriber));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		account.close();
+		delivery.shutdown();
+		System.out.printf("%n%s: %d received, %d dropped%n", subscriber, received.sum(), account.changeFeed().dropped());
+	}
+
+	@Benchmark
+	public void deposit() {
+		account.deposit(accountnos[ThreadLocalRandom.current().nextInt(ACCOUNTS)], 1);
+	}
+}
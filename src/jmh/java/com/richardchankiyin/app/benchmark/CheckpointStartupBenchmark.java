@@ -0,0 +1,68 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+
+/**
+ * Startup time from a checkpoint: time to build an Account that loads a
+ * checkpoint of the given number of accounts, each with a few retained
+ * transactions. 10M accounts need a large heap, hence -Xmx below.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx24g"})
+public class CheckpointStartupBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class CheckpointFile {
+		@Param({"1000000", "10000000"})
+		public int accounts;
+
+		public Path checkpoint;
+		private Path dir;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			dir = Files.createTempDirectory("checkpoint-benchmark");
+			checkpoint = dir.resolve("accounts.checkpoint");
+			Account account = Account.builder().build();
+			for (int i = 0; i < accounts; i++) {
+				String accountno = account.createAccount("benchmark_pid_" + i);
+				account.deposit(accountno, 100d);
+				account.withdraw(accountno, 40.5d);
+			}
+			account.checkpoint(checkpoint);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			Files.deleteIfExists(checkpoint);
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	@Benchmark
+	public Account startup(CheckpointFile file) {
+		return Account.builder().checkpoint(file.checkpoint).build();
+	}
+}
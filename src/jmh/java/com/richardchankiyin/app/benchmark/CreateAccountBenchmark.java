@@ -0,0 +1,66 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.AccountEngine;
+import com.richardchankiyin.app.IAccount;
+
+/**
+ * Throughput of createAccount. A fresh account book is used for every
+ * iteration so the maps do not grow across the whole run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateAccountBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Book {
+		@Param({"LOCKED", "FIXED_POINT", "LOCK_FREE", "OFF_HEAP", "TIERED"})
+		public AccountEngine engine;
+
+		public IAccount account;
+		final AtomicInteger threadIds = new AtomicInteger();
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			account = engine.create();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class PersonalIds {
+		String prefix;
+		long counter;
+
+		@Setup(Level.Trial)
+		public void setup(Book book) {
+			prefix = "pid_" + book.threadIds.getAndIncrement() + "_";
+		}
+
+		String next() {
+			return prefix + counter++;
+		}
+	}
+
+	@Benchmark
+	public String createAccount(Book book, PersonalIds ids) {
+		return book.account.createAccount(ids.next());
+	}
+}
@@ -0,0 +1,113 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountBatchProcessor;
+import com.richardchankiyin.app.AccountIdStrategy;
+
+/**
+ * One end-of-day interest run (1% a year, rounded down to cents) over
+ * the given number of accounts, while liveThreads keep depositing to
+ * random accounts. The primary score is the time the run takes; the live
+ * deposits completed meanwhile are reported as a secondary result. 10M
+ * accounts need a large heap, hence -Xmx below; run a single size with
+ * -p accounts=...
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+@State(Scope.Benchmark)
+public class EndOfDayBenchmark {
+
+	@Param({"1000000", "10000000"})
+	public int accounts;
+
+	@Param({"2"})
+	public int liveThreads;
+
+	private Account account;
+	private String[] accountnos;
+	private AccountBatchProcessor processor;
+	private ExecutorService live;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final LongAdder liveDeposits = new LongAdder();
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Traffic {
+		public long liveDeposits;
+		public long postings;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			liveDeposits = 0;
+			postings = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		account = Account.builder().expectedAccounts(accounts).accountIdStrategy(AccountIdStrategy.numeric()).build();
+		accountnos = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountnos[i] = account.createAccount("benchmark_pid_" + i);
+			account.deposit(accountnos[i], 1_000);
+		}
+		processor = new AccountBatchProcessor(account);
+	}
+
+	@Setup(Level.Iteration)
+	public void startLiveTraffic() {
+		running.set(true);
+		liveDeposits.reset();
+		live = Executors.newFixedThreadPool(Math.max(1, liveThreads));
+		for (int t = 0; t < liveThreads; t++) {
+			live.execute(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (running.get()) {
+					account.deposit(accountnos[random.nextInt(accounts)], 1);
+					liveDeposits.increment();
+				}
+			});
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void stopLiveTraffic() throws InterruptedException {
+		running.set(false);
+		live.shutdown();
+		live.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	@Benchmark
+	public AccountBatchProcessor.Result interest(Traffic traffic) {
+		long before = liveDeposits.sum();
+		AccountBatchProcessor.Result result = processor.run((accountno, balance) -> Math.floor(balance * 100 / 36500) / 100);
+		traffic.liveDeposits = liveDeposits.sum() - before;
+		traffic.postings = result.postings();
+		return result;
+	}
+}
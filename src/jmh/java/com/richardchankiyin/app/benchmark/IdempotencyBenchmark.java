@@ -0,0 +1,87 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.IdempotentAccount;
+
+/**
+ * Deposits through IdempotentAccount against plain Account deposits,
+ * with the cache sized for 1M distinct keys a minute (1M keys, 1 minute
+ * TTL). Every keyed call uses a new key, except in withRetries where one
+ * call in ten repeats a recent key as a gateway retry would.
+ * Unpaced, the benchmark exceeds 1M calls a minute, so the cache runs full
+ * and evicts by size; maxKeys=1000000 then shows the GC cost of keeping a
+ * million keys live, a small maxKeys the cost of the lookup itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdempotencyBenchmark {
+
+	private static final int ACCOUNTS = 10_000;
+	@Param({"10000", "1000000"})
+	public int maxKeys;
+
+	private Account plain;
+	private IdempotentAccount idempotent;
+	private List<String> plainAccountnos;
+	private List<String> idempotentAccountnos;
+	private final AtomicLong nextKey = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		plain = new Account();
+		idempotent = new IdempotentAccount(new Account(), maxKeys, Duration.ofMinutes(1));
+		plainAccountnos = new ArrayList<>(ACCOUNTS);
+		idempotentAccountnos = new ArrayList<>(ACCOUNTS);
+		for (int i = 0; i < ACCOUNTS; i++) {
+			plainAccountnos.add(plain.createAccount("benchmark_pid_" + i));
+			idempotentAccountnos.add(idempotent.createAccount("benchmark_pid_" + i));
+		}
+	}
+
+	@Benchmark
+	public void plainDeposit() {
+		plain.deposit(plainAccountnos.get(ThreadLocalRandom.current().nextInt(ACCOUNTS)), 1);
+	}
+
+	@Benchmark
+	public void distinctKeys() {
+		long key = nextKey.incrementAndGet();
+		idempotent.deposit(Long.toString(key), idempotentAccountnos.get((int) (key % ACCOUNTS)), 1);
+	}
+
+	@Benchmark
+	public void withRetries() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long key = nextKey.incrementAndGet();
+		if (random.nextInt(10) == 0 && key > 1000) {
+			key -= random.nextInt(1, 1000);
+		}
+		idempotent.deposit(Long.toString(key), idempotentAccountnos.get((int) (key % ACCOUNTS)), 1);
+	}
+}
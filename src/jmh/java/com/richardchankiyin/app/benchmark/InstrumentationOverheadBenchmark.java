@@ -0,0 +1,76 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountMetrics;
+import com.richardchankiyin.app.IAccount;
+import com.richardchankiyin.app.InstrumentedAccount;
+
+/**
+ * Cost of instrumentation on the locked Account: NONE is the bare account,
+ * DISABLED is instrumented with metrics switched off at runtime, ENABLED
+ * records latencies and lock contention. Sweep thread counts with
+ * AccountBenchmarkRunner to see the cost under contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumentationOverheadBenchmark {
+
+	@Param({"NONE", "DISABLED", "ENABLED"})
+	public String instrumentation;
+
+	@Param({"1", "1024"})
+	public int accounts;
+
+	private IAccount account;
+	private String[] accountnos;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		if ("NONE".equals(instrumentation)) {
+			account = new Account();
+		} else {
+			AccountMetrics metrics = new AccountMetrics();
+			metrics.setEnabled("ENABLED".equals(instrumentation));
+			account = new InstrumentedAccount(Account.builder().metrics(metrics).build(), metrics);
+		}
+		accountnos = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountnos[i] = account.createAccount("benchmark_pid_" + i);
+			account.deposit(accountnos[i], AccountFixture.OPENING_BALANCE);
+		}
+	}
+
+	private String pick() {
+		return accountnos[ThreadLocalRandom.current().nextInt(accounts)];
+	}
+
+	@Benchmark
+	public void deposit() {
+		account.deposit(pick(), 1.5d);
+	}
+
+	@Benchmark
+	public double enquirebalance() {
+		return account.enquirebalance(pick());
+	}
+}
@@ -0,0 +1,72 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.DurabilityMode;
+
+/**
+ * Deposit throughput with the journal enabled, for each durability mode.
+ * PER_OP only scales with threads because of group commit, so sweep the
+ * thread count with AccountBenchmarkRunner.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JournalBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class JournaledBook {
+		@Param({"PER_OP", "BATCHED", "ASYNC"})
+		public DurabilityMode mode;
+
+		@Param({"1024"})
+		public int accounts;
+
+		public Account account;
+		public String[] accountnos;
+		private Path dir;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			dir = Files.createTempDirectory("journal-benchmark");
+			account = Account.builder().journal(dir.resolve("account.journal"), mode).build();
+			accountnos = new String[accounts];
+			for (int i = 0; i < accounts; i++) {
+				accountnos[i] = account.createAccount("benchmark_pid_" + i);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			account.close();
+			Files.deleteIfExists(dir.resolve("account.journal"));
+			Files.deleteIfExists(dir);
+		}
+	}
+
+	@Benchmark
+	public void deposit(JournaledBook book) {
+		book.account.deposit(book.accountnos[ThreadLocalRandom.current().nextInt(book.accounts)], 1.5d);
+	}
+}
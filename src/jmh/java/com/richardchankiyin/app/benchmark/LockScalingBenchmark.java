@@ -0,0 +1,66 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+
+/**
+ * Deposit throughput over many accounts for different lock layouts.
+ * locking is the stripe count, or "perAccount" for one lock per account.
+ * Meant to be swept from 1 to 64 threads:
+ *
+ * java -cp target/benchmarks.jar com.richardchankiyin.app.benchmark.AccountBenchmarkRunner LockScalingBenchmark 64
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockScalingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Book {
+		@Param({"10", "64", "1024", "perAccount"})
+		public String locking;
+
+		@Param({"4096"})
+		public int accounts;
+
+		public Account account;
+		public String[] accountnos;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Account.Builder builder = Account.builder();
+			if ("perAccount".equals(locking)) {
+				builder.perAccountLocks();
+			} else {
+				builder.stripes(Integer.parseInt(locking));
+			}
+			account = builder.build();
+			accountnos = new String[accounts];
+			for (int i = 0; i < accounts; i++) {
+				accountnos[i] = account.createAccount("benchmark_pid_" + i);
+			}
+		}
+	}
+
+	@Benchmark
+	public void deposit(Book book) {
+		book.account.deposit(book.accountnos[ThreadLocalRandom.current().nextInt(book.accounts)], 1.5d);
+	}
+}
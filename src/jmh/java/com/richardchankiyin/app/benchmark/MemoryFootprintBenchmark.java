@@ -0,0 +1,86 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.AccountEngine;
+import com.richardchankiyin.app.IAccount;
+
+/**
+ * Memory footprint per account: creates the given number of accounts with
+ * one deposit each and reports, as secondary results, the heap retained
+ * and the direct (off-heap) memory allocated per account. The primary
+ * score is the time taken to populate. 50M LOCKED accounts need a very
+ * large heap, hence -Xmx below; run a single size with -p accounts=...
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx48g", "-XX:MaxDirectMemorySize=32g"})
+@State(Scope.Benchmark)
+public class MemoryFootprintBenchmark {
+
+	@Param({"LOCKED", "OFF_HEAP", "TIERED"})
+	public AccountEngine engine;
+
+	@Param({"1000000", "10000000", "50000000"})
+	public int accounts;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint {
+		public long heapBytesPerAccount;
+		public long offHeapBytesPerAccount;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			heapBytesPerAccount = 0;
+			offHeapBytesPerAccount = 0;
+		}
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long usedDirect() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if ("direct".equals(pool.getName())) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return 0;
+	}
+
+	@Benchmark
+	public IAccount populate(Footprint footprint) {
+		long heapBefore = usedHeap();
+		long directBefore = usedDirect();
+		IAccount account = engine.create();
+		for (int i = 0; i < accounts; i++) {
+			account.deposit(account.createAccount("benchmark_pid_" + i), 100d);
+		}
+		footprint.heapBytesPerAccount = (usedHeap() - heapBefore) / accounts;
+		footprint.offHeapBytesPerAccount = (usedDirect() - directBefore) / accounts;
+		return account;
+	}
+}
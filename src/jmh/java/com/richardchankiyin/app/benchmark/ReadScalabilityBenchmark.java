@@ -0,0 +1,44 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Transaction;
+
+/**
+ * Reads racing writers: three threads read the last 10 transactions while
+ * one deposits. LOCKED reads optimistically without taking the lock,
+ * FIXED_POINT reads under the stripe lock, for comparison. Use accounts = 1
+ * for the hot-account case. Scale the group with -tg, e.g. -tg 7,1.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadScalabilityBenchmark {
+
+	@Benchmark
+	@Group("readWhileWriting")
+	@GroupThreads(3)
+	public List<Transaction> read(AccountFixture fixture) {
+		return fixture.account.listLastNTransactions(fixture.pick(), 10);
+	}
+
+	@Benchmark
+	@Group("readWhileWriting")
+	@GroupThreads(1)
+	public void write(AccountFixture fixture) {
+		fixture.account.deposit(fixture.pick(), 1.5d);
+	}
+}
@@ -0,0 +1,74 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountException;
+
+/**
+ * A retry storm: withdrawals from an account that cannot cover them, so
+ * every call is rejected with Insufficient Balance. withdrawWithNewException
+ * is the rejection as it was before the shared exceptions (a new
+ * AccountException with its stack trace per call), withdrawThrowing the
+ * throwing API now and tryWithdraw the status-code API. Run with -prof gc
+ * for allocation per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RejectionBenchmark {
+
+	private Account account;
+	private String accountno;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		account = new Account();
+		accountno = account.createAccount("benchmark_pid");
+		account.deposit(accountno, 10);
+	}
+
+	@Benchmark
+	public String withdrawWithNewException() {
+		try {
+			if (account.enquirebalance(accountno) < 20) {
+				throw new AccountException("Insufficient Balance");
+			}
+			return null;
+		} catch (AccountException e) {
+			return e.getMessage();
+		}
+	}
+
+	@Benchmark
+	public String withdrawThrowing() {
+		try {
+			account.withdraw(accountno, 20);
+			return null;
+		} catch (AccountException e) {
+			return e.getMessage();
+		}
+	}
+
+	@Benchmark
+	public int tryWithdraw() {
+		return account.tryWithdraw(accountno, 20);
+	}
+}
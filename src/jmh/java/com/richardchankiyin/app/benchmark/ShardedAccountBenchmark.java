@@ -0,0 +1,72 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.ShardedAccount;
+
+/**
+ * Deposit latency distribution (SampleTime reports p50/p99/p99.9) and, via
+ * the throughput mode, ops/ms of the sharded single-writer engine against
+ * the locked Account. Sweep thread counts with AccountBenchmarkRunner.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardedAccountBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Engines {
+		@Param({"1", "1024"})
+		public int accounts;
+
+		public Account locked;
+		public ShardedAccount sharded;
+		public String[] lockedAccountnos;
+		public String[] shardedAccountnos;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			locked = new Account();
+			sharded = new ShardedAccount();
+			lockedAccountnos = new String[accounts];
+			shardedAccountnos = new String[accounts];
+			for (int i = 0; i < accounts; i++) {
+				lockedAccountnos[i] = locked.createAccount("benchmark_pid_" + i);
+				shardedAccountnos[i] = sharded.createAccount("benchmark_pid_" + i).join();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			sharded.close();
+		}
+	}
+
+	@Benchmark
+	public void lockedDeposit(Engines e) {
+		e.locked.deposit(e.lockedAccountnos[ThreadLocalRandom.current().nextInt(e.accounts)], 1.5d);
+	}
+
+	@Benchmark
+	public void shardedDeposit(Engines e) {
+		e.sharded.deposit(e.shardedAccountnos[ThreadLocalRandom.current().nextInt(e.accounts)], 1.5d).join();
+	}
+}
@@ -0,0 +1,112 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.StatementExporter;
+import com.richardchankiyin.app.Transaction;
+
+/**
+ * Exporting the full history of every account: StatementExporter into one
+ * file and into parallel segments, against paging through
+ * transactionsAfter and writing each transaction as a line of text.
+ * Run with -prof gc to compare allocation per export.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class StatementExportBenchmark {
+
+	private static final int PAGE_SIZE = 1000;
+
+	@Param({"10000"})
+	public int accounts;
+
+	@Param({"100"})
+	public int transactionsPerAccount;
+
+	private Account account;
+	private List<String> accountnos;
+	private StatementExporter exporter;
+	private Path dir;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		account = Account.builder().retainAllTransactions().expectedAccounts(accounts).build();
+		accountnos = new ArrayList<>(accounts);
+		for (int i = 0; i < accounts; i++) {
+			String accountno = account.createAccount("benchmark_pid_" + i);
+			for (int j = 0; j < transactionsPerAccount; j++) {
+				account.deposit(accountno, j + 0.25);
+			}
+			accountnos.add(accountno);
+		}
+		exporter = new StatementExporter(account);
+		dir = Files.createTempDirectory("statement-export-benchmark");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Benchmark
+	public long exportSingleFile() throws IOException {
+		return exporter.export(accountnos, dir.resolve("statements.bin"));
+	}
+
+	@Benchmark
+	public List<Path> exportSegments() throws IOException {
+		return exporter.export(accountnos, dir, Runtime.getRuntime().availableProcessors());
+	}
+
+	@Benchmark
+	public long pagedText() throws IOException {
+		long written = 0;
+		try (BufferedWriter out = Files.newBufferedWriter(dir.resolve("statements.txt"))) {
+			for (String accountno : accountnos) {
+				out.write(accountno + "," + account.enquirebalance(accountno) + "\n");
+				long after = 0;
+				List<Transaction> page;
+				do {
+					page = account.transactionsAfter(accountno, after, PAGE_SIZE);
+					for (Transaction txn : page) {
+						out.write(txn.sequence() + "," + txn.timestamp() + "," + txn.isDeposit() + "," + txn.amount() + "\n");
+						after = txn.sequence();
+						written++;
+					}
+				} while (page.size() == PAGE_SIZE);
+			}
+		}
+		return written;
+	}
+}
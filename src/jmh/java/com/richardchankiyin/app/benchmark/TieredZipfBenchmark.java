@@ -0,0 +1,128 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.AccountEngine;
+import com.richardchankiyin.app.IAccount;
+import com.richardchankiyin.app.TieredAccount;
+
+/**
+ * Deposits and balance enquiries on accounts picked by a Zipf
+ * distribution (exponent 1, a few accounts take most of the calls and
+ * most are rarely touched), comparing the heap engine with TieredAccount
+ * and its default hot capacity of 65536 accounts. Sample time mode, so
+ * the p99 and p99.9 latencies are reported alongside the mean. Heap used
+ * per account after the run, and the hit ratio of TIERED, are printed at
+ * the end of each trial.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class TieredZipfBenchmark {
+
+	private static final int SAMPLES = 1 << 20;
+
+	@Param({"LOCKED", "TIERED"})
+	public AccountEngine engine;
+
+	@Param({"1000000"})
+	public int accounts;
+
+	private IAccount account;
+	private String[] picks;
+	private long heapBefore;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		heapBefore = usedHeap();
+		account = engine.create();
+		String[] accountnos = new String[accounts];
+		for (int i = 0; i < accounts; i++) {
+			accountnos[i] = account.createAccount("benchmark_pid_" + i);
+			account.deposit(accountnos[i], AccountFixture.OPENING_BALANCE);
+		}
+		picks = zipf(accountnos, new Random(42));
+	}
+
+	/**
+	 * SAMPLES account nos drawn by rank from a Zipf distribution, ranks
+	 * assigned to accounts at random so that hot accounts are not
+	 * neighbouring slots
+	 */
+	private static String[] zipf(String[] accountnos, Random random) {
+		int n = accountnos.length;
+		double[] cumulative = new double[n];
+		double sum = 0;
+		for (int rank = 0; rank < n; rank++) {
+			sum += 1d / (rank + 1);
+			cumulative[rank] = sum;
+		}
+		int[] accountOfRank = new int[n];
+		for (int i = 0; i < n; i++) {
+			int j = random.nextInt(i + 1);
+			accountOfRank[i] = accountOfRank[j];
+			accountOfRank[j] = i;
+		}
+		String[] picks = new String[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+			picks[i] = accountnos[accountOfRank[rank < 0 ? -rank - 1 : rank]];
+		}
+		return picks;
+	}
+
+	private static long usedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	@TearDown(Level.Trial)
+	public void report() throws Exception {
+		picks = null;
+		System.out.printf("%n%s: %d heap bytes per account%n", engine, (usedHeap() - heapBefore) / accounts);
+		if (account instanceof TieredAccount tiered) {
+			System.out.printf("TIERED: hit ratio %.3f, %d evictions%n",
+					(double) tiered.hits() / (tiered.hits() + tiered.misses()), tiered.evictions());
+			tiered.close();
+		}
+	}
+
+	private String pick() {
+		return picks[ThreadLocalRandom.current().nextInt(SAMPLES)];
+	}
+
+	@Benchmark
+	public void deposit() {
+		account.deposit(pick(), 1);
+	}
+
+	@Benchmark
+	public double enquirebalance() {
+		return account.enquirebalance(pick());
+	}
+}
@@ -0,0 +1,66 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.AccountEngine;
+import com.richardchankiyin.app.IAccount;
+
+/**
+ * Many threads transferring between random pairs of a small set of hot
+ * accounts, in both directions. Sweep the thread count with
+ * AccountBenchmarkRunner.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class HotAccounts {
+		@Param({"LOCKED", "FIXED_POINT"})
+		public AccountEngine engine;
+
+		@Param({"2", "8"})
+		public int accounts;
+
+		public IAccount account;
+		public String[] accountnos;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			account = engine.create();
+			accountnos = new String[accounts];
+			for (int i = 0; i < accounts; i++) {
+				accountnos[i] = account.createAccount("benchmark_pid_" + i);
+				account.deposit(accountnos[i], AccountFixture.OPENING_BALANCE);
+			}
+		}
+	}
+
+	@Benchmark
+	public void transfer(HotAccounts hot) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int from = random.nextInt(hot.accounts);
+		int to = random.nextInt(hot.accounts - 1);
+		if (to >= from) {
+			to++;
+		}
+		hot.account.transfer(hot.accountnos[from], hot.accountnos[to], 1.5d);
+	}
+}
@@ -0,0 +1,66 @@
+package com.richardchankiyin.app.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.richardchankiyin.app.AccountEngine;
+import com.richardchankiyin.app.VirtualThreadAccountFacade;
+
+/**
+ * Time to drain a burst of 100k concurrent deposits pushed through the
+ * virtual-thread facade, with at most maxInFlight outstanding at once.
+ * Run with -prof gc to see that allocation stays flat as the bound drops.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadLoadBenchmark {
+
+	private static final int REQUESTS = 100_000;
+
+	@Param({"1024", "100000"})
+	public int maxInFlight;
+
+	private AccountFixture fixture;
+	private VirtualThreadAccountFacade facade;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		fixture = new AccountFixture();
+		fixture.engine = AccountEngine.LOCKED;
+		fixture.accounts = 1024;
+		fixture.setup();
+		facade = new VirtualThreadAccountFacade(fixture.account, maxInFlight);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		facade.close();
+	}
+
+	@Benchmark
+	public void burst() {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++) {
+			futures[i] = facade.deposit(fixture.pick(), 1.5d);
+		}
+		CompletableFuture.allOf(futures).join();
+	}
+}
@@ -1,29 +1,256 @@
 package com.richardchankiyin.app;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.google.common.util.concurrent.Striped;
 
 
-public class Account implements IAccount {
+public class Account implements IAccount, ITryAccount, ITransactionQuery, Closeable {
 
 	private Striped<Lock> stripedLock = null;
 	private Map<String,String> personalIdAccountMap;
-	private Map<String,BigDecimal> accountBalance;
-	private Map<String,List<Transaction>> accountTransactions;
+	private Map<String,AccountState> accounts;
+	private ConcurrentLongMap<AccountState> accountsById;
+	private final AccountIdStrategy idStrategy;
+	private final NumericAccountIdStrategy numericIds;
+	private final int historyCapacity;
+	private final boolean perAccountLocks;
+	private final boolean retainAllTransactions;
+	private final AtomicInteger perAccountLockOrder = new AtomicInteger();
+	private AccountJournal journal = null;
+	private final ReentrantReadWriteLock checkpointBarrier = new ReentrantReadWriteLock();
+	private final AccountMetrics metrics;
+	private final AccountAggregates aggregates;
+	private final TransactionFeed feed;
 	private static final int MAX_LAST_LIST_N_VAL = 10;
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+	private static final int MIN_STRIPES = 16;
+	private static final int STRIPES_PER_CORE = 4;
+	private static final long DEFAULT_JOURNAL_FLUSH_INTERVAL_MILLIS = 5;
+	private static final int CHECKPOINT_SEGMENTS = 64;
 	
 	public Account() {
-		stripedLock = Striped.lock(10);
-		personalIdAccountMap = new ConcurrentHashMap<>();
-		accountBalance = new ConcurrentHashMap<>();
-		accountTransactions = new ConcurrentHashMap<>();
+		this(builder());
+	}
+	
+	/**
+	 * @param historyCapacity number of most recent transactions retained per account
+	 */
+	public Account(int historyCapacity) {
+		this(builder().historyCapacity(historyCapacity));
+	}
+	
+	private Account(Builder builder) {
+		this.historyCapacity = builder.historyCapacity;
+		this.perAccountLocks = builder.perAccountLocks;
+		this.retainAllTransactions = builder.retainAllTransactions;
+		this.metrics = builder.metrics;
+		this.aggregates = builder.aggregateScale < 0 ? null : new AccountAggregates(builder.aggregateScale);
+		this.feed = new TransactionFeed(builder.changeFeedExecutor);
+		this.idStrategy = builder.idStrategy;
+		this.numericIds = idStrategy instanceof NumericAccountIdStrategy numeric ? numeric : null;
+		stripedLock = Striped.lock(builder.stripes);
+		try {
+			AccountCheckpoint.Header checkpoint = null;
+			if (builder.checkpointPath != null && builder.checkpointPath.toFile().exists()) {
+				checkpoint = AccountCheckpoint.readHeader(builder.checkpointPath);
+			}
+			long restored = checkpoint == null ? 0 : checkpoint.accountCount();
+			int expectedAccounts = (int) Math.min(Integer.MAX_VALUE, Math.max(builder.expectedAccounts, restored));
+			personalIdAccountMap = new ConcurrentHashMap<>(expectedAccounts);
+			if (numericIds != null) {
+				accountsById = new ConcurrentLongMap<>(expectedAccounts);
+			} else {
+				accounts = new ConcurrentHashMap<>(expectedAccounts);
+			}
+			if (checkpoint != null) {
+				AccountCheckpoint.load(builder.checkpointPath, this::restoreAccount);
+			}
+			if (builder.journalPath != null) {
+				long journalOffset = checkpoint == null ? 0 : checkpoint.journalOffset();
+				long nextSeq = AccountJournal.replay(builder.journalPath, journalOffset, new JournalReplayer());
+				if (checkpoint != null) {
+					nextSeq = Math.max(nextSeq, checkpoint.nextJournalSeq());
+				}
+				journal = new AccountJournal(builder.journalPath, builder.durabilityMode, builder.journalFlushIntervalMillis, nextSeq);
+			}
+		} catch (IOException e) {
+			throw new AccountException("Journal Failure", e);
+		}
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	static int defaultStripes() {
+		return Math.max(MIN_STRIPES, Runtime.getRuntime().availableProcessors() * STRIPES_PER_CORE);
+	}
+	
+	public static class Builder {
+		private int historyCapacity = MAX_LAST_LIST_N_VAL;
+		private int stripes = defaultStripes();
+		private boolean perAccountLocks = false;
+		private boolean retainAllTransactions = false;
+		private Path journalPath = null;
+		private DurabilityMode durabilityMode = DurabilityMode.PER_OP;
+		private long journalFlushIntervalMillis = DEFAULT_JOURNAL_FLUSH_INTERVAL_MILLIS;
+		private Path checkpointPath = null;
+		private AccountMetrics metrics = null;
+		private AccountIdStrategy idStrategy = AccountIdStrategy.uuid();
+		private int expectedAccounts = 16;
+		private int aggregateScale = -1;
+		private Executor changeFeedExecutor = ForkJoinPool.commonPool();
+		
+		private Builder() {
+		}
+		
+		/**
+		 * number of most recent transactions retained per account,
+		 * defaults to the maximum listLastNTransactions accepts
+		 */
+		public Builder historyCapacity(int historyCapacity) {
+			if (historyCapacity <= 0) {
+				throw new IllegalArgumentException("History capacity must be positive: " + historyCapacity);
+			}
+			this.historyCapacity = historyCapacity;
+			return this;
+		}
+		
+		/**
+		 * number of lock stripes shared by the accounts,
+		 * defaults to 4 per available core (at least 16)
+		 */
+		public Builder stripes(int stripes) {
+			if (stripes <= 0) {
+				throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+			}
+			this.stripes = stripes;
+			return this;
+		}
+		
+		/**
+		 * keep every transaction of an account in a {@link TransactionLog}
+		 * instead of only the last historyCapacity, so that
+		 * {@link ITransactionQuery} can page through all of them
+		 */
+		public Builder retainAllTransactions() {
+			this.retainAllTransactions = true;
+			return this;
+		}
+		
+		/**
+		 * give every account its own lock instead of sharing stripes,
+		 * stripes are then only used to serialise createAccount per personal id
+		 */
+		public Builder perAccountLocks() {
+			this.perAccountLocks = true;
+			return this;
+		}
+		
+		/**
+		 * journal every createAccount, deposit, withdraw and transfer to path
+		 * (see {@link AccountJournal}); an existing journal is replayed on build
+		 */
+		public Builder journal(Path path, DurabilityMode mode) {
+			this.journalPath = path;
+			this.durabilityMode = mode;
+			return this;
+		}
+		
+		/**
+		 * how often the journal is flushed when no PER_OP caller is waiting,
+		 * this is the commit interval of BATCHED and ASYNC, defaults to 5 ms
+		 */
+		public Builder journalFlushInterval(long millis) {
+			if (millis <= 0) {
+				throw new IllegalArgumentException("Flush interval must be positive: " + millis);
+			}
+			this.journalFlushIntervalMillis = millis;
+			return this;
+		}
+		
+		/**
+		 * load accounts from the checkpoint at path on build, if it exists,
+		 * and replay only the journal written after it (see {@link Account#checkpoint(Path)})
+		 */
+		public Builder checkpoint(Path path) {
+			this.checkpointPath = path;
+			return this;
+		}
+		
+		/**
+		 * record how often each account lock is taken, how often it is
+		 * contended and how long is spent waiting for it into metrics
+		 */
+		public Builder metrics(AccountMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+		
+		/**
+		 * maintain {@link AccountAggregates} on every posting, with totals
+		 * kept to scale decimal places. Postings that would leave a balance
+		 * too large for the totals at that scale are then rejected with
+		 * Amount Overflow
+		 */
+		public Builder aggregates(int scale) {
+			if (scale < 0 || scale > FixedPoint.MAX_SCALE) {
+				throw new IllegalArgumentException("Scale must be between 0 and " + FixedPoint.MAX_SCALE + ": " + scale);
+			}
+			this.aggregateScale = scale;
+			return this;
+		}
+		
+		/**
+		 * executor the {@link #changeFeed()} delivers to subscribers on,
+		 * defaults to the common fork-join pool
+		 */
+		public Builder changeFeedExecutor(Executor executor) {
+			this.changeFeedExecutor = executor;
+			return this;
+		}
+		
+		/**
+		 * number of accounts the maps are sized for up front, e.g. ahead of
+		 * an {@link AccountBulkLoader} import, so they do not rehash while filling
+		 */
+		public Builder expectedAccounts(int expectedAccounts) {
+			if (expectedAccounts < 0) {
+				throw new IllegalArgumentException("Expected accounts must not be negative: " + expectedAccounts);
+			}
+			this.expectedAccounts = expectedAccounts;
+			return this;
+		}
+		
+		/**
+		 * how account numbers are generated, defaults to random UUIDs.
+		 * With a {@link NumericAccountIdStrategy} accounts are keyed by
+		 * their long id instead of the account number string
+		 */
+		public Builder accountIdStrategy(AccountIdStrategy idStrategy) {
+			this.idStrategy = idStrategy;
+			return this;
+		}
+		
+		public Account build() {
+			return new Account(this);
+		}
 	}
 
 	private boolean isPersonalIdFound(String personalId) {
@@ -31,112 +258,806 @@ public class Account implements IAccount {
 	}
 	
 	private String generateAccountId(String personalId) {
-		return UUID.randomUUID().toString();
+		return idStrategy.nextAccountno();
+	}
+	
+	private AccountState findAccountState(String accountno) {
+		if (numericIds != null) {
+			long id = NumericAccountIdStrategy.decode(accountno);
+			return id == 0 ? null : accountsById.get(id);
+		}
+		return accounts.get(accountno);
+	}
+	
+	private void putAccountState(AccountState state) {
+		if (numericIds != null) {
+			long id = NumericAccountIdStrategy.decode(state.accountno);
+			if (id == 0) {
+				throw AccountException.INVALID_ACCOUNT;
+			}
+			accountsById.put(id, state);
+		} else {
+			accounts.put(state.accountno, state);
+		}
+	}
+	
+	private AccountState getAccountState(String accountno) {
+		AccountState state = findAccountState(accountno);
+		if (state == null) {
+			throw AccountException.INVALID_ACCOUNT;
+		}
+		return state;
+	}
+	
+	Lock lockOf(String accountno) {
+		return getAccountState(accountno).lock;
+	}
+	
+	private AccountState newAccountState(String accountno) {
+		TransactionStore history = retainAllTransactions ? new TransactionLog() : new TransactionHistory(historyCapacity);
+		if (perAccountLocks) {
+			return new AccountState(accountno, new ReentrantLock(), perAccountLockOrder.getAndIncrement(), history);
+		}
+		int stripe = stripeFor(accountno);
+		return new AccountState(accountno, stripedLock.getAt(stripe), stripe, history);
+	}
+	
+	private int stripeFor(String accountno) {
+		int h = accountno.hashCode();
+		h ^= (h >>> 16);
+		return Math.floorMod(h, stripedLock.size());
 	}
 	
-	private void validateAccount(String accountno) {
-		if (!accountBalance.containsKey(accountno) || !accountTransactions.containsKey(accountno)) {
-			throw new AccountException("Invalid Account");
+	private void lock(Lock l, int lockOrder) {
+		AccountMetrics m = metrics;
+		if (m == null || !m.isEnabled()) {
+			l.lock();
+		} else if (l.tryLock()) {
+			m.recordLockAcquired(lockOrder);
+		} else {
+			long start = System.nanoTime();
+			l.lock();
+			m.recordLockWait(lockOrder, System.nanoTime() - start);
 		}
 	}
 	
 	private void validateAmount(double amt ) {
-		if (amt <= 0) {
-			throw new AccountException("Invalid Amount");
+		if (!isValidAmount(amt)) {
+			throw AccountException.INVALID_AMOUNT;
+		}
+	}
+	
+	/**
+	 * amounts must be positive and finite: NaN or an infinity would be
+	 * journaled and then fail to apply, on every replay too
+	 */
+	private static boolean isValidAmount(double amt) {
+		return Double.isFinite(amt) && amt > 0;
+	}
+	
+	private static void throwIfRejected(int status) {
+		if (status != OK) {
+			throw AccountException.forStatus(status);
 		}
 	}
 	
 	@Override
 	public String createAccount(String personalId) {
-		String personalIdIntern = personalId.intern();
 		String accountno = "";
+		long seq = 0;
 		
-		Lock l = stripedLock.get(personalIdIntern);
+		Lock barrier = checkpointBarrier.readLock();
+		barrier.lock();
+		Lock l = stripedLock.get(personalId);
 		l.lock();		
 		try {
-			if (isPersonalIdFound(personalIdIntern)) {
+			if (isPersonalIdFound(personalId)) {
 				throw new AccountException("Personal Id duplicated");
 			}
-			accountno = generateAccountId(personalIdIntern);
-			personalIdAccountMap.put(personalIdIntern, accountno);
-			accountBalance.put(accountno, BigDecimal.ZERO);
-			accountTransactions.put(accountno, new ArrayList<>());
+			accountno = generateAccountId(personalId);
+			if (journal != null) {
+				seq = journal.appendCreate(personalId, accountno);
+			}
+			addAccount(personalId, accountno).journalSeq = seq;
 		} finally {
 			l.unlock();
+			barrier.unlock();
 		}
+		awaitDurable(seq);
 		
 		return accountno;
 	}
 
 	@Override
 	public void deposit(String accountno, double amt) {
-		validateAccount(accountno);
-		validateAmount(amt);
-		String accountnoIntern = accountno.intern();
-		Lock l = stripedLock.get(accountnoIntern);
-		l.lock();
+		throwIfRejected(tryDeposit(accountno, amt));
+	}
+
+	@Override
+	public int tryDeposit(String accountno, double amt) {
+		AccountState state = findAccountState(accountno);
+		if (state == null) {
+			return INVALID_ACCOUNT;
+		}
+		if (!isValidAmount(amt)) {
+			return INVALID_AMOUNT;
+		}
+		long seq = 0;
+		Lock l = state.lock;
+		lock(l, state.lockOrder);
 		try {
-			BigDecimal balance = accountBalance.get(accountnoIntern);
-			balance = balance.add(BigDecimal.valueOf(amt));
-			Transaction txn = new Transaction(accountnoIntern, true, amt);
-			accountBalance.put(accountno,balance);
-			accountTransactions.get(accountnoIntern).add(txn);
+			seq = applyDeposit(state, amt, System.currentTimeMillis());
 		} finally {
 			l.unlock();
 		}
-		
+		awaitDurable(seq);
+		return OK;
 	}
 
 	@Override
 	public void withdraw(String accountno, double amt) {
-		validateAccount(accountno);
-		validateAmount(amt);
-		String accountnoIntern = accountno.intern();
-		Lock l = stripedLock.get(accountnoIntern);
+		throwIfRejected(tryWithdraw(accountno, amt));
+	}
+
+	@Override
+	public int tryWithdraw(String accountno, double amt) {
+		AccountState state = findAccountState(accountno);
+		if (state == null) {
+			return INVALID_ACCOUNT;
+		}
+		if (!isValidAmount(amt)) {
+			return INVALID_AMOUNT;
+		}
+		long seq = 0;
+		Lock l = state.lock;
+		lock(l, state.lockOrder);
+		try {
+			if (isClearlyInsufficient(state, amt)) {
+				return INSUFFICIENT_BALANCE;
+			}
+			seq = applyWithdraw(state, amt, System.currentTimeMillis());
+		} catch (AccountException e) {
+			if (e != AccountException.INSUFFICIENT_BALANCE) {
+				throw e;
+			}
+			return INSUFFICIENT_BALANCE;
+		} finally {
+			l.unlock();
+		}
+		awaitDurable(seq);
+		return OK;
+	}
+	
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		throwIfRejected(tryTransfer(fromAccountno, toAccountno, amt));
+	}
+	
+	/**
+	 * Both locks are taken in ascending lock order, so concurrent transfers
+	 * in opposite directions cannot deadlock.
+	 */
+	@Override
+	public int tryTransfer(String fromAccountno, String toAccountno, double amt) {
+		AccountState from = findAccountState(fromAccountno);
+		AccountState to = findAccountState(toAccountno);
+		if (from == null || to == null) {
+			return INVALID_ACCOUNT;
+		}
+		if (!isValidAmount(amt)) {
+			return INVALID_AMOUNT;
+		}
+		if (from == to) {
+			return TRANSFER_TO_SAME_ACCOUNT;
+		}
+		AccountState first = from.lockOrder <= to.lockOrder ? from : to;
+		AccountState second = first == from ? to : from;
+		boolean sameLock = first.lock == second.lock;
+		long seq = 0;
+		lock(first.lock, first.lockOrder);
+		try {
+			if (!sameLock) {
+				lock(second.lock, second.lockOrder);
+			}
+			try {
+				if (isClearlyInsufficient(from, amt)) {
+					return INSUFFICIENT_BALANCE;
+				}
+				seq = applyTransfer(from, to, amt, System.currentTimeMillis());
+			} finally {
+				if (!sameLock) {
+					second.lock.unlock();
+				}
+			}
+		} catch (AccountException e) {
+			if (e != AccountException.INSUFFICIENT_BALANCE) {
+				throw e;
+			}
+			return INSUFFICIENT_BALANCE;
+		} finally {
+			first.lock.unlock();
+		}
+		awaitDurable(seq);
+		return OK;
+	}
+	
+	/**
+	 * Postings are sorted by the lock order of their account (stable, so
+	 * order within an account is preserved) and each lock is taken once per
+	 * batch. Accounts do not affect each other, so results match applying
+	 * the postings one by one.
+	 */
+	@Override
+	public List<PostingResult> applyBatch(List<Posting> postings) {
+		int size = postings.size();
+		PostingResult[] results = new PostingResult[size];
+		AccountState[] states = new AccountState[size];
+		long[] order = new long[size];
+		int valid = 0;
+		for (int i = 0; i < size; i++) {
+			Posting posting = postings.get(i);
+			try {
+				states[i] = getAccountState(posting.accountno());
+				validateAmount(posting.amount());
+				order[valid++] = ((long) states[i].lockOrder << 32) | i;
+			} catch (AccountException e) {
+				results[i] = new PostingResult(posting, e);
+			}
+		}
+		Arrays.sort(order, 0, valid);
+		long seq = 0;
+		long timestamp = System.currentTimeMillis();
+		int k = 0;
+		while (k < valid) {
+			AccountState owner = states[(int) order[k]];
+			Lock l = owner.lock;
+			lock(l, owner.lockOrder);
+			try {
+				do {
+					int i = (int) order[k];
+					Posting posting = postings.get(i);
+					try {
+						long postingSeq = posting.isDeposit()
+								? applyDeposit(states[i], posting.amount(), timestamp)
+								: applyWithdraw(states[i], posting.amount(), timestamp);
+						seq = Math.max(seq, postingSeq);
+						results[i] = new PostingResult(posting, null);
+					} catch (AccountException e) {
+						results[i] = new PostingResult(posting, e);
+					}
+					k++;
+				} while (k < valid && states[(int) order[k]].lock == l);
+			} finally {
+				l.unlock();
+			}
+		}
+		awaitDurable(seq);
+		return Arrays.asList(results);
+	}
+	
+	/*
+	 * The apply methods run under the lock of the account(s). They journal
+	 * the operation once it is known to succeed and before memory is
+	 * changed, and return the journal sequence number to wait on after unlocking.
+	 * The timestamp is journaled as given, so replay stamps the same history.
+	 * The transactions go to the change feed still under the lock, so that
+	 * subscribers get those of an account in order.
+	 */
+	
+	private long applyDeposit(AccountState state, double amt, long timestamp) {
+		BigDecimal balance = state.balance.add(BigDecimal.valueOf(amt));
+		long units = aggregates == null ? 0 : aggregates.toUnits(balance);
+		long seq = journal == null ? 0 : journal.appendPosting(true, state.accountno, amt, timestamp);
+		Transaction txn;
+		state.beginWrite();
+		try {
+			state.journalSeq = seq;
+			state.balance = balance;
+			txn = state.history.append(state.accountno, true, amt, timestamp);
+		} finally {
+			state.endWrite();
+		}
+		if (aggregates != null) {
+			aggregates.deposited(state, units);
+		}
+		if (feed.hasSubscribers()) {
+			feed.publish(txn);
+		}
+		return seq;
+	}
+	
+	private long applyWithdraw(AccountState state, double amt, long timestamp) {
+		BigDecimal balance = state.balance.subtract(checkSufficientBalance(state, amt));
+		long units = aggregates == null ? 0 : aggregates.toUnits(balance);
+		long seq = journal == null ? 0 : journal.appendPosting(false, state.accountno, amt, timestamp);
+		Transaction txn;
+		state.beginWrite();
+		try {
+			state.journalSeq = seq;
+			state.balance = balance;
+			txn = state.history.append(state.accountno, false, amt, timestamp);
+		} finally {
+			state.endWrite();
+		}
+		if (aggregates != null) {
+			aggregates.withdrew(state, units);
+		}
+		if (feed.hasSubscribers()) {
+			feed.publish(txn);
+		}
+		return seq;
+	}
+	
+	private long applyTransfer(AccountState from, AccountState to, double amt, long timestamp) {
+		BigDecimal amtBD = checkSufficientBalance(from, amt);
+		BigDecimal fromBalance = from.balance.subtract(amtBD);
+		BigDecimal toBalance = to.balance.add(amtBD);
+		long fromUnits = aggregates == null ? 0 : aggregates.toUnits(fromBalance);
+		long toUnits = aggregates == null ? 0 : aggregates.toUnits(toBalance);
+		long seq = journal == null ? 0 : journal.appendTransfer(from.accountno, to.accountno, amt, timestamp);
+		Transaction fromTxn;
+		Transaction toTxn;
+		from.beginWrite();
+		to.beginWrite();
+		try {
+			from.journalSeq = seq;
+			to.journalSeq = seq;
+			from.balance = fromBalance;
+			to.balance = toBalance;
+			fromTxn = from.history.append(from.accountno, false, amt, timestamp);
+			toTxn = to.history.append(to.accountno, true, amt, timestamp);
+		} finally {
+			to.endWrite();
+			from.endWrite();
+		}
+		if (aggregates != null) {
+			aggregates.transferred(from, fromUnits, to, toUnits);
+		}
+		if (feed.hasSubscribers()) {
+			feed.publish(fromTxn);
+			feed.publish(toTxn);
+		}
+		return seq;
+	}
+	
+	private BigDecimal checkSufficientBalance(AccountState state, double amt) {
+		if (isClearlyInsufficient(state, amt)) {
+			throw AccountException.INSUFFICIENT_BALANCE;
+		}
+		BigDecimal amtBD = BigDecimal.valueOf(amt);
+		if (state.balance.compareTo(amtBD) < 0) {
+			throw AccountException.INSUFFICIENT_BALANCE;
+		}
+		return amtBD;
+	}
+	
+	/**
+	 * Whether the balance is below amt, decided on the balance as a double
+	 * so that the usual rejection allocates nothing. Rounding to double is
+	 * monotonic, so a double balance below amt means the exact balance is
+	 * below BigDecimal.valueOf(amt) too; the few balances that round to
+	 * amt itself are left to the exact comparison.
+	 */
+	private static boolean isClearlyInsufficient(AccountState state, double amt) {
+		return state.balance.doubleValue() < amt;
+	}
+	
+	/**
+	 * createAccount and an opening deposit in one step, for
+	 * {@link AccountBulkLoader}: one lock instead of two and no wait for
+	 * the journal, the loader syncs it once at the end. The account is
+	 * funded before it is published
+	 * @param openingBalance 0 for none
+	 */
+	void importAccount(String personalId, double openingBalance) {
+		Lock barrier = checkpointBarrier.readLock();
+		barrier.lock();
+		Lock l = stripedLock.get(personalId);
 		l.lock();
 		try {
-			BigDecimal balance = accountBalance.get(accountnoIntern);
-			BigDecimal amtBD = BigDecimal.valueOf(amt);
-			if (balance.compareTo(amtBD) < 0) {
-				throw new AccountException("Insufficient Balance");
+			if (isPersonalIdFound(personalId)) {
+				throw new AccountException("Personal Id duplicated");
 			}
-			balance = balance.subtract(amtBD);
-			Transaction txn = new Transaction(accountnoIntern, false, amt);
-			accountBalance.put(accountno,balance);
-			accountTransactions.get(accountnoIntern).add(txn);
+			if (openingBalance != 0) {
+				validateAmount(openingBalance);
+			}
+			BigDecimal balance = BigDecimal.valueOf(openingBalance);
+			long units = aggregates == null ? 0 : aggregates.toUnits(balance);
+			String accountno = generateAccountId(personalId);
+			AccountState state = newAccountState(accountno);
+			state.journalSeq = journal == null ? 0 : journal.appendCreate(personalId, accountno);
+			if (openingBalance > 0) {
+				long timestamp = System.currentTimeMillis();
+				if (journal != null) {
+					state.journalSeq = journal.appendPosting(true, accountno, openingBalance, timestamp);
+				}
+				state.balance = balance;
+				Transaction txn = state.history.append(accountno, true, openingBalance, timestamp);
+				if (aggregates != null) {
+					aggregates.deposited(state, units);
+				}
+				if (feed.hasSubscribers()) {
+					feed.publish(txn);
+				}
+			}
+			putAccountState(state);
+			personalIdAccountMap.put(personalId, accountno);
 		} finally {
 			l.unlock();
+			barrier.unlock();
+		}
+	}
+	
+	/**
+	 * For {@link AccountBatchProcessor}: post what rule returns for each of
+	 * accountnos, stamped timestamp, and count it into tally. As in
+	 * applyBatch, the accounts are sorted by lock order and each lock is
+	 * taken once for the accounts behind it. The rule is run before the
+	 * lock is taken, so a slow rule or one calling back into this Account
+	 * holds up no other posting; under the lock each posting is made only
+	 * if the balance is still the one the rule saw, and the accounts whose
+	 * balance moved meanwhile are run through the rule again.
+	 */
+	void applyRule(List<String> accountnos, AccountBatchProcessor.Rule rule, long timestamp, AccountBatchProcessor.Tally tally) {
+		int size = accountnos.size();
+		AccountState[] states = new AccountState[size];
+		long[] order = new long[size];
+		int valid = 0;
+		for (int i = 0; i < size; i++) {
+			states[i] = findAccountState(accountnos.get(i));
+			if (states[i] != null) {
+				order[valid++] = ((long) states[i].lockOrder << 32) | i;
+			}
+		}
+		Arrays.sort(order, 0, valid);
+		BigDecimal[] seen = new BigDecimal[size];
+		double[] amts = new double[size];
+		long seq = 0;
+		int k = 0;
+		while (k < valid) {
+			AccountState owner = states[(int) order[k]];
+			Lock l = owner.lock;
+			int end = k + 1;
+			while (end < valid && states[(int) order[end]].lock == l) {
+				end++;
+			}
+			// order[k, pending) holds the accounts of this lock not posted yet
+			int pending = end;
+			while (k < pending) {
+				int n = k;
+				for (int j = k; j < pending; j++) {
+					int i = (int) order[j];
+					seen[i] = states[i].balance;
+					try {
+						amts[i] = rule.posting(states[i].accountno, seen[i].doubleValue());
+						if (!Double.isFinite(amts[i])) {
+							throw AccountException.INVALID_AMOUNT;
+						}
+						order[n++] = order[j];
+					} catch (AccountException e) {
+						tally.rejected(seen[i]);
+					}
+				}
+				pending = n;
+				n = k;
+				lock(l, owner.lockOrder);
+				try {
+					for (int j = k; j < pending; j++) {
+						int i = (int) order[j];
+						AccountState state = states[i];
+						if (state.balance != seen[i]) {
+							order[n++] = order[j];
+							continue;
+						}
+						try {
+							if (amts[i] > 0) {
+								seq = Math.max(seq, applyDeposit(state, amts[i], timestamp));
+							} else if (amts[i] < 0) {
+								seq = Math.max(seq, applyWithdraw(state, -amts[i], timestamp));
+							}
+							tally.processed(seen[i], state.balance, amts[i] != 0);
+						} catch (AccountException e) {
+							tally.rejected(seen[i]);
+						}
+					}
+				} finally {
+					l.unlock();
+				}
+				pending = n;
+			}
+			k = end;
+		}
+		awaitDurable(seq);
+	}
+	
+	/**
+	 * account no of the account opened for personalId, null if none
+	 */
+	String accountnoOf(String personalId) {
+		return personalIdAccountMap.get(personalId);
+	}
+	
+	/**
+	 * bank-wide totals and largest balances, null unless enabled with
+	 * {@link Builder#aggregates(int)}
+	 */
+	public AccountAggregates aggregates() {
+		return aggregates;
+	}
+
+	/**
+	 * every transaction posted from now on, see {@link TransactionFeed}
+	 */
+	public TransactionFeed changeFeed() {
+		return feed;
+	}
+
+	/**
+	 * state of accountno for {@link StatementExporter}
+	 * @throws AccountException Invalid Account if there is none
+	 */
+	AccountState stateOf(String accountno) {
+		return getAccountState(accountno);
+	}
+
+	/**
+	 * account numbers of all accounts open now
+	 */
+	List<String> accountnos() {
+		return new ArrayList<>(personalIdAccountMap.values());
+	}
+
+	/**
+	 * write and fsync everything journaled so far, if there is a journal
+	 */
+	void syncJournal() {
+		if (journal != null) {
+			try {
+				journal.sync();
+			} catch (IOException e) {
+				throw new AccountException("Journal Failure", e);
+			}
+		}
+	}
+	
+	private AccountState addAccount(String personalId, String accountno) {
+		AccountState state = newAccountState(accountno);
+		putAccountState(state);
+		personalIdAccountMap.put(personalId, accountno);
+		return state;
+	}
+	
+	private void restoreAccount(String personalId, String accountno, BigDecimal balance, long journalSeq, List<Transaction> history) {
+		AccountState state = newAccountState(accountno);
+		state.balance = balance;
+		state.journalSeq = journalSeq;
+		for (Transaction txn : history) {
+			state.history.add(txn);
+		}
+		if (aggregates != null) {
+			aggregates.loaded(state);
+		}
+		putAccountState(state);
+		personalIdAccountMap.put(personalId, accountno);
+		skipLoadedId(accountno);
+	}
+	
+	/**
+	 * keep the numeric strategy from issuing the id of an account loaded
+	 * from a checkpoint or journal
+	 */
+	private void skipLoadedId(String accountno) {
+		if (numericIds != null) {
+			numericIds.advancePast(NumericAccountIdStrategy.decode(accountno));
+		}
+	}
+	
+	private void awaitDurable(long seq) {
+		if (seq != 0) {
+			journal.awaitDurable(seq);
+		}
+	}
+	
+	/**
+	 * Replays journal records straight into the maps, before the journal is
+	 * opened for appending, so nothing is journaled twice. Records an
+	 * account already reflects (it was restored from a checkpoint taken
+	 * after them) are skipped.
+	 */
+	private class JournalReplayer implements AccountJournal.Handler {
+		@Override
+		public void onCreate(long seq, String personalId, String accountno) {
+			if (findAccountState(accountno) == null) {
+				addAccount(personalId, accountno).journalSeq = seq;
+				skipLoadedId(accountno);
+			}
+		}
+
+		@Override
+		public void onDeposit(long seq, String accountno, double amt, long timestamp) {
+			AccountState state = getAccountState(accountno);
+			if (state.journalSeq < seq) {
+				applyDeposit(state, amt, timestamp);
+				state.journalSeq = seq;
+			}
+		}
+
+		@Override
+		public void onWithdraw(long seq, String accountno, double amt, long timestamp) {
+			AccountState state = getAccountState(accountno);
+			if (state.journalSeq < seq) {
+				applyWithdraw(state, amt, timestamp);
+				state.journalSeq = seq;
+			}
+		}
+
+		/**
+		 * A checkpoint copies each account at its own moment, so it may
+		 * hold one leg of a transfer and not the other: each leg is decided
+		 * on its own account.
+		 */
+		@Override
+		public void onTransfer(long seq, String fromAccountno, String toAccountno, double amt, long timestamp) {
+			AccountState from = getAccountState(fromAccountno);
+			AccountState to = getAccountState(toAccountno);
+			boolean debit = from.journalSeq < seq;
+			boolean credit = to.journalSeq < seq;
+			if (debit && credit) {
+				applyTransfer(from, to, amt, timestamp);
+				from.journalSeq = seq;
+				to.journalSeq = seq;
+			} else if (debit) {
+				replayTransferLeg(from, false, amt, timestamp, seq);
+			} else if (credit) {
+				replayTransferLeg(to, true, amt, timestamp, seq);
+			}
+		}
+
+		/**
+		 * one leg of a transfer whose other leg the checkpoint already
+		 * holds: the money moves between accounts, so no deposit or
+		 * withdrawal is counted in the aggregates
+		 */
+		private void replayTransferLeg(AccountState state, boolean isDeposit, double amt, long timestamp, long seq) {
+			BigDecimal amtBD = BigDecimal.valueOf(amt);
+			state.balance = isDeposit ? state.balance.add(amtBD) : state.balance.subtract(amtBD);
+			state.history.append(state.accountno, isDeposit, amt, timestamp);
+			state.journalSeq = seq;
+			if (aggregates != null) {
+				aggregates.moved(state, aggregates.toUnits(state.balance));
+			}
 		}
 	}
 
 	@Override
 	public double enquirebalance(String accountno) {
-		validateAccount(accountno);
-		return accountBalance.get(accountno).doubleValue();
+		return getAccountState(accountno).balance.doubleValue();
 	}
 
 	@Override
 	public List<Transaction> listLastNTransactions(String accountno, int n) {
-		validateAccount(accountno);
+		AccountState state = getAccountState(accountno);
 		if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
 			throw new AccountException("No of Transactions Arg not permitted");
 		}
-		String accountnoIntern = accountno.intern();
-		List<Transaction> txns = accountTransactions.get(accountnoIntern);
-		List<Transaction> result = null;
-		Lock l = stripedLock.get(accountnoIntern);
-		l.lock();
-		try {
-			if (txns.size() > n) {
-				result = txns.subList(txns.size() - n, txns.size());
-			} else {
-				result = txns;
+		return read(state, n).lastTransactions();
+	}
+	
+	/**
+	 * balance and last n transactions of the account as of one point in
+	 * time, read without blocking writers
+	 * @param accountno
+	 * @param n 1 to 10, as for listLastNTransactions
+	 */
+	public AccountView view(String accountno, int n) {
+		AccountState state = getAccountState(accountno);
+		if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
+			throw new AccountException("No of Transactions Arg not permitted");
+		}
+		return read(state, n);
+	}
+	
+	/**
+	 * Copies balance and history optimistically and keeps the copy if no
+	 * write to the account overlapped it. The history may be mid-update
+	 * while it is copied, which can make the copy fail as well as be
+	 * wrong; either way it is discarded. After a few attempts lost to
+	 * writers the lock is taken instead, so readers cannot starve.
+	 */
+	private AccountView read(AccountState state, int n) {
+		for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+			long version = state.startRead();
+			if ((version & 1) == 0) {
+				try {
+					BigDecimal balance = state.balance;
+					List<Transaction> txns = state.history.lastN(n);
+					if (state.validate(version)) {
+						return new AccountView(state.accountno, balance.doubleValue(), txns);
+					}
+				} catch (RuntimeException e) {
+					// torn read of a history being written to, retry
+				}
 			}
+			Thread.onSpinWait();
 		}
-		finally {
+		Lock l = state.lock;
+		lock(l, state.lockOrder);
+		try {
+			return new AccountView(state.accountno, state.balance.doubleValue(), state.history.lastN(n));
+		} finally {
 			l.unlock();
 		}
-		return result;
+	}
+	
+	@Override
+	public List<Transaction> transactionsAfter(String accountno, long afterSequence, int pageSize) {
+		AccountState state = getAccountState(accountno);
+		validatePageSize(pageSize);
+		Lock l = state.lock;
+		lock(l, state.lockOrder);
+		try {
+			return state.history.after(afterSequence, pageSize);
+		} finally {
+			l.unlock();
+		}
+	}
+	
+	@Override
+	public List<Transaction> transactionsBetween(String accountno, long fromTimestamp, long toTimestamp,
+			long afterSequence, int pageSize) {
+		AccountState state = getAccountState(accountno);
+		validatePageSize(pageSize);
+		if (fromTimestamp > toTimestamp) {
+			throw new AccountException("Invalid Time Range");
+		}
+		Lock l = state.lock;
+		lock(l, state.lockOrder);
+		try {
+			return state.history.between(fromTimestamp, toTimestamp, afterSequence, pageSize);
+		} finally {
+			l.unlock();
+		}
+	}
+	
+	private void validatePageSize(int pageSize) {
+		if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+			throw new AccountException("Page Size not permitted");
+		}
+	}
+	
+	/**
+	 * write a point-in-time snapshot of all accounts to target, see
+	 * {@link AccountCheckpoint}. Writers are only blocked while their own
+	 * account is copied, and createAccount only while the journal position
+	 * is captured. Load it with {@link Builder#checkpoint(Path)}
+	 * @param target
+	 */
+	public void checkpoint(Path target) throws IOException {
+		long journalOffset = 0;
+		long nextJournalSeq = 1;
+		if (journal != null) {
+			Lock barrier = checkpointBarrier.writeLock();
+			barrier.lock();
+			try {
+				journalOffset = journal.appendedOffset();
+				nextJournalSeq = journal.nextSeq();
+			} finally {
+				barrier.unlock();
+			}
+			journal.sync();
+		}
+		AccountCheckpoint.write(target, personalIdAccountMap, this::findAccountState, journalOffset, nextJournalSeq, CHECKPOINT_SEGMENTS);
+	}
+	
+	/**
+	 * flush and close the journal, if any
+	 */
+	@Override
+	public void close() throws IOException {
+		feed.close();
+		if (journal != null) {
+			journal.close();
+		}
 	}
 
 }
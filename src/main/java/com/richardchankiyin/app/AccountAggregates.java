@@ -0,0 +1,185 @@
+package com.richardchankiyin.app;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bank-wide figures of an {@link Account} kept up to date by every
+ * deposit, withdraw and transfer, so that they are read without scanning
+ * the accounts: total balance, deposits and withdrawals in O(1) and the k
+ * largest balances in O(k).
+ *
+ * Totals are LongAdders of minor units at a fixed scale. Each account
+ * counts for its exact BigDecimal balance rounded to the scale (HALF_UP),
+ * and a posting adds the change in that rounded balance, so rounding does
+ * not build up: the total balance is always the sum of the rounded
+ * balances and never negative. Balances are ranked in a skip list holding
+ * one entry per account with a positive rounded balance, which a posting
+ * replaces in O(log n).
+ *
+ * Queries are not a snapshot: each figure is exact for the postings that
+ * completed before the query, postings running meanwhile may or may not
+ * be included.
+ */
+public class AccountAggregates {
+
+	/**
+	 * an account and its balance, as ranked by {@link #topBalances(int)}
+	 */
+	public record RankedBalance(String accountno, double balance) {
+	}
+
+	private record Rank(long units, String accountno) {
+	}
+
+	private static final Comparator<Rank> LARGEST_FIRST =
+			Comparator.comparingLong(Rank::units).reversed().thenComparing(Rank::accountno);
+
+	private final FixedPoint fixedPoint;
+	private final LongAdder totalBalance = new LongAdder();
+	private final LongAdder totalDeposits = new LongAdder();
+	private final LongAdder totalWithdrawals = new LongAdder();
+	private final ConcurrentSkipListSet<Rank> ranking = new ConcurrentSkipListSet<>(LARGEST_FIRST);
+
+	/**
+	 * @param scale number of decimal places kept in the totals
+	 */
+	AccountAggregates(int scale) {
+		this.fixedPoint = new FixedPoint(scale);
+	}
+
+	public double totalBalance() {
+		return fixedPoint.toDouble(totalBalance.sum());
+	}
+
+	/**
+	 * sum of the deposits since the Account was built, each counted as the
+	 * change it made to the rounded balance, transfers not included.
+	 * Deposits replayed from the journal count, deposits folded into a
+	 * checkpoint do not
+	 */
+	public double totalDeposits() {
+		return fixedPoint.toDouble(totalDeposits.sum());
+	}
+
+	/**
+	 * sum of the withdrawals since the Account was built, counted as
+	 * {@link #totalDeposits()}
+	 */
+	public double totalWithdrawals() {
+		return fixedPoint.toDouble(totalWithdrawals.sum());
+	}
+
+	/**
+	 * up to k accounts with the largest balances, largest first. Accounts
+	 * with a zero balance are not ranked
+	 */
+	public List<RankedBalance> topBalances(int k) {
+		if (k <= 0) {
+			throw new AccountException("No of Accounts Arg not permitted");
+		}
+		List<RankedBalance> result = new ArrayList<>(Math.min(k, 1024));
+		Set<String> seen = new HashSet<>();
+		Iterator<Rank> it = ranking.iterator();
+		while (result.size() < k && it.hasNext()) {
+			Rank rank = it.next();
+			// an account being re-ranked can briefly have two entries, keep the higher
+			if (seen.add(rank.accountno())) {
+				result.add(new RankedBalance(rank.accountno(), fixedPoint.toDouble(rank.units())));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * balance rounded to minor units, converted before a posting is
+	 * applied so that a balance too large for the totals rejects it
+	 */
+	long toUnits(BigDecimal balance) {
+		try {
+			return balance.setScale(fixedPoint.scale(), RoundingMode.HALF_UP).unscaledValue().longValueExact();
+		} catch (ArithmeticException e) {
+			throw new AccountException("Amount Overflow");
+		}
+	}
+
+	/**
+	 * caller holds the lock of state
+	 * @param units new balance of state, from {@link #toUnits(BigDecimal)}
+	 */
+	void deposited(AccountState state, long units) {
+		long delta = units - state.aggregateUnits;
+		totalBalance.add(delta);
+		totalDeposits.add(delta);
+		rerank(state, units);
+	}
+
+	/**
+	 * caller holds the lock of state
+	 * @param units new balance of state, from {@link #toUnits(BigDecimal)}
+	 */
+	void withdrew(AccountState state, long units) {
+		long delta = state.aggregateUnits - units;
+		totalBalance.add(-delta);
+		totalWithdrawals.add(delta);
+		rerank(state, units);
+	}
+
+	/**
+	 * caller holds the locks of from and to. The rounded balances may not
+	 * move by the same amount, so the total balance can change by a unit
+	 * @param fromUnits new balance of from
+	 * @param toUnits new balance of to
+	 */
+	void transferred(AccountState from, long fromUnits, AccountState to, long toUnits) {
+		totalBalance.add(fromUnits - from.aggregateUnits + toUnits - to.aggregateUnits);
+		rerank(from, fromUnits);
+		rerank(to, toUnits);
+	}
+
+	/**
+	 * one leg of a transfer replayed on its own, the other leg having been
+	 * restored from a checkpoint. Caller has not published state yet
+	 * @param units new balance of state
+	 */
+	void moved(AccountState state, long units) {
+		totalBalance.add(units - state.aggregateUnits);
+		rerank(state, units);
+	}
+
+	/**
+	 * count an account restored from a checkpoint, whose balance was set
+	 * without a posting. Caller has not published state yet
+	 */
+	void loaded(AccountState state) {
+		long units = toUnits(state.balance);
+		totalBalance.add(units);
+		rerank(state, units);
+	}
+
+	/**
+	 * The new entry goes in before the old one comes out, so that a
+	 * concurrent topBalances never misses the account.
+	 */
+	private void rerank(AccountState state, long units) {
+		long old = state.aggregateUnits;
+		if (units == old) {
+			return;
+		}
+		if (units > 0) {
+			ranking.add(new Rank(units, state.accountno));
+		}
+		if (old > 0) {
+			ranking.remove(new Rank(old, state.accountno));
+		}
+		state.aggregateUnits = units;
+	}
+}
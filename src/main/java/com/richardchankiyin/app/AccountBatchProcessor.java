@@ -0,0 +1,157 @@
+package com.richardchankiyin.app;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Runs an end-of-day job, e.g. interest accrual or a fee, over every
+ * account of an {@link Account} while postings keep coming in: a
+ * {@link Rule} says what to post to each account given its balance, and
+ * the posting is made as a normal deposit or withdraw, so it is recorded
+ * as a Transaction, journaled and published like any other.
+ *
+ * The accounts are cut into chunks run in parallel on a fork-join pool.
+ * Within a chunk the accounts are grouped by lock and each lock is taken
+ * once for its accounts, so a live posting waits for at most one group.
+ * The Rule is run outside the locks, so it may be slow or read from the
+ * Account; a posting is made only if the account's balance under its lock
+ * is still the one given to the Rule, else the Rule is run again with the
+ * new balance. Hence totalAfter is always totalBefore plus the net of the
+ * postings, whatever else is posted meanwhile. Neither is the bank's total
+ * at any one moment: each adds up balances as each account was processed,
+ * while live postings move money between accounts done and not yet done;
+ * see {@link Account#checkpoint} for a snapshot. Accounts opened after the
+ * run starts are left out.
+ *
+ * A posting rejected, e.g. a fee larger than the balance, is counted and
+ * the run goes on. A Rule throwing anything but an AccountException stops
+ * the run; postings already made stay.
+ */
+public class AccountBatchProcessor {
+
+	private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	/**
+	 * What to post to an account at the end of the day
+	 */
+	@FunctionalInterface
+	public interface Rule {
+		/**
+		 * @param balance balance of accountno; the posting is made only if
+		 * it is still the balance then, else the rule is asked again
+		 * @return amount to deposit if positive, to withdraw if negative,
+		 * 0 for no posting
+		 */
+		double posting(String accountno, double balance);
+	}
+
+	/**
+	 * @param accounts accounts the rule was run on
+	 * @param postings postings made
+	 * @param rejected postings rejected
+	 * @param totalBefore sum of the balances just before each account was
+	 * processed, not a total of the bank at any one moment
+	 * @param totalAfter sum of the balances just after each account was processed
+	 */
+	public record Result(long accounts, long postings, long rejected, BigDecimal totalBefore, BigDecimal totalAfter,
+			long elapsedNanos) {
+
+		/**
+		 * net amount posted, deposits less withdrawals
+		 */
+		public BigDecimal net() {
+			return totalAfter.subtract(totalBefore);
+		}
+
+		public double accountsPerSecond() {
+			return elapsedNanos == 0 ? 0 : accounts * 1_000_000_000d / elapsedNanos;
+		}
+	}
+
+	/**
+	 * Counts of one chunk, filled in by {@link Account} under the locks
+	 * and summed up once the chunks are done.
+	 */
+	static final class Tally {
+		long accounts = 0;
+		long postings = 0;
+		long rejected = 0;
+		BigDecimal before = BigDecimal.ZERO;
+		BigDecimal after = BigDecimal.ZERO;
+
+		void processed(BigDecimal before, BigDecimal after, boolean posted) {
+			accounts++;
+			if (posted) {
+				postings++;
+			}
+			this.before = this.before.add(before);
+			this.after = this.after.add(after);
+		}
+
+		void rejected(BigDecimal balance) {
+			rejected++;
+			processed(balance, balance, false);
+		}
+	}
+
+	private final Account account;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	public AccountBatchProcessor(Account account) {
+		this(account, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param pool pool to run the chunks on
+	 * @param chunkSize accounts per parallel task
+	 */
+	public AccountBatchProcessor(Account account, ForkJoinPool pool, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+		this.account = account;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * run rule over every account open now, stamping the postings with
+	 * the time the run started
+	 */
+	public Result run(Rule rule) {
+		long start = System.nanoTime();
+		long timestamp = System.currentTimeMillis();
+		List<String> accountnos = account.accountnos();
+		int size = accountnos.size();
+		int chunks = (int) ((size + (long) chunkSize - 1) / chunkSize);
+		Tally[] tallies = new Tally[chunks];
+		try {
+			pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(i -> {
+				Tally tally = new Tally();
+				account.applyRule(accountnos.subList(i * chunkSize, (int) Math.min(size, (i + 1L) * chunkSize)), rule, timestamp, tally);
+				tallies[i] = tally;
+			})).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AccountException("Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new AccountException("Batch Failure", e.getCause());
+		}
+		Tally total = new Tally();
+		for (Tally tally : tallies) {
+			total.accounts += tally.accounts;
+			total.postings += tally.postings;
+			total.rejected += tally.rejected;
+			total.before = total.before.add(tally.before);
+			total.after = total.after.add(tally.after);
+		}
+		return new Result(total.accounts, total.postings, total.rejected, total.before, total.after, System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,197 @@
+package com.richardchankiyin.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Opens accounts in bulk from a CSV file of personalId,openingBalance
+ * lines (no header, UTF-8, LF or CRLF line endings).
+ *
+ * The file is cut into chunks at line boundaries; the chunks are
+ * memory-mapped and parsed in parallel on a fork-join pool, each line
+ * going straight into {@link Account} with one lock and no wait for the
+ * journal. The journal, if any, is synced once at the end. Heap use does
+ * not depend on the size of the file. Build the Account with
+ * {@link Account.Builder#expectedAccounts(int)} and, to avoid the UUID
+ * generator, a {@link NumericAccountIdStrategy}.
+ *
+ * Lines with a personal id that already has an account (in the Account or
+ * from another line of the file) are counted as duplicates, lines that
+ * cannot be parsed, have a negative balance or are refused by the Account
+ * as rejected; neither stops the load. As chunks load in parallel, which of two lines with the same
+ * personal id opens the account is not defined.
+ */
+public class AccountBulkLoader {
+
+	private static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+	private static final int SCAN_BUFFER_SIZE = 4096;
+
+	/**
+	 * @param rows non-empty lines read
+	 * @param loaded accounts opened
+	 * @param duplicates lines whose personal id already had an account
+	 * @param rejected lines that could not be parsed or had a negative
+	 * balance, or that the Account refused, e.g. for Amount Overflow
+	 */
+	public record Result(long rows, long loaded, long duplicates, long rejected, long elapsedNanos) {
+
+		public double rowsPerSecond() {
+			return elapsedNanos == 0 ? 0 : rows * 1_000_000_000d / elapsedNanos;
+		}
+	}
+
+	private final Account account;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	public AccountBulkLoader(Account account) {
+		this(account, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param pool pool to parse and load on
+	 * @param chunkSize bytes of file per parallel task, lines longer than
+	 * this still go whole into one task
+	 */
+	public AccountBulkLoader(Account account, ForkJoinPool pool, int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+		this.account = account;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	public Result load(Path csv) throws IOException {
+		long start = System.nanoTime();
+		LongAdder rows = new LongAdder();
+		LongAdder loaded = new LongAdder();
+		LongAdder duplicates = new LongAdder();
+		LongAdder rejected = new LongAdder();
+		try (FileChannel ch = FileChannel.open(csv, StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(ch);
+			try {
+				pool.submit(() -> IntStream.range(0, bounds.length - 1).parallel().forEach(i -> {
+					try {
+						MappedByteBuffer chunk = ch.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+						loadChunk(chunk, rows, loaded, duplicates, rejected);
+					} catch (IOException e) {
+						throw new AccountException("Bulk Load Failure", e);
+					}
+				})).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AccountException("Interrupted", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw new AccountException("Bulk Load Failure", e.getCause());
+			}
+		}
+		account.syncJournal();
+		return new Result(rows.sum(), loaded.sum(), duplicates.sum(), rejected.sum(), System.nanoTime() - start);
+	}
+
+	/**
+	 * offsets at which the chunks start, each just after a newline, plus
+	 * the file size
+	 */
+	private long[] chunkBounds(FileChannel ch) throws IOException {
+		long size = ch.size();
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(0L);
+		ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long offset = 0;
+		while (size - offset > chunkSize) {
+			long position = offset + chunkSize;
+			long lineEnd = -1;
+			while (lineEnd < 0 && position < size) {
+				scan.clear();
+				int read = ch.read(scan, position);
+				for (int i = 0; i < read; i++) {
+					if (scan.get(i) == '\n') {
+						lineEnd = position + i + 1;
+						break;
+					}
+				}
+				position += read;
+			}
+			if (lineEnd < 0 || lineEnd == size) {
+				break;
+			}
+			bounds.add(lineEnd);
+			offset = lineEnd;
+		}
+		bounds.add(size);
+		return bounds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private void loadChunk(ByteBuffer chunk, LongAdder rows, LongAdder loaded, LongAdder duplicates, LongAdder rejected) {
+		int limit = chunk.limit();
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = lineStart;
+			while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int contentEnd = lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+			if (contentEnd > lineStart) {
+				rows.increment();
+				loadLine(chunk, lineStart, contentEnd, loaded, duplicates, rejected);
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private void loadLine(ByteBuffer chunk, int start, int end, LongAdder loaded, LongAdder duplicates, LongAdder rejected) {
+		int comma = start;
+		while (comma < end && chunk.get(comma) != ',') {
+			comma++;
+		}
+		if (comma == start || comma == end) {
+			rejected.increment();
+			return;
+		}
+		double openingBalance;
+		try {
+			openingBalance = Double.parseDouble(ascii(chunk, comma + 1, end));
+		} catch (NumberFormatException e) {
+			rejected.increment();
+			return;
+		}
+		if (!(openingBalance >= 0) || Double.isInfinite(openingBalance)) {
+			rejected.increment();
+			return;
+		}
+		byte[] personalId = new byte[comma - start];
+		chunk.get(start, personalId);
+		try {
+			account.importAccount(new String(personalId, StandardCharsets.UTF_8), openingBalance);
+			loaded.increment();
+		} catch (AccountException e) {
+			if ("Personal Id duplicated".equals(e.getMessage())) {
+				duplicates.increment();
+			} else {
+				rejected.increment();
+			}
+		}
+	}
+
+	private static String ascii(ByteBuffer chunk, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		chunk.get(start, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,262 @@
+package com.richardchankiyin.app;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Point-in-time snapshot of the accounts of an {@link Account}, so startup
+ * only has to replay the journal written after the snapshot began.
+ *
+ * File layout: header (magic, version, journal offset, next journal
+ * sequence, account count, segment count), a table of (offset, length,
+ * account count) per segment, then the segments. Accounts are spread over
+ * the segments by account number so that they can be loaded in parallel,
+ * each from its own memory-mapped region. An account record is the
+ * personal id, account no, balance (scale and unscaled bytes), the
+ * sequence of the last journal record applied and the retained history,
+ * each transaction as deposit flag, amount, sequence and timestamp.
+ */
+class AccountCheckpoint {
+
+	private static final int MAGIC = 0x41434b50;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4;
+	private static final int SEGMENT_ENTRY_SIZE = 8 + 8 + 4;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Receives the accounts of a checkpoint, called from several threads at once
+	 */
+	interface Sink {
+		void accept(String personalId, String accountno, BigDecimal balance, long journalSeq, List<Transaction> history);
+	}
+
+	/**
+	 * What the header of a loaded checkpoint says
+	 */
+	record Header(long journalOffset, long nextJournalSeq, long accountCount) {
+	}
+
+	private AccountCheckpoint() {
+	}
+
+	/**
+	 * write a checkpoint of accounts to target, replacing it atomically.
+	 * Each account is copied under its own lock, so writers are only held
+	 * up for the time it takes to copy one account. Accounts are thus
+	 * copied at different moments, and a transfer may be in the copy of
+	 * one of its accounts only; replay goes by each account's journalSeq
+	 * @param target
+	 * @param personalIdAccountMap
+	 * @param accounts state of an account no, null if there is none
+	 * @param journalOffset journal offset from which replay must start
+	 * @param nextJournalSeq next journal sequence number when the checkpoint began
+	 * @param segments number of segments to spread accounts over
+	 */
+	static void write(Path target, Map<String,String> personalIdAccountMap, Function<String,AccountState> accounts,
+			long journalOffset, long nextJournalSeq, int segments) throws IOException {
+		Path[] parts = new Path[segments];
+		FileChannel[] channels = new FileChannel[segments];
+		ByteBuffer[] buffers = new ByteBuffer[segments];
+		long[] counts = new long[segments];
+		Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			for (int i = 0; i < segments; i++) {
+				parts[i] = target.resolveSibling(target.getFileName() + ".seg" + i);
+				channels[i] = FileChannel.open(parts[i], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+				buffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			}
+			long total = 0;
+			for (Map.Entry<String,String> entry : personalIdAccountMap.entrySet()) {
+				AccountState state = accounts.apply(entry.getValue());
+				if (state == null) {
+					continue;
+				}
+				byte[] record = encode(entry.getKey(), state);
+				int segment = Math.floorMod(state.accountno.hashCode(), segments);
+				ByteBuffer buf = buffers[segment];
+				if (buf.remaining() < 4 + record.length) {
+					drain(channels[segment], buf);
+				}
+				if (buf.remaining() < 4 + record.length) {
+					channels[segment].write(ByteBuffer.allocate(4).putInt(0, record.length));
+					channels[segment].write(ByteBuffer.wrap(record));
+				} else {
+					buf.putInt(record.length).put(record);
+				}
+				counts[segment]++;
+				total++;
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + segments * SEGMENT_ENTRY_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putLong(journalOffset).putLong(nextJournalSeq).putLong(total).putInt(segments);
+			long offset = header.capacity();
+			for (int i = 0; i < segments; i++) {
+				drain(channels[i], buffers[i]);
+				long length = channels[i].size();
+				if (length > Integer.MAX_VALUE) {
+					throw new IOException("Checkpoint segment too large, use more segments: " + length);
+				}
+				header.putLong(offset).putLong(length).putInt((int) counts[i]);
+				offset += length;
+			}
+			header.flip();
+			try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (header.hasRemaining()) {
+					out.write(header);
+				}
+				for (int i = 0; i < segments; i++) {
+					long length = channels[i].size();
+					long done = 0;
+					while (done < length) {
+						done += channels[i].transferTo(done, length - done, out);
+					}
+				}
+				out.force(true);
+			}
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			for (int i = 0; i < segments; i++) {
+				if (channels[i] != null) {
+					channels[i].close();
+				}
+				if (parts[i] != null) {
+					Files.deleteIfExists(parts[i]);
+				}
+			}
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * read only the header of the checkpoint at path
+	 */
+	static Header readHeader(Path path) throws IOException {
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining()) {
+				if (ch.read(header) < 0) {
+					throw new IOException("Truncated checkpoint header");
+				}
+			}
+			header.flip();
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not an account checkpoint: " + path);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version " + version);
+			}
+			return new Header(header.getLong(), header.getLong(), header.getLong());
+		}
+	}
+
+	/**
+	 * memory-map the checkpoint at path and feed every account to sink,
+	 * decoding the segments in parallel on the common fork-join pool
+	 */
+	static Header load(Path path, Sink sink) throws IOException {
+		Header header = readHeader(path);
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer table = ByteBuffer.allocate(4);
+			ch.read(table, HEADER_SIZE - 4);
+			int segments = table.flip().getInt();
+			table = ByteBuffer.allocate(segments * SEGMENT_ENTRY_SIZE);
+			while (table.hasRemaining()) {
+				if (ch.read(table, HEADER_SIZE + table.position()) < 0) {
+					throw new IOException("Truncated checkpoint segment table");
+				}
+			}
+			table.flip();
+			List<MappedByteBuffer> regions = new ArrayList<>(segments);
+			int[] counts = new int[segments];
+			for (int i = 0; i < segments; i++) {
+				long offset = table.getLong();
+				long length = table.getLong();
+				counts[i] = table.getInt();
+				regions.add(ch.map(FileChannel.MapMode.READ_ONLY, offset, length));
+			}
+			IntStream.range(0, segments).parallel().forEach(i -> {
+				ByteBuffer region = regions.get(i);
+				for (int n = 0; n < counts[i]; n++) {
+					region.getInt();
+					decode(region, sink);
+				}
+			});
+		}
+		return header;
+	}
+
+	private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+	private static byte[] encode(String personalId, AccountState state) {
+		BigDecimal balance;
+		long journalSeq;
+		List<Transaction> history;
+		state.lock.lock();
+		try {
+			balance = state.balance;
+			journalSeq = state.journalSeq;
+			history = state.history.lastN(state.history.size());
+		} finally {
+			state.lock.unlock();
+		}
+		byte[] pid = personalId.getBytes(StandardCharsets.UTF_8);
+		byte[] acc = state.accountno.getBytes(StandardCharsets.UTF_8);
+		byte[] unscaled = balance.unscaledValue().toByteArray();
+		ByteBuffer buf = ByteBuffer.allocate(4 + pid.length + 4 + acc.length + 4 + 4 + unscaled.length + 8 + 4
+				+ history.size() * (1 + 8 + 8 + 8));
+		buf.putInt(pid.length).put(pid);
+		buf.putInt(acc.length).put(acc);
+		buf.putInt(balance.scale()).putInt(unscaled.length).put(unscaled);
+		buf.putLong(journalSeq);
+		buf.putInt(history.size());
+		for (Transaction txn : history) {
+			buf.put((byte) (txn.isDeposit() ? 1 : 0)).putDouble(txn.amount()).putLong(txn.sequence()).putLong(txn.timestamp());
+		}
+		return buf.array();
+	}
+
+	private static void decode(ByteBuffer buf, Sink sink) {
+		String personalId = getString(buf);
+		String accountno = getString(buf);
+		int scale = buf.getInt();
+		byte[] unscaled = new byte[buf.getInt()];
+		buf.get(unscaled);
+		long journalSeq = buf.getLong();
+		int historySize = buf.getInt();
+		List<Transaction> history = new ArrayList<>(historySize);
+		for (int i = 0; i < historySize; i++) {
+			boolean isDeposit = buf.get() == 1;
+			history.add(new Transaction(accountno, isDeposit, buf.getDouble(), buf.getLong(), buf.getLong()));
+		}
+		sink.accept(personalId, accountno, new BigDecimal(new BigInteger(unscaled), scale), journalSeq, history);
+	}
+
+	private static String getString(ByteBuffer buf) {
+		byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
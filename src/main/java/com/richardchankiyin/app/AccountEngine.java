@@ -0,0 +1,46 @@
+package com.richardchankiyin.app;
+
+/**
+ * The IAccount implementations available, so that callers (and the
+ * benchmarks) can pick one at construction time.
+ */
+public enum AccountEngine {
+
+	/** BigDecimal balances guarded by striped locks, see {@link Account} */
+	LOCKED {
+		@Override
+		public IAccount create() {
+			return new Account();
+		}
+	},
+	/** long minor-unit balances guarded by striped locks, see {@link FixedPointAccount} */
+	FIXED_POINT {
+		@Override
+		public IAccount create() {
+			return new FixedPointAccount();
+		}
+	},
+	/** long minor-unit balances updated with compare-and-set, see {@link LockFreeAccount} */
+	LOCK_FREE {
+		@Override
+		public IAccount create() {
+			return new LockFreeAccount();
+		}
+	},
+	/** long minor-unit balances and history in off-heap slabs, see {@link OffHeapAccount} */
+	OFF_HEAP {
+		@Override
+		public IAccount create() {
+			return new OffHeapAccount();
+		}
+	},
+	/** recently used accounts on the heap, the rest paged out to a temporary file, see {@link TieredAccount} */
+	TIERED {
+		@Override
+		public IAccount create() {
+			return new TieredAccount();
+		}
+	};
+
+	public abstract IAccount create();
+}
@@ -4,11 +4,45 @@ public class AccountException extends RuntimeException {
 
 	private static final long serialVersionUID = 5631622998266036368L;
 
+	/*
+	 * Shared instances for the rejections callers are expected to retry or
+	 * handle, thrown instead of a new exception each time. They carry no
+	 * stack trace and cannot take a cause or suppressed exceptions, so
+	 * throwing one allocates nothing and no thread can alter it.
+	 */
+	public static final AccountException INVALID_ACCOUNT = new AccountException("Invalid Account", false);
+	public static final AccountException INVALID_AMOUNT = new AccountException("Invalid Amount", false);
+	public static final AccountException INSUFFICIENT_BALANCE = new AccountException("Insufficient Balance", false);
+	public static final AccountException TRANSFER_TO_SAME_ACCOUNT = new AccountException("Transfer to Same Account", false);
+
 	public AccountException(String msg) {
 		super(msg);
 	}
-	
+
 	public AccountException(String msg, Throwable cause) {
 		super(msg, cause);
 	}
+
+	/**
+	 * @param writableStackTrace false for an exception without stack trace
+	 * or suppressed exceptions, meant to be created once and shared
+	 */
+	protected AccountException(String msg, boolean writableStackTrace) {
+		super(msg, null, writableStackTrace, writableStackTrace);
+	}
+
+	/**
+	 * the shared exception for a rejection status of {@link ITryAccount},
+	 * null for {@link ITryAccount#OK}
+	 */
+	public static AccountException forStatus(int status) {
+		return switch (status) {
+		case ITryAccount.OK -> null;
+		case ITryAccount.INVALID_ACCOUNT -> INVALID_ACCOUNT;
+		case ITryAccount.INVALID_AMOUNT -> INVALID_AMOUNT;
+		case ITryAccount.INSUFFICIENT_BALANCE -> INSUFFICIENT_BALANCE;
+		case ITryAccount.TRANSFER_TO_SAME_ACCOUNT -> TRANSFER_TO_SAME_ACCOUNT;
+		default -> throw new IllegalArgumentException("Unknown status: " + status);
+		};
+	}
 }
@@ -0,0 +1,31 @@
+package com.richardchankiyin.app;
+
+import java.util.UUID;
+
+/**
+ * How {@link Account} numbers new accounts, see
+ * {@link Account.Builder#accountIdStrategy(AccountIdStrategy)}.
+ */
+public interface AccountIdStrategy {
+
+	/**
+	 * account no for a new account, never returned before
+	 */
+	public String nextAccountno();
+
+	/**
+	 * random UUIDs, the default. Every call goes through the shared
+	 * SecureRandom, which serialises concurrent account creation
+	 */
+	public static AccountIdStrategy uuid() {
+		return () -> UUID.randomUUID().toString();
+	}
+
+	/**
+	 * compact numeric ids handed out from striped ranges,
+	 * see {@link NumericAccountIdStrategy}
+	 */
+	public static NumericAccountIdStrategy numeric() {
+		return new NumericAccountIdStrategy();
+	}
+}
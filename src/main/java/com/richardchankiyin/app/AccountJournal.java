@@ -0,0 +1,470 @@
+package com.richardchankiyin.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of account operations with group commit.
+ *
+ * Callers append records into an in-memory buffer; a single flusher thread
+ * swaps it with a spare buffer, writes it to the file and, depending on the
+ * {@link DurabilityMode}, fsyncs it. Everything appended before a flush is
+ * covered by that one write and fsync.
+ *
+ * Record layout: int bodyLength, int crc32c(body), body. Body starts with
+ * byte type and long sequence, followed by the fields of the operation.
+ * Strings are a short length and UTF-8 bytes, amounts are doubles;
+ * postings and transfers end with the long epoch-millis timestamp they
+ * were applied at, so that replay reproduces the transaction history.
+ * Replay stops at the first torn or corrupt record and truncates the file
+ * there, which is where a crash during a write leaves it.
+ */
+public class AccountJournal implements Closeable {
+
+	static final byte CREATE = 1;
+	static final byte DEPOSIT = 2;
+	static final byte WITHDRAW = 3;
+	static final byte TRANSFER = 4;
+
+	private static final int HEADER_SIZE = 8;
+	private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Receives the records of a journal in the order they were appended
+	 */
+	public interface Handler {
+		void onCreate(long seq, String personalId, String accountno);
+
+		void onDeposit(long seq, String accountno, double amt, long timestamp);
+
+		void onWithdraw(long seq, String accountno, double amt, long timestamp);
+
+		void onTransfer(long seq, String fromAccountno, String toAccountno, double amt, long timestamp);
+	}
+
+	private final FileChannel channel;
+	private final DurabilityMode mode;
+	private final long flushIntervalNanos;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition flushRequested = lock.newCondition();
+	private final Condition flushed = lock.newCondition();
+	private final Thread flusher;
+	private final CRC32C crc = new CRC32C();
+
+	private ByteBuffer active;
+	private ByteBuffer spare;
+	private long nextSeq;
+	private long appendedOffset;
+	private long durableSeq;
+	private int recordStart = 0;
+	private boolean flushWanted = false;
+	private boolean closed = false;
+	private IOException failure = null;
+
+	/**
+	 * open the journal for appending, positioned after the last good record.
+	 * Records already in the file should have been replayed first
+	 * @param path
+	 * @param mode
+	 * @param flushIntervalMillis how often the flusher runs when nobody waits for it
+	 * @param nextSeq sequence number given to the next record, at least 1
+	 */
+	public AccountJournal(Path path, DurabilityMode mode, long flushIntervalMillis, long nextSeq) throws IOException {
+		if (flushIntervalMillis <= 0) {
+			throw new IllegalArgumentException("Flush interval must be positive: " + flushIntervalMillis);
+		}
+		if (nextSeq <= 0) {
+			throw new IllegalArgumentException("Next sequence must be positive: " + nextSeq);
+		}
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.channel.position(channel.size());
+		this.mode = mode;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		this.nextSeq = nextSeq;
+		this.active = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+		this.spare = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+		this.appendedOffset = channel.size();
+		this.durableSeq = nextSeq - 1;
+		this.flusher = new Thread(this::flushLoop, "account-journal-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	public DurabilityMode mode() {
+		return mode;
+	}
+
+	/**
+	 * sequence number of the next record, one more than the last appended
+	 */
+	public long nextSeq() {
+		lock.lock();
+		try {
+			return nextSeq;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * file offset after the last appended record, a record boundary
+	 * that replay can start from
+	 */
+	public long appendedOffset() {
+		lock.lock();
+		try {
+			return appendedOffset;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return sequence number of the record, to pass to {@link #awaitDurable(long)}
+	 */
+	public long appendCreate(String personalId, String accountno) {
+		byte[] pid = encode(personalId);
+		byte[] acc = encode(accountno);
+		lock.lock();
+		try {
+			ByteBuffer buf = reserve(1 + 8 + 2 + pid.length + 2 + acc.length);
+			buf.put(CREATE).putLong(nextSeq++);
+			putString(buf, pid);
+			putString(buf, acc);
+			return commit(buf);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return sequence number of the record, to pass to {@link #awaitDurable(long)}
+	 */
+	public long appendPosting(boolean isDeposit, String accountno, double amt, long timestamp) {
+		byte[] acc = encode(accountno);
+		lock.lock();
+		try {
+			ByteBuffer buf = reserve(1 + 8 + 2 + acc.length + 8 + 8);
+			buf.put(isDeposit ? DEPOSIT : WITHDRAW).putLong(nextSeq++);
+			putString(buf, acc);
+			buf.putDouble(amt).putLong(timestamp);
+			return commit(buf);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return sequence number of the record, to pass to {@link #awaitDurable(long)}
+	 */
+	public long appendTransfer(String fromAccountno, String toAccountno, double amt, long timestamp) {
+		byte[] from = encode(fromAccountno);
+		byte[] to = encode(toAccountno);
+		lock.lock();
+		try {
+			ByteBuffer buf = reserve(1 + 8 + 2 + from.length + 2 + to.length + 8 + 8);
+			buf.put(TRANSFER).putLong(nextSeq++);
+			putString(buf, from);
+			putString(buf, to);
+			buf.putDouble(amt).putLong(timestamp);
+			return commit(buf);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * in PER_OP mode, wait until the record with sequence number seq
+	 * is fsync'ed. Does nothing in the other modes
+	 * @param seq
+	 */
+	public void awaitDurable(long seq) {
+		if (mode != DurabilityMode.PER_OP) {
+			return;
+		}
+		lock.lock();
+		try {
+			while (durableSeq < seq) {
+				checkUsable();
+				flushWanted = true;
+				flushRequested.signal();
+				flushed.awaitUninterruptibly();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * write and fsync everything appended so far, whatever the mode
+	 */
+	public void sync() throws IOException {
+		lock.lock();
+		try {
+			long seq = nextSeq - 1;
+			while (durableSeq < seq && failure == null) {
+				flushWanted = true;
+				flushRequested.signal();
+				flushed.awaitUninterruptibly();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			lock.unlock();
+		}
+		channel.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		sync();
+		lock.lock();
+		try {
+			closed = true;
+			flushRequested.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+	}
+
+	/**
+	 * read every good record of the journal at path in order, truncating a
+	 * torn or corrupt tail. A missing file is an empty journal
+	 * @param path
+	 * @param handler
+	 * @return sequence number following the last record read, 1 if none
+	 */
+	public static long replay(Path path, Handler handler) throws IOException {
+		return replay(path, 0, handler);
+	}
+
+	/**
+	 * like {@link #replay(Path, Handler)} but starting at a file offset
+	 * previously returned by {@link #appendedOffset()}
+	 */
+	public static long replay(Path path, long fromOffset, Handler handler) throws IOException {
+		if (!path.toFile().exists()) {
+			return 1;
+		}
+		long nextSeq = 1;
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long size = ch.size();
+			long offset = fromOffset;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			ByteBuffer body = ByteBuffer.allocate(1024);
+			CRC32C checksum = new CRC32C();
+			while (offset + HEADER_SIZE <= size) {
+				header.clear();
+				readFully(ch, header, offset);
+				header.flip();
+				int length = header.getInt();
+				int expectedCrc = header.getInt();
+				if (length <= 0 || offset + HEADER_SIZE + length > size) {
+					break;
+				}
+				if (body.capacity() < length) {
+					body = ByteBuffer.allocate(length);
+				}
+				body.clear().limit(length);
+				readFully(ch, body, offset + HEADER_SIZE);
+				body.flip();
+				checksum.reset();
+				checksum.update(body.duplicate());
+				if ((int) checksum.getValue() != expectedCrc) {
+					break;
+				}
+				nextSeq = dispatch(body, handler) + 1;
+				offset += HEADER_SIZE + length;
+			}
+			if (offset < size) {
+				ch.truncate(offset);
+			}
+		}
+		return nextSeq;
+	}
+
+	private static long dispatch(ByteBuffer body, Handler handler) {
+		byte type = body.get();
+		long seq = body.getLong();
+		switch (type) {
+		case CREATE:
+			String personalId = getString(body);
+			handler.onCreate(seq, personalId, getString(body));
+			break;
+		case DEPOSIT:
+			String depositAccountno = getString(body);
+			handler.onDeposit(seq, depositAccountno, body.getDouble(), body.getLong());
+			break;
+		case WITHDRAW:
+			String withdrawAccountno = getString(body);
+			handler.onWithdraw(seq, withdrawAccountno, body.getDouble(), body.getLong());
+			break;
+		case TRANSFER:
+			String from = getString(body);
+			String to = getString(body);
+			handler.onTransfer(seq, from, to, body.getDouble(), body.getLong());
+			break;
+		default:
+			throw new IllegalStateException("Unknown journal record type " + type);
+		}
+		return seq;
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			if (ch.read(buf, position + buf.position()) < 0) {
+				throw new IOException("Unexpected end of journal");
+			}
+		}
+	}
+
+	private static byte[] encode(String s) {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_STRING_BYTES) {
+			throw new IllegalArgumentException("Value too long for journal: " + bytes.length + " bytes");
+		}
+		return bytes;
+	}
+
+	private static void putString(ByteBuffer buf, byte[] bytes) {
+		buf.putShort((short) bytes.length);
+		buf.put(bytes);
+	}
+
+	private static String getString(ByteBuffer buf) {
+		int length = buf.getShort();
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * make room for a record with the given body size and position the
+	 * active buffer at its body. Caller holds lock
+	 */
+	private ByteBuffer reserve(int bodySize) {
+		checkUsable();
+		while (active.remaining() < HEADER_SIZE + bodySize) {
+			if (active.capacity() < HEADER_SIZE + bodySize) {
+				throw new IllegalArgumentException("Journal record too large: " + bodySize);
+			}
+			flushWanted = true;
+			flushRequested.signal();
+			flushed.awaitUninterruptibly();
+			checkUsable();
+		}
+		recordStart = active.position();
+		active.position(recordStart + HEADER_SIZE);
+		return active;
+	}
+
+	/**
+	 * fill in the header of the record just written into buf. Caller holds lock
+	 */
+	private long commit(ByteBuffer buf) {
+		int end = buf.position();
+		int bodyStart = recordStart + HEADER_SIZE;
+		ByteBuffer body = buf.duplicate();
+		body.position(bodyStart).limit(end);
+		crc.reset();
+		crc.update(body);
+		buf.putInt(bodyStart - HEADER_SIZE, end - bodyStart);
+		buf.putInt(bodyStart - HEADER_SIZE + 4, (int) crc.getValue());
+		appendedOffset += end - bodyStart + HEADER_SIZE;
+		return nextSeq - 1;
+	}
+
+	private void checkUsable() {
+		if (failure != null) {
+			throw new AccountException("Journal Failure", failure);
+		}
+		if (closed) {
+			throw new AccountException("Journal Closed");
+		}
+	}
+
+	private void flushLoop() {
+		while (true) {
+			ByteBuffer toWrite;
+			long target;
+			lock.lock();
+			try {
+				long waitNanos = flushIntervalNanos;
+				while (!flushWanted && !closed && waitNanos > 0) {
+					try {
+						waitNanos = flushRequested.awaitNanos(waitNanos);
+					} catch (InterruptedException e) {
+						waitNanos = 0;
+					}
+				}
+				flushWanted = false;
+				if (active.position() == 0) {
+					flushed.signalAll();
+					if (closed) {
+						return;
+					}
+					continue;
+				}
+				toWrite = active;
+				active = spare;
+				spare = toWrite;
+				target = nextSeq - 1;
+			} finally {
+				lock.unlock();
+			}
+			IOException error = null;
+			try {
+				toWrite.flip();
+				while (toWrite.hasRemaining()) {
+					channel.write(toWrite);
+				}
+				if (mode != DurabilityMode.ASYNC) {
+					channel.force(false);
+				}
+			} catch (IOException e) {
+				error = e;
+			} finally {
+				toWrite.clear();
+			}
+			lock.lock();
+			try {
+				if (error != null) {
+					failure = error;
+				} else {
+					durableSeq = target;
+				}
+				flushed.signalAll();
+				if (failure != null) {
+					return;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.richardchankiyin.app;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Operation latencies, rejections and lock contention of an account book.
+ * Latencies and rejections are fed by {@link InstrumentedAccount}, lock
+ * contention by an {@link Account} built with
+ * {@link Account.Builder#metrics(AccountMetrics)}; one instance can take both.
+ *
+ * Recording never allocates (apart from the first rejection with a new
+ * message) and is skipped entirely while disabled, which can be switched
+ * at runtime, including over JMX once {@link #register(String)} is called.
+ */
+public class AccountMetrics implements AccountMetricsMXBean {
+
+	public enum Operation {
+		CREATE_ACCOUNT, DEPOSIT, WITHDRAW, TRANSFER, ENQUIRE_BALANCE, LIST_LAST_N_TRANSACTIONS, APPLY_BATCH
+	}
+
+	private static final int DEFAULT_LOCK_SLOTS = 1024;
+	// counters of neighbouring locks sit a cache line apart
+	private static final int PAD = 8;
+
+	private volatile boolean enabled = true;
+	private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+	private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+	private final LongAdder lockWaitNanos = new LongAdder();
+	private final int lockSlots;
+	private final AtomicLongArray lockAcquisitions;
+	private final AtomicLongArray lockContentions;
+
+	public AccountMetrics() {
+		this(DEFAULT_LOCK_SLOTS);
+	}
+
+	/**
+	 * @param lockSlots number of lock counters, locks beyond it share
+	 * counters (lock order modulo lockSlots)
+	 */
+	public AccountMetrics(int lockSlots) {
+		if (lockSlots <= 0) {
+			throw new IllegalArgumentException("Lock slots must be positive: " + lockSlots);
+		}
+		this.lockSlots = lockSlots;
+		this.lockAcquisitions = new AtomicLongArray(lockSlots * PAD);
+		this.lockContentions = new AtomicLongArray(lockSlots * PAD);
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public LatencyHistogram latency(Operation operation) {
+		return latencies[operation.ordinal()];
+	}
+
+	void recordLatency(Operation operation, long nanos) {
+		latencies[operation.ordinal()].record(nanos);
+	}
+
+	void recordRejection(AccountException e) {
+		if (enabled) {
+			rejections.computeIfAbsent(String.valueOf(e.getMessage()), k -> new LongAdder()).increment();
+		}
+	}
+
+	/**
+	 * a lock was taken without waiting
+	 */
+	void recordLockAcquired(int lockOrder) {
+		lockAcquisitions.getAndIncrement(Math.floorMod(lockOrder, lockSlots) * PAD);
+	}
+
+	/**
+	 * a lock was taken after waiting waitNanos for another holder
+	 */
+	void recordLockWait(int lockOrder, long waitNanos) {
+		int slot = Math.floorMod(lockOrder, lockSlots) * PAD;
+		lockAcquisitions.getAndIncrement(slot);
+		lockContentions.getAndIncrement(slot);
+		lockWaitNanos.add(waitNanos);
+	}
+
+	public long rejections(String message) {
+		LongAdder count = rejections.get(message);
+		return count == null ? 0 : count.sum();
+	}
+
+	/**
+	 * register under com.richardchankiyin.app:type=AccountMetrics,name=name
+	 * with the platform MBean server
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = objectName(name);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	public void unregister(String name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+	}
+
+	private static ObjectName objectName(String name) throws JMException {
+		return new ObjectName("com.richardchankiyin.app:type=AccountMetrics,name=" + ObjectName.quote(name));
+	}
+
+	private Map<String, Long> byOperation(ToLongFunction<LatencyHistogram> value) {
+		Map<String, Long> result = new TreeMap<>();
+		for (Operation operation : Operation.values()) {
+			result.put(operation.name(), value.applyAsLong(latency(operation)));
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getOperationCounts() {
+		return byOperation(LatencyHistogram::count);
+	}
+
+	@Override
+	public Map<String, Long> getLatencyP50Nanos() {
+		return byOperation(h -> h.percentile(50));
+	}
+
+	@Override
+	public Map<String, Long> getLatencyP99Nanos() {
+		return byOperation(h -> h.percentile(99));
+	}
+
+	@Override
+	public Map<String, Long> getLatencyP999Nanos() {
+		return byOperation(h -> h.percentile(99.9));
+	}
+
+	@Override
+	public Map<String, Long> getLatencyMaxNanos() {
+		return byOperation(LatencyHistogram::max);
+	}
+
+	@Override
+	public Map<String, Long> getRejections() {
+		Map<String, Long> result = new TreeMap<>();
+		rejections.forEach((message, count) -> result.put(message, count.sum()));
+		return result;
+	}
+
+	@Override
+	public long getLockWaitNanos() {
+		return lockWaitNanos.sum();
+	}
+
+	@Override
+	public long[] getLockAcquisitions() {
+		return unpad(lockAcquisitions);
+	}
+
+	@Override
+	public long[] getLockContentions() {
+		return unpad(lockContentions);
+	}
+
+	private long[] unpad(AtomicLongArray counters) {
+		long[] result = new long[lockSlots];
+		for (int i = 0; i < lockSlots; i++) {
+			result[i] = counters.get(i * PAD);
+		}
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyHistogram latency : latencies) {
+			latency.reset();
+		}
+		rejections.clear();
+		lockWaitNanos.reset();
+		for (int i = 0; i < lockSlots * PAD; i += PAD) {
+			lockAcquisitions.set(i, 0);
+			lockContentions.set(i, 0);
+		}
+	}
+}
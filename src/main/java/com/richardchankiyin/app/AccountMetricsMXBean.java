@@ -0,0 +1,35 @@
+package com.richardchankiyin.app;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link AccountMetrics}. Latency maps are keyed by operation
+ * name and hold nanoseconds, lock arrays are indexed by lock order (the
+ * stripe index when accounts share stripes).
+ */
+public interface AccountMetricsMXBean {
+
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	public Map<String, Long> getOperationCounts();
+
+	public Map<String, Long> getLatencyP50Nanos();
+
+	public Map<String, Long> getLatencyP99Nanos();
+
+	public Map<String, Long> getLatencyP999Nanos();
+
+	public Map<String, Long> getLatencyMaxNanos();
+
+	public Map<String, Long> getRejections();
+
+	public long getLockWaitNanos();
+
+	public long[] getLockAcquisitions();
+
+	public long[] getLockContentions();
+
+	public void reset();
+}
@@ -0,0 +1,79 @@
+package com.richardchankiyin.app;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Everything Account keeps for one account number: balance, retained
+ * history and the lock guarding them, so that an operation needs a single
+ * map lookup. balance and history are only mutated while holding lock.
+ *
+ * Mutations are also bracketed by {@link #beginWrite()} and
+ * {@link #endWrite()}, which bump version to odd and back to even (a
+ * seqlock), so readers can copy balance and history without the lock and
+ * keep the copy only if version did not move meanwhile.
+ */
+class AccountState {
+
+	private static final VarHandle VERSION;
+	static {
+		try {
+			VERSION = MethodHandles.lookup().findVarHandle(AccountState.class, "version", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	final String accountno;
+	final Lock lock;
+	/** global position of lock, locks are always taken in ascending lockOrder */
+	final int lockOrder;
+	final TransactionStore history;
+	volatile BigDecimal balance = BigDecimal.ZERO;
+	/** sequence number of the last journal record applied, 0 if none */
+	long journalSeq = 0;
+	/** balance in minor units as last counted by {@link AccountAggregates}, if enabled */
+	long aggregateUnits = 0;
+	/** odd while a write is in progress */
+	private long version = 0;
+
+	AccountState(String accountno, Lock lock, int lockOrder, TransactionStore history) {
+		this.accountno = accountno;
+		this.lock = lock;
+		this.lockOrder = lockOrder;
+		this.history = history;
+	}
+
+	/**
+	 * caller holds lock
+	 */
+	void beginWrite() {
+		VERSION.setOpaque(this, version + 1);
+		VarHandle.storeStoreFence();
+	}
+
+	/**
+	 * caller holds lock
+	 */
+	void endWrite() {
+		VERSION.setRelease(this, version + 1);
+	}
+
+	/**
+	 * version to pass to {@link #validate(long)} after reading, odd if a
+	 * write is in progress and the read should not be attempted
+	 */
+	long startRead() {
+		return (long) VERSION.getAcquire(this);
+	}
+
+	/**
+	 * whether nothing was written since startRead returned version
+	 */
+	boolean validate(long version) {
+		VarHandle.loadLoadFence();
+		return (version & 1) == 0 && (long) VERSION.getOpaque(this) == version;
+	}
+}
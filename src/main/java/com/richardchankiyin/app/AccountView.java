@@ -0,0 +1,11 @@
+package com.richardchankiyin.app;
+
+import java.util.List;
+
+/**
+ * Balance and most recent transactions of an account, read together so
+ * that the balance is the one right after the last transaction listed.
+ */
+public record AccountView(String accountno, double balance, List<Transaction> lastTransactions) {
+
+}
@@ -0,0 +1,206 @@
+package com.richardchankiyin.app;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map from non-zero long keys to values, without boxing the
+ * keys. Keys are spread over segments, each an open-addressing table with
+ * linear probing guarded by a StampedLock: lookups run as optimistic reads
+ * and only take the read lock if a writer got in the way, writers lock
+ * their segment only.
+ */
+public class ConcurrentLongMap<V> {
+
+	private static final long EMPTY = 0;
+	private static final int SEGMENT_BITS = 6;
+	private static final int SEGMENTS = 1 << SEGMENT_BITS;
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	public ConcurrentLongMap() {
+		this(0);
+	}
+
+	/**
+	 * @param expectedSize number of keys to size the tables for
+	 */
+	public ConcurrentLongMap(int expectedSize) {
+		int wanted = Math.max(MIN_SEGMENT_CAPACITY, expectedSize / SEGMENTS * 2);
+		int capacity = Integer.highestOneBit(wanted - 1) << 1;
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(capacity);
+		}
+	}
+
+	private static long mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	private Segment segmentFor(long hash) {
+		return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		long hash = mix(key);
+		return (V) segmentFor(hash).get(key, (int) hash);
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * @return the previous value of key, null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		checkArguments(key, value);
+		long hash = mix(key);
+		return (V) segmentFor(hash).put(key, (int) hash, value, false);
+	}
+
+	/**
+	 * @return the current value of key if it has one, otherwise null after adding value
+	 */
+	@SuppressWarnings("unchecked")
+	public V putIfAbsent(long key, V value) {
+		checkArguments(key, value);
+		long hash = mix(key);
+		return (V) segmentFor(hash).put(key, (int) hash, value, true);
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	private static void checkArguments(long key, Object value) {
+		if (key == EMPTY) {
+			throw new IllegalArgumentException("Key must not be 0");
+		}
+		if (value == null) {
+			throw new NullPointerException("value");
+		}
+	}
+
+	/**
+	 * Keys and values replaced together on resize, so a reader always
+	 * probes a matching pair
+	 */
+	private static final class Table {
+		final long[] keys;
+		final Object[] values;
+
+		Table(int capacity) {
+			keys = new long[capacity];
+			values = new Object[capacity];
+		}
+	}
+
+	private static final class Segment {
+		private final StampedLock lock = new StampedLock();
+		private Table table;
+		private int size = 0;
+
+		Segment(int capacity) {
+			table = new Table(capacity);
+		}
+
+		Object get(long key, int hash) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0) {
+				Object value = find(table, key, hash);
+				if (lock.validate(stamp)) {
+					return value;
+				}
+			}
+			stamp = lock.readLock();
+			try {
+				return find(table, key, hash);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		/**
+		 * may see a table being written to, the caller validates the
+		 * result; probing is bounded so a torn view cannot loop forever
+		 */
+		private static Object find(Table t, long key, int hash) {
+			long[] keys = t.keys;
+			int mask = keys.length - 1;
+			int i = hash & mask;
+			for (int probes = 0; probes <= mask; probes++) {
+				long k = keys[i];
+				if (k == key) {
+					return t.values[i];
+				}
+				if (k == EMPTY) {
+					return null;
+				}
+				i = (i + 1) & mask;
+			}
+			return null;
+		}
+
+		Object put(long key, int hash, Object value, boolean onlyIfAbsent) {
+			long stamp = lock.writeLock();
+			try {
+				long[] keys = table.keys;
+				int mask = keys.length - 1;
+				int i = hash & mask;
+				while (keys[i] != EMPTY) {
+					if (keys[i] == key) {
+						Object previous = table.values[i];
+						if (!onlyIfAbsent) {
+							table.values[i] = value;
+						}
+						return previous;
+					}
+					i = (i + 1) & mask;
+				}
+				table.values[i] = value;
+				keys[i] = key;
+				if (++size * 2 > keys.length) {
+					resize();
+				}
+				return null;
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private void resize() {
+			Table old = table;
+			Table grown = new Table(old.keys.length * 2);
+			int mask = grown.keys.length - 1;
+			for (int j = 0; j < old.keys.length; j++) {
+				long key = old.keys[j];
+				if (key != EMPTY) {
+					int i = (int) mix(key) & mask;
+					while (grown.keys[i] != EMPTY) {
+						i = (i + 1) & mask;
+					}
+					grown.keys[i] = key;
+					grown.values[i] = old.values[j];
+				}
+			}
+			table = grown;
+		}
+
+		int size() {
+			long stamp = lock.readLock();
+			try {
+				return size;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.richardchankiyin.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free counterpart of {@link TransactionHistory}: a fixed-capacity
+ * ring buffer that many threads can append to without a lock.
+ *
+ * Every append claims a position with getAndIncrement and publishes a
+ * (position, transaction) entry into its slot; a slot never goes back to
+ * an older position, so a writer that was lapped simply gives up. Readers
+ * only return entries whose position matches the one they expect, which
+ * skips slots that are claimed but not yet written.
+ */
+public class ConcurrentTransactionHistory {
+
+	private static final class Entry {
+		private final long position;
+		private final Transaction txn;
+
+		private Entry(long position, Transaction txn) {
+			this.position = position;
+			this.txn = txn;
+		}
+	}
+
+	private final AtomicReferenceArray<Entry> ring;
+	private final AtomicLong next = new AtomicLong();
+
+	public ConcurrentTransactionHistory(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+		}
+		ring = new AtomicReferenceArray<>(capacity);
+	}
+
+	/**
+	 * append a transaction, evicting the oldest one if the buffer is full
+	 * @param txn
+	 */
+	public void add(Transaction txn) {
+		long position = next.getAndIncrement();
+		int slot = (int) (position % ring.length());
+		Entry entry = new Entry(position, txn);
+		Entry current = ring.get(slot);
+		while (current == null || current.position < position) {
+			if (ring.compareAndSet(slot, current, entry)) {
+				return;
+			}
+			current = ring.get(slot);
+		}
+	}
+
+	/**
+	 * copy of up to the last n published transactions, oldest first
+	 * @param n
+	 * @return list of transactions
+	 */
+	public List<Transaction> lastN(int n) {
+		long end = next.get();
+		long start = Math.max(0, end - Math.min(n, ring.length()));
+		List<Transaction> result = new ArrayList<>((int) (end - start));
+		for (long position = start; position < end; position++) {
+			Entry entry = ring.get((int) (position % ring.length()));
+			if (entry != null && entry.position == position) {
+				result.add(entry.txn);
+			}
+		}
+		return result;
+	}
+
+	public int capacity() {
+		return ring.length();
+	}
+}
@@ -0,0 +1,14 @@
+package com.richardchankiyin.app;
+
+/**
+ * When a journaled operation counts as durable, see {@link AccountJournal}
+ */
+public enum DurabilityMode {
+
+	/** every operation waits until its record is written and fsync'ed, concurrent operations share one fsync */
+	PER_OP,
+	/** records are written and fsync'ed every flush interval, operations do not wait */
+	BATCHED,
+	/** records are handed to the OS every flush interval and only fsync'ed on close */
+	ASYNC
+}
@@ -0,0 +1,88 @@
+package com.richardchankiyin.app;
+
+/**
+ * Converts amounts between double and long minor units at a fixed scale,
+ * e.g. scale 2 keeps 979.7 as 97970.
+ *
+ * Rounding: the amount is first snapped to the nearest half minor unit
+ * when it is within a few ulps of it, which absorbs the binary error of
+ * decimal literals such as 20.2 or 1.005. The result is then rounded to
+ * the nearest minor unit, ties away from zero (HALF_UP), without
+ * allocating. The snap is a heuristic: an amount within a few ulps of a
+ * half unit but not on it is rounded as if it were on it. From 2^52 minor
+ * units up every double is a whole number of units and is taken as is.
+ */
+public final class FixedPoint {
+
+	public static final int MAX_SCALE = 9;
+	private static final double LONG_RANGE = 0x1p63;
+	private static final double WHOLE_RANGE = 0x1p52;
+	private static final int SNAP_ULPS = 4;
+
+	private final int scale;
+	private final long factor;
+
+	public FixedPoint(int scale) {
+		if (scale < 0 || scale > MAX_SCALE) {
+			throw new IllegalArgumentException("Scale must be between 0 and " + MAX_SCALE + ": " + scale);
+		}
+		this.scale = scale;
+		long f = 1;
+		for (int i = 0; i < scale; i++) {
+			f *= 10;
+		}
+		this.factor = f;
+	}
+
+	public int scale() {
+		return scale;
+	}
+
+	/**
+	 * convert a positive amount to minor units.
+	 * Will reject amounts that are not finite, not positive,
+	 * round to zero or do not fit in a long
+	 * @param amt
+	 * @return amount in minor units
+	 */
+	public long toUnits(double amt) {
+		if (!(amt > 0) || Double.isInfinite(amt)) {
+			throw AccountException.INVALID_AMOUNT;
+		}
+		double scaled = amt * factor;
+		if (scaled >= LONG_RANGE) {
+			throw new AccountException("Amount Overflow");
+		}
+		long units;
+		if (scaled >= WHOLE_RANGE) {
+			return (long) scaled;
+		}
+		double twice = scaled * 2;
+		double halves = Math.rint(twice);
+		if (Math.abs(twice - halves) <= SNAP_ULPS * Math.ulp(twice)) {
+			units = ((long) halves + 1) >> 1;
+		} else {
+			units = Math.round(scaled);
+		}
+		if (units <= 0) {
+			throw AccountException.INVALID_AMOUNT;
+		}
+		return units;
+	}
+
+	public double toDouble(long units) {
+		return units / (double) factor;
+	}
+
+	/**
+	 * @param balance
+	 * @param units
+	 * @return balance + units, rejecting overflow
+	 */
+	public long add(long balance, long units) {
+		if (units > Long.MAX_VALUE - balance) {
+			throw new AccountException("Balance Overflow");
+		}
+		return balance + units;
+	}
+}
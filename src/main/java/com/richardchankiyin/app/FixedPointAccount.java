@@ -0,0 +1,178 @@
+package com.richardchankiyin.app;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * IAccount keeping balances as long minor units at a configurable scale
+ * (see {@link FixedPoint}) instead of BigDecimal, so deposit and withdraw
+ * do not allocate for the amount arithmetic.
+ */
+public class FixedPointAccount implements IAccount {
+
+	private static final int DEFAULT_SCALE = 2;
+	private static final int MAX_LAST_LIST_N_VAL = 10;
+
+	private final Striped<Lock> stripedLock;
+	private final FixedPoint fixedPoint;
+	private final int historyCapacity;
+	private final Map<String,String> personalIdAccountMap;
+	private final Map<String,Ledger> ledgers;
+
+	private static final class Ledger {
+		private long balance = 0;
+		private final TransactionHistory history;
+
+		private Ledger(int historyCapacity) {
+			history = new TransactionHistory(historyCapacity);
+		}
+	}
+
+	public FixedPointAccount() {
+		this(DEFAULT_SCALE, MAX_LAST_LIST_N_VAL);
+	}
+
+	/**
+	 * @param scale number of decimal places kept in the balance
+	 * @param historyCapacity number of most recent transactions retained per account
+	 */
+	public FixedPointAccount(int scale, int historyCapacity) {
+		if (historyCapacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + historyCapacity);
+		}
+		this.fixedPoint = new FixedPoint(scale);
+		this.historyCapacity = historyCapacity;
+		stripedLock = Striped.lock(10);
+		personalIdAccountMap = new ConcurrentHashMap<>();
+		ledgers = new ConcurrentHashMap<>();
+	}
+
+	private Ledger getLedger(String accountno) {
+		Ledger ledger = ledgers.get(accountno);
+		if (ledger == null) {
+			throw AccountException.INVALID_ACCOUNT;
+		}
+		return ledger;
+	}
+
+	@Override
+	public String createAccount(String personalId) {
+		String accountno = "";
+		Lock l = stripedLock.get(personalId);
+		l.lock();
+		try {
+			if (personalIdAccountMap.containsKey(personalId)) {
+				throw new AccountException("Personal Id duplicated");
+			}
+			accountno = UUID.randomUUID().toString();
+			ledgers.put(accountno, new Ledger(historyCapacity));
+			personalIdAccountMap.put(personalId, accountno);
+		} finally {
+			l.unlock();
+		}
+		return accountno;
+	}
+
+	@Override
+	public void deposit(String accountno, double amt) {
+		Ledger ledger = getLedger(accountno);
+		long units = fixedPoint.toUnits(amt);
+		Lock l = stripedLock.get(accountno);
+		l.lock();
+		try {
+			ledger.balance = fixedPoint.add(ledger.balance, units);
+			ledger.history.append(accountno, true, amt, System.currentTimeMillis());
+		} finally {
+			l.unlock();
+		}
+	}
+
+	@Override
+	public void withdraw(String accountno, double amt) {
+		Ledger ledger = getLedger(accountno);
+		long units = fixedPoint.toUnits(amt);
+		Lock l = stripedLock.get(accountno);
+		l.lock();
+		try {
+			if (ledger.balance < units) {
+				throw AccountException.INSUFFICIENT_BALANCE;
+			}
+			ledger.balance -= units;
+			ledger.history.append(accountno, false, amt, System.currentTimeMillis());
+		} finally {
+			l.unlock();
+		}
+	}
+
+	/**
+	 * Striped.bulkGet returns the stripes in ascending stripe order, so
+	 * concurrent transfers in opposite directions cannot deadlock.
+	 */
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		Ledger from = getLedger(fromAccountno);
+		Ledger to = getLedger(toAccountno);
+		long units = fixedPoint.toUnits(amt);
+		if (from == to) {
+			throw AccountException.TRANSFER_TO_SAME_ACCOUNT;
+		}
+		Iterator<Lock> locks = stripedLock.bulkGet(Arrays.asList(fromAccountno, toAccountno)).iterator();
+		Lock first = locks.next();
+		Lock second = locks.next();
+		first.lock();
+		try {
+			if (second != first) {
+				second.lock();
+			}
+			try {
+				if (from.balance < units) {
+					throw AccountException.INSUFFICIENT_BALANCE;
+				}
+				to.balance = fixedPoint.add(to.balance, units);
+				from.balance -= units;
+				from.history.append(fromAccountno, false, amt, System.currentTimeMillis());
+				to.history.append(toAccountno, true, amt, System.currentTimeMillis());
+			} finally {
+				if (second != first) {
+					second.unlock();
+				}
+			}
+		} finally {
+			first.unlock();
+		}
+	}
+
+	@Override
+	public double enquirebalance(String accountno) {
+		Ledger ledger = getLedger(accountno);
+		Lock l = stripedLock.get(accountno);
+		l.lock();
+		try {
+			return fixedPoint.toDouble(ledger.balance);
+		} finally {
+			l.unlock();
+		}
+	}
+
+	@Override
+	public List<Transaction> listLastNTransactions(String accountno, int n) {
+		Ledger ledger = getLedger(accountno);
+		if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
+			throw new AccountException("No of Transactions Arg not permitted");
+		}
+		Lock l = stripedLock.get(accountno);
+		l.lock();
+		try {
+			return ledger.history.lastN(n);
+		} finally {
+			l.unlock();
+		}
+	}
+}
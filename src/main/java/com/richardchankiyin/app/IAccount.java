@@ -1,5 +1,6 @@
 package com.richardchankiyin.app;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface IAccount {
@@ -37,6 +38,23 @@ public interface IAccount {
 	 */
 	public double enquirebalance(String accountno);
 	
+	/**
+	 * move amount from one account to another, all or nothing,
+	 * recording a withdraw on fromAccountno and a deposit on toAccountno.
+	 * Will reject if amount <= 0, if both account nos are the same
+	 * or if the balance of fromAccountno is insufficient.
+	 * 
+	 * Whether a reader can see the transfer half made depends on the
+	 * implementation: {@link LockFreeAccount} takes the amount from
+	 * fromAccountno before adding it to toAccountno and records both
+	 * transactions after that, so a reader in between may see the amount
+	 * in neither account. The lock-based implementations never show it.
+	 * @param fromAccountno
+	 * @param toAccountno
+	 * @param amt
+	 */
+	public void transfer(String fromAccountno, String toAccountno, double amt);
+	
 	/**
 	 * get last n transactions.
 	 * n >= 1, if n <= 0 or n > 10; will reject
@@ -45,4 +63,28 @@ public interface IAccount {
 	 * @return list of transactions
 	 */
 	public List<Transaction> listLastNTransactions(String accountno, int n);
+	
+	/**
+	 * apply postings in list order, returning one result per posting.
+	 * A rejected posting does not stop the rest of the batch.
+	 * Outcome is the same as calling deposit/withdraw one by one
+	 * @param postings
+	 * @return results in the same order as postings
+	 */
+	public default List<PostingResult> applyBatch(List<Posting> postings) {
+		List<PostingResult> results = new ArrayList<>(postings.size());
+		for (Posting posting : postings) {
+			try {
+				if (posting.isDeposit()) {
+					deposit(posting.accountno(), posting.amount());
+				} else {
+					withdraw(posting.accountno(), posting.amount());
+				}
+				results.add(new PostingResult(posting, null));
+			} catch (AccountException e) {
+				results.add(new PostingResult(posting, e));
+			}
+		}
+		return results;
+	}
 }
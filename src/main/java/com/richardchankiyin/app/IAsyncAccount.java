@@ -0,0 +1,50 @@
+package com.richardchankiyin.app;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of {@link IAccount}. Every operation returns a
+ * future that completes with the result, or exceptionally with the same
+ * AccountException the synchronous API would throw.
+ */
+public interface IAsyncAccount {
+
+	/**
+	 * @see IAccount#createAccount(String)
+	 */
+	public CompletableFuture<String> createAccount(String personalId);
+
+	/**
+	 * @see IAccount#deposit(String, double)
+	 */
+	public CompletableFuture<Void> deposit(String accountno, double amt);
+
+	/**
+	 * @see IAccount#withdraw(String, double)
+	 */
+	public CompletableFuture<Void> withdraw(String accountno, double amt);
+
+	/**
+	 * @see IAccount#enquirebalance(String)
+	 */
+	public CompletableFuture<Double> enquirebalance(String accountno);
+
+	/**
+	 * Implementations may move the amount in steps, see
+	 * {@link ShardedAccount#transfer(String, String, double)}
+	 * @see IAccount#transfer(String, String, double)
+	 */
+	public CompletableFuture<Void> transfer(String fromAccountno, String toAccountno, double amt);
+
+	/**
+	 * @see IAccount#listLastNTransactions(String, int)
+	 */
+	public CompletableFuture<List<Transaction>> listLastNTransactions(String accountno, int n);
+
+	/**
+	 * completes with one result per posting once all are applied
+	 * @see IAccount#applyBatch(List)
+	 */
+	public CompletableFuture<List<PostingResult>> applyBatch(List<Posting> postings);
+}
@@ -0,0 +1,26 @@
+package com.richardchankiyin.app;
+
+import java.util.List;
+
+/**
+ * Cursor-based paging through the transaction history of an account, for
+ * statements and reconciliation. Transactions come oldest first; to get the
+ * next page pass the sequence of the last transaction returned as
+ * afterSequence, a page shorter than pageSize means there is nothing more.
+ * Engines only page through the transactions they retain.
+ */
+public interface ITransactionQuery {
+
+	/**
+	 * up to pageSize transactions with a sequence above afterSequence,
+	 * pageSize from 1 to 1000; pass 0 to start from the first transaction
+	 */
+	public List<Transaction> transactionsAfter(String accountno, long afterSequence, int pageSize);
+
+	/**
+	 * up to pageSize transactions applied within [fromTimestamp, toTimestamp)
+	 * (epoch millis) with a sequence above afterSequence
+	 */
+	public List<Transaction> transactionsBetween(String accountno, long fromTimestamp, long toTimestamp,
+			long afterSequence, int pageSize);
+}
@@ -0,0 +1,36 @@
+package com.richardchankiyin.app;
+
+/**
+ * Postings that report a rejection as a status code instead of throwing,
+ * for callers that see many rejections, e.g. clients retrying withdrawals
+ * against an empty account. A rejected call allocates nothing.
+ *
+ * The outcome is the same as the matching {@link IAccount} method, which
+ * would throw {@link AccountException#forStatus(int)} of the status.
+ * Failures that are not rejections of the request, such as a journal
+ * failure, are still thrown.
+ */
+public interface ITryAccount {
+
+	public static final int OK = 0;
+	public static final int INVALID_ACCOUNT = 1;
+	public static final int INVALID_AMOUNT = 2;
+	public static final int INSUFFICIENT_BALANCE = 3;
+	public static final int TRANSFER_TO_SAME_ACCOUNT = 4;
+
+	/**
+	 * @return OK, INVALID_ACCOUNT or INVALID_AMOUNT
+	 */
+	public int tryDeposit(String accountno, double amt);
+
+	/**
+	 * @return OK, INVALID_ACCOUNT, INVALID_AMOUNT or INSUFFICIENT_BALANCE
+	 */
+	public int tryWithdraw(String accountno, double amt);
+
+	/**
+	 * @return OK, INVALID_ACCOUNT, INVALID_AMOUNT, TRANSFER_TO_SAME_ACCOUNT
+	 * or INSUFFICIENT_BALANCE
+	 */
+	public int tryTransfer(String fromAccountno, String toAccountno, double amt);
+}
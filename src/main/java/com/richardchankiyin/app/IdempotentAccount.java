@@ -0,0 +1,318 @@
+package com.richardchankiyin.app;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Decorator adding idempotency keys to deposit, withdraw and transfer, so
+ * that a gateway retrying a posting after a timeout does not post it
+ * twice: a posting carrying a key already seen is not applied again but
+ * returns the outcome of the first one, success or the same
+ * AccountException. A duplicate arriving while the first is still running
+ * waits for it. Reusing a key for a different posting is rejected with
+ * Idempotency Key Reused.
+ *
+ * Keys are remembered for ttl after first use and at most maxKeys of them
+ * at a time, the oldest being forgotten first. Both bound how late a
+ * retry can come; once its key is forgotten a retry posts again. The keys
+ * are spread over shards by hash, each an insertion-ordered map under its
+ * own lock held only to look up and record the key, so postings with
+ * different keys rarely contend and the posting itself runs unlocked. A
+ * duplicate waits on a condition of its shard's lock rather than a
+ * monitor, so a virtual thread waiting does not pin its carrier.
+ *
+ * Postings failing with anything but an AccountException, e.g. a journal
+ * failure, are not remembered, so their retries run again.
+ */
+public class IdempotentAccount implements IAccount {
+
+	private static final int DEFAULT_SHARDS = 64;
+
+	private enum Kind { DEPOSIT, WITHDRAW, TRANSFER }
+
+	private static final Object PENDING = new Object();
+	private static final Object APPLIED = new Object();
+
+	/**
+	 * What a key was first used for, to tell a retry from a reused key,
+	 * and how that posting ended. One object per key, as the cache holds
+	 * up to maxKeys of them.
+	 */
+	private static final class Outcome {
+		private final Kind kind;
+		private final String accountno;
+		private final String toAccountno;
+		private final double amount;
+		private final long expiresAt;
+		/** PENDING, APPLIED, the AccountException it was rejected with or
+		 * the RuntimeException it failed with */
+		private volatile Object result = PENDING;
+		/** set by a duplicate before it waits, so complete only signals when needed */
+		private volatile boolean awaited = false;
+
+		private Outcome(Kind kind, String accountno, String toAccountno, double amount, long expiresAt) {
+			this.kind = kind;
+			this.accountno = accountno;
+			this.toAccountno = toAccountno;
+			this.amount = amount;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isFor(Kind kind, String accountno, String toAccountno, double amount) {
+			return this.kind == kind && this.accountno.equals(accountno) && Objects.equals(this.toAccountno, toAccountno)
+					&& Double.compare(this.amount, amount) == 0;
+		}
+
+		/**
+		 * @param shard shard of the key, whose duplicates are signalled
+		 */
+		private void complete(Object result, Shard shard) {
+			this.result = result;
+			if (awaited) {
+				shard.lock.lock();
+				try {
+					shard.completed.signalAll();
+				} finally {
+					shard.lock.unlock();
+				}
+			}
+		}
+
+		/**
+		 * wait for complete, keeping the interrupt status if interrupted
+		 * meanwhile
+		 */
+		private Object await(Shard shard) {
+			Object r = result;
+			if (r != PENDING) {
+				return r;
+			}
+			awaited = true;
+			shard.lock.lock();
+			try {
+				while ((r = result) == PENDING) {
+					shard.completed.awaitUninterruptibly();
+				}
+			} finally {
+				shard.lock.unlock();
+			}
+			return r;
+		}
+	}
+
+	private static final class Shard {
+		private final ReentrantLock lock = new ReentrantLock();
+		/** signalled when a posting some duplicate waits for completes */
+		private final Condition completed = lock.newCondition();
+		/** in insertion order, which is also expiry order */
+		private final LinkedHashMap<String,Outcome> outcomes = new LinkedHashMap<>();
+	}
+
+	private final IAccount account;
+	private final Shard[] shards;
+	private final int shardCapacity;
+	private final long ttlNanos;
+	private final LongSupplier nanoClock;
+	private final LongAdder duplicates = new LongAdder();
+
+	/**
+	 * @param maxKeys number of keys remembered at most
+	 * @param ttl how long a key is remembered
+	 */
+	public IdempotentAccount(IAccount account, int maxKeys, Duration ttl) {
+		this(account, maxKeys, ttl, DEFAULT_SHARDS, System::nanoTime);
+	}
+
+	IdempotentAccount(IAccount account, int maxKeys, Duration ttl, int shardCount, LongSupplier nanoClock) {
+		if (maxKeys <= 0) {
+			throw new IllegalArgumentException("Max keys must be positive: " + maxKeys);
+		}
+		if (ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("TTL must be positive: " + ttl);
+		}
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("Shards must be positive: " + shardCount);
+		}
+		shardCount = Math.min(shardCount, maxKeys);
+		this.account = account;
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard();
+		}
+		this.shardCapacity = Math.max(1, maxKeys / shardCount);
+		this.ttlNanos = ttl.toNanos();
+		this.nanoClock = nanoClock;
+	}
+
+	/**
+	 * deposit unless a posting with idempotencyKey was already made
+	 */
+	public void deposit(String idempotencyKey, String accountno, double amt) {
+		post(idempotencyKey, Kind.DEPOSIT, accountno, null, amt);
+	}
+
+	/**
+	 * withdraw unless a posting with idempotencyKey was already made
+	 */
+	public void withdraw(String idempotencyKey, String accountno, double amt) {
+		post(idempotencyKey, Kind.WITHDRAW, accountno, null, amt);
+	}
+
+	/**
+	 * transfer unless a posting with idempotencyKey was already made
+	 */
+	public void transfer(String idempotencyKey, String fromAccountno, String toAccountno, double amt) {
+		post(idempotencyKey, Kind.TRANSFER, fromAccountno, toAccountno, amt);
+	}
+
+	/**
+	 * number of postings answered from a remembered key instead of applied
+	 */
+	public long duplicates() {
+		return duplicates.sum();
+	}
+
+	/**
+	 * number of keys remembered, expired ones included until evicted
+	 */
+	public int size() {
+		int size = 0;
+		for (Shard shard : shards) {
+			shard.lock.lock();
+			try {
+				size += shard.outcomes.size();
+			} finally {
+				shard.lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	private void post(String idempotencyKey, Kind kind, String accountno, String toAccountno, double amt) {
+		if (idempotencyKey == null) {
+			throw new AccountException("Invalid Idempotency Key");
+		}
+		Shard shard = shardFor(idempotencyKey);
+		Outcome seen;
+		Outcome mine = null;
+		shard.lock.lock();
+		try {
+			long now = nanoClock.getAsLong();
+			seen = shard.outcomes.get(idempotencyKey);
+			if (seen != null && seen.expiresAt - now <= 0) {
+				shard.outcomes.remove(idempotencyKey);
+				seen = null;
+			}
+			if (seen == null) {
+				mine = new Outcome(kind, accountno, toAccountno, amt, now + ttlNanos);
+				shard.outcomes.put(idempotencyKey, mine);
+				evict(shard, now);
+			}
+		} finally {
+			shard.lock.unlock();
+		}
+		if (seen != null) {
+			duplicates.increment();
+			if (!seen.isFor(kind, accountno, toAccountno, amt)) {
+				throw new AccountException("Idempotency Key Reused");
+			}
+			Object result = seen.await(shard);
+			if (result instanceof RuntimeException e) {
+				throw e;
+			}
+			return;
+		}
+		try {
+			switch (kind) {
+			case DEPOSIT -> account.deposit(accountno, amt);
+			case WITHDRAW -> account.withdraw(accountno, amt);
+			case TRANSFER -> account.transfer(accountno, toAccountno, amt);
+			}
+			mine.complete(APPLIED, shard);
+		} catch (AccountException e) {
+			mine.complete(e, shard);
+			throw e;
+		} catch (RuntimeException | Error e) {
+			forget(shard, idempotencyKey, mine);
+			// duplicates already waiting fail the same way, later ones post again
+			mine.complete(e instanceof RuntimeException r ? r : new IllegalStateException(e), shard);
+			throw e;
+		}
+	}
+
+	/**
+	 * drop keys from the oldest while they are expired or the shard is over
+	 * capacity, caller holds the shard lock
+	 */
+	private void evict(Shard shard, long now) {
+		Iterator<Map.Entry<String,Outcome>> it = shard.outcomes.entrySet().iterator();
+		while (it.hasNext()) {
+			Outcome oldest = it.next().getValue();
+			if (shard.outcomes.size() <= shardCapacity && oldest.expiresAt - now > 0) {
+				return;
+			}
+			it.remove();
+		}
+	}
+
+	private void forget(Shard shard, String idempotencyKey, Outcome outcome) {
+		shard.lock.lock();
+		try {
+			shard.outcomes.remove(idempotencyKey, outcome);
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * shard from the top bits of the scrambled hash, so that the keys of a
+	 * shard still spread over the low bits its HashMap indexes by
+	 */
+	private Shard shardFor(String idempotencyKey) {
+		long scrambled = Integer.toUnsignedLong(idempotencyKey.hashCode() * 0x9E3779B9);
+		return shards[(int) ((scrambled * shards.length) >>> 32)];
+	}
+
+	@Override
+	public String createAccount(String personalId) {
+		return account.createAccount(personalId);
+	}
+
+	@Override
+	public void deposit(String accountno, double amt) {
+		account.deposit(accountno, amt);
+	}
+
+	@Override
+	public void withdraw(String accountno, double amt) {
+		account.withdraw(accountno, amt);
+	}
+
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		account.transfer(fromAccountno, toAccountno, amt);
+	}
+
+	@Override
+	public double enquirebalance(String accountno) {
+		return account.enquirebalance(accountno);
+	}
+
+	@Override
+	public List<Transaction> listLastNTransactions(String accountno, int n) {
+		return account.listLastNTransactions(accountno, n);
+	}
+
+	@Override
+	public List<PostingResult> applyBatch(List<Posting> postings) {
+		return account.applyBatch(postings);
+	}
+}
@@ -0,0 +1,134 @@
+package com.richardchankiyin.app;
+
+import java.util.List;
+
+import com.richardchankiyin.app.AccountMetrics.Operation;
+
+/**
+ * Decorator recording the latency of every call and every rejection
+ * (by AccountException message) into {@link AccountMetrics}. While the
+ * metrics are disabled calls go straight through without reading the clock.
+ */
+public class InstrumentedAccount implements IAccount {
+
+	private static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private final IAccount account;
+	private final AccountMetrics metrics;
+
+	public InstrumentedAccount(IAccount account, AccountMetrics metrics) {
+		this.account = account;
+		this.metrics = metrics;
+	}
+
+	public AccountMetrics metrics() {
+		return metrics;
+	}
+
+	private long start() {
+		return metrics.isEnabled() ? System.nanoTime() : NOT_TIMED;
+	}
+
+	private void stop(Operation operation, long start) {
+		if (start != NOT_TIMED) {
+			metrics.recordLatency(operation, System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public String createAccount(String personalId) {
+		long start = start();
+		try {
+			return account.createAccount(personalId);
+		} catch (AccountException e) {
+			metrics.recordRejection(e);
+			throw e;
+		} finally {
+			stop(Operation.CREATE_ACCOUNT, start);
+		}
+	}
+
+	@Override
+	public void deposit(String accountno, double amt) {
+		long start = start();
+		try {
+			account.deposit(accountno, amt);
+		} catch (AccountException e) {
+			metrics.recordRejection(e);
+			throw e;
+		} finally {
+			stop(Operation.DEPOSIT, start);
+		}
+	}
+
+	@Override
+	public void withdraw(String accountno, double amt) {
+		long start = start();
+		try {
+			account.withdraw(accountno, amt);
+		} catch (AccountException e) {
+			metrics.recordRejection(e);
+			throw e;
+		} finally {
+			stop(Operation.WITHDRAW, start);
+		}
+	}
+
+	@Override
+	public double enquirebalance(String accountno) {
+		long start = start();
+		try {
+			return account.enquirebalance(accountno);
+		} catch (AccountException e) {
+			metrics.recordRejection(e);
+			throw e;
+		} finally {
+			stop(Operation.ENQUIRE_BALANCE, start);
+		}
+	}
+
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		long start = start();
+		try {
+			account.transfer(fromAccountno, toAccountno, amt);
+		} catch (AccountException e) {
+			metrics.recordRejection(e);
+			throw e;
+		} finally {
+			stop(Operation.TRANSFER, start);
+		}
+	}
+
+	@Override
+	public List<Transaction> listLastNTransactions(String accountno, int n) {
+		long start = start();
+		try {
+			return account.listLastNTransactions(accountno, n);
+		} catch (AccountException e) {
+			metrics.recordRejection(e);
+			throw e;
+		} finally {
+			stop(Operation.LIST_LAST_N_TRANSACTIONS, start);
+		}
+	}
+
+	/**
+	 * records the latency of the whole batch and a rejection per failed posting
+	 */
+	@Override
+	public List<PostingResult> applyBatch(List<Posting> postings) {
+		long start = start();
+		try {
+			List<PostingResult> results = account.applyBatch(postings);
+			for (PostingResult result : results) {
+				if (!result.isSuccess()) {
+					metrics.recordRejection(result.error());
+				}
+			}
+			return results;
+		} finally {
+			stop(Operation.APPLY_BATCH, start);
+		}
+	}
+}
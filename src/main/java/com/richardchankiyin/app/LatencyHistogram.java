@@ -0,0 +1,107 @@
+package com.richardchankiyin.app;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative values (nanoseconds), in the style
+ * of HdrHistogram: values below 64 get a bucket each, above that every
+ * power of two is split into 32 buckets, so any recorded value is
+ * reported within about 3% of its true value.
+ *
+ * Recording is one atomic increment and never allocates. Reads walk the
+ * buckets and are meant for monitoring, not the hot path; a read racing
+ * with recordings may see some of them and not others.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	// one row of sub-buckets per power of two from 2^6 to 2^62
+	private static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	static int bucketFor(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * largest value that falls into bucket
+	 */
+	static long highestValueIn(int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * @param value negative values are recorded as 0
+	 */
+	public void record(long value) {
+		counts.getAndIncrement(bucketFor(Math.max(0, value)));
+	}
+
+	public long count() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * value at or below which percentile % of the recorded values fall,
+	 * 0 if nothing was recorded
+	 * @param percentile 0 to 100
+	 */
+	public long percentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile out of range: " + percentile);
+		}
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return highestValueIn(i);
+			}
+		}
+		return max();
+	}
+
+	/**
+	 * largest recorded value (to bucket precision), 0 if nothing was recorded
+	 */
+	public long max() {
+		for (int i = BUCKETS - 1; i >= 0; i--) {
+			if (counts.get(i) != 0) {
+				return highestValueIn(i);
+			}
+		}
+		return 0;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+}
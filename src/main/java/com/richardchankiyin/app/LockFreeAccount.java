@@ -0,0 +1,161 @@
+package com.richardchankiyin.app;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IAccount that never blocks: balances are long minor units (see
+ * {@link FixedPoint}) updated with compare-and-set, and history is kept in
+ * a {@link ConcurrentTransactionHistory}.
+ *
+ * Deposits always succeed after a CAS retry; withdraw re-checks the balance
+ * on every retry so an insufficient balance is still rejected atomically.
+ * Balance and history are updated separately, so for operations racing on
+ * the same account the history order may differ from the order in which
+ * the balance changes were applied.
+ *
+ * A transfer is a CAS withdraw followed by a CAS deposit: it is all or
+ * nothing, but a reader between the two sees the amount in neither
+ * account.
+ */
+public class LockFreeAccount implements IAccount {
+
+	private static final int DEFAULT_SCALE = 2;
+	private static final int MAX_LAST_LIST_N_VAL = 10;
+
+	private final FixedPoint fixedPoint;
+	private final int historyCapacity;
+	private final Map<String,String> personalIdAccountMap;
+	private final Map<String,Ledger> ledgers;
+
+	private static final class Ledger {
+		private static final VarHandle BALANCE;
+		static {
+			try {
+				BALANCE = MethodHandles.lookup().findVarHandle(Ledger.class, "balance", long.class);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		private volatile long balance = 0;
+		private final ConcurrentTransactionHistory history;
+
+		private Ledger(int historyCapacity) {
+			history = new ConcurrentTransactionHistory(historyCapacity);
+		}
+
+		private boolean casBalance(long expected, long updated) {
+			return BALANCE.compareAndSet(this, expected, updated);
+		}
+	}
+
+	public LockFreeAccount() {
+		this(DEFAULT_SCALE, MAX_LAST_LIST_N_VAL);
+	}
+
+	/**
+	 * @param scale number of decimal places kept in the balance
+	 * @param historyCapacity number of most recent transactions retained per account
+	 */
+	public LockFreeAccount(int scale, int historyCapacity) {
+		if (historyCapacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + historyCapacity);
+		}
+		this.fixedPoint = new FixedPoint(scale);
+		this.historyCapacity = historyCapacity;
+		personalIdAccountMap = new ConcurrentHashMap<>();
+		ledgers = new ConcurrentHashMap<>();
+	}
+
+	private Ledger getLedger(String accountno) {
+		Ledger ledger = ledgers.get(accountno);
+		if (ledger == null) {
+			throw AccountException.INVALID_ACCOUNT;
+		}
+		return ledger;
+	}
+
+	@Override
+	public String createAccount(String personalId) {
+		String accountno = UUID.randomUUID().toString();
+		if (personalIdAccountMap.putIfAbsent(personalId, accountno) != null) {
+			throw new AccountException("Personal Id duplicated");
+		}
+		ledgers.put(accountno, new Ledger(historyCapacity));
+		return accountno;
+	}
+
+	@Override
+	public void deposit(String accountno, double amt) {
+		Ledger ledger = getLedger(accountno);
+		long units = fixedPoint.toUnits(amt);
+		long balance;
+		do {
+			balance = ledger.balance;
+		} while (!ledger.casBalance(balance, fixedPoint.add(balance, units)));
+		ledger.history.add(new Transaction(accountno, true, amt));
+	}
+
+	@Override
+	public void withdraw(String accountno, double amt) {
+		Ledger ledger = getLedger(accountno);
+		long units = fixedPoint.toUnits(amt);
+		long balance;
+		do {
+			balance = ledger.balance;
+			if (balance < units) {
+				throw AccountException.INSUFFICIENT_BALANCE;
+			}
+		} while (!ledger.casBalance(balance, balance - units));
+		ledger.history.add(new Transaction(accountno, false, amt));
+	}
+
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		Ledger from = getLedger(fromAccountno);
+		Ledger to = getLedger(toAccountno);
+		long units = fixedPoint.toUnits(amt);
+		if (from == to) {
+			throw AccountException.TRANSFER_TO_SAME_ACCOUNT;
+		}
+		long balance;
+		do {
+			balance = from.balance;
+			if (balance < units) {
+				throw AccountException.INSUFFICIENT_BALANCE;
+			}
+		} while (!from.casBalance(balance, balance - units));
+		try {
+			do {
+				balance = to.balance;
+			} while (!to.casBalance(balance, fixedPoint.add(balance, units)));
+		} catch (AccountException e) {
+			// balance overflow on to, give the amount back
+			do {
+				balance = from.balance;
+			} while (!from.casBalance(balance, balance + units));
+			throw e;
+		}
+		from.history.add(new Transaction(fromAccountno, false, amt));
+		to.history.add(new Transaction(toAccountno, true, amt));
+	}
+
+	@Override
+	public double enquirebalance(String accountno) {
+		return fixedPoint.toDouble(getLedger(accountno).balance);
+	}
+
+	@Override
+	public List<Transaction> listLastNTransactions(String accountno, int n) {
+		Ledger ledger = getLedger(accountno);
+		if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
+			throw new AccountException("No of Transactions Arg not permitted");
+		}
+		return ledger.history.lastN(n);
+	}
+}
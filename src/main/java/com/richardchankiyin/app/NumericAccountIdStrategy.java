@@ -0,0 +1,133 @@
+package com.richardchankiyin.app;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Positive long account ids, written as plain decimal account numbers.
+ * Ids are handed out from a few stripes, one per core or so, each holding
+ * a range of ids reserved from a shared counter, so the counter is touched
+ * once per range instead of once per account. A thread starts at the
+ * stripe its id hashes to and moves on to the next one that is free.
+ *
+ * Ranges belong to the stripes and not to threads, so a thread per call,
+ * e.g. a virtual thread per request, costs no more than a pool. Ids are
+ * unique but not issued in order, and at most one range per stripe is
+ * left partly unused.
+ *
+ * An {@link Account} using this strategy keys its accounts by the long id.
+ */
+public class NumericAccountIdStrategy implements AccountIdStrategy {
+
+	private static final int DEFAULT_RANGE_SIZE = 1024;
+
+	private final AtomicLong nextRangeStart;
+	private final int rangeSize;
+	private final Stripe[] stripes;
+
+	/**
+	 * ids from next (inclusive) to end (exclusive), guarded by the lock
+	 */
+	private static final class Stripe extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+
+		private long next = 0;
+		private long end = 0;
+	}
+
+	public NumericAccountIdStrategy() {
+		this(1, DEFAULT_RANGE_SIZE);
+	}
+
+	/**
+	 * @param firstId smallest id to issue, at least 1
+	 * @param rangeSize number of ids a stripe reserves at a time
+	 */
+	public NumericAccountIdStrategy(long firstId, int rangeSize) {
+		if (firstId <= 0) {
+			throw new IllegalArgumentException("First id must be positive: " + firstId);
+		}
+		if (rangeSize <= 0) {
+			throw new IllegalArgumentException("Range size must be positive: " + rangeSize);
+		}
+		this.nextRangeStart = new AtomicLong(firstId);
+		this.rangeSize = rangeSize;
+		this.stripes = new Stripe[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Tries each stripe once, from the one of the calling thread, and
+	 * waits for that one if all are busy.
+	 */
+	public long nextId() {
+		long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+		int home = (int) (h >>> 32) & (stripes.length - 1);
+		for (int i = 0; i < stripes.length; i++) {
+			Stripe stripe = stripes[(home + i) & (stripes.length - 1)];
+			if (stripe.tryLock()) {
+				return nextId(stripe);
+			}
+		}
+		Stripe stripe = stripes[home];
+		stripe.lock();
+		return nextId(stripe);
+	}
+
+	/**
+	 * caller holds the lock of stripe, released here
+	 */
+	private long nextId(Stripe stripe) {
+		try {
+			if (stripe.next == stripe.end) {
+				stripe.next = nextRangeStart.getAndAdd(rangeSize);
+				stripe.end = stripe.next + rangeSize;
+			}
+			return stripe.next++;
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	@Override
+	public String nextAccountno() {
+		return encode(nextId());
+	}
+
+	/**
+	 * make sure ranges reserved from now on start above id, used after
+	 * accounts numbered elsewhere (a checkpoint or journal) are loaded
+	 */
+	public void advancePast(long id) {
+		nextRangeStart.accumulateAndGet(id + 1, Math::max);
+	}
+
+	public static String encode(long id) {
+		return Long.toString(id);
+	}
+
+	/**
+	 * the id written in accountno, 0 if accountno is not a canonical
+	 * positive decimal (no sign, no leading zeros) that fits in a long
+	 */
+	public static long decode(String accountno) {
+		int length = accountno.length();
+		if (length == 0 || length > 19 || accountno.charAt(0) == '0') {
+			return 0;
+		}
+		long id = 0;
+		for (int i = 0; i < length; i++) {
+			int digit = accountno.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return 0;
+			}
+			id = id * 10 + digit;
+			if (id < 0) {
+				return 0;
+			}
+		}
+		return id;
+	}
+}
@@ -0,0 +1,262 @@
+package com.richardchankiyin.app;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * IAccount keeping every account in direct (off-heap) memory, so the heap
+ * and GC work do not grow with the number of accounts.
+ *
+ * Accounts are fixed-size records numbered by slot, 65536 to a slab: the
+ * balance in long minor units (see {@link FixedPoint}), the number of
+ * transactions so far and a ring of the last historyCapacity transactions
+ * as (signed units, timestamp). The account no is the slot number plus
+ * one in decimal, so finding an account is arithmetic rather than a
+ * lookup. Personal ids are only kept to reject duplicates, in an off-heap
+ * {@link PersonalIdIndex}.
+ *
+ * Accounts are guarded by striped locks on their slot; balances are read
+ * without locking. createAccount is serialised. Holds up to about 100
+ * million accounts, the largest index a single buffer can address.
+ */
+public class OffHeapAccount implements IAccount {
+
+	private static final int DEFAULT_SCALE = 2;
+	private static final int MAX_LAST_LIST_N_VAL = 10;
+
+	private static final int SLAB_BITS = 16;
+	private static final int SLAB_MASK = (1 << SLAB_BITS) - 1;
+
+	// account record layout
+	private static final int BALANCE = 0;
+	private static final int TXN_COUNT = 8;
+	private static final int HISTORY = 16;
+	private static final int HISTORY_ENTRY = 16;
+
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private final FixedPoint fixedPoint;
+	private final int historyCapacity;
+	private final int recordSize;
+	private final Striped<Lock> stripedLock;
+	private final ReentrantLock createLock = new ReentrantLock();
+
+	private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+	private volatile int size = 0;
+
+	// only touched under createLock
+	private final PersonalIdIndex personalIds = new PersonalIdIndex();
+
+	public OffHeapAccount() {
+		this(DEFAULT_SCALE, MAX_LAST_LIST_N_VAL);
+	}
+
+	/**
+	 * @param scale number of decimal places kept in the balance
+	 * @param historyCapacity number of most recent transactions retained per account
+	 */
+	public OffHeapAccount(int scale, int historyCapacity) {
+		if (historyCapacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + historyCapacity);
+		}
+		this.fixedPoint = new FixedPoint(scale);
+		this.historyCapacity = historyCapacity;
+		this.recordSize = HISTORY + historyCapacity * HISTORY_ENTRY;
+		if ((long) recordSize << SLAB_BITS > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("History capacity too large: " + historyCapacity);
+		}
+		this.stripedLock = Striped.lock(Account.defaultStripes());
+	}
+
+	/**
+	 * off-heap bytes allocated for accounts, personal ids and the index
+	 */
+	public long offHeapBytes() {
+		createLock.lock();
+		try {
+			return (long) slabs.length * (recordSize << SLAB_BITS) + personalIds.offHeapBytes();
+		} finally {
+			createLock.unlock();
+		}
+	}
+
+	private int slotOf(String accountno) {
+		long id = NumericAccountIdStrategy.decode(accountno);
+		if (id == 0 || id > size) {
+			throw AccountException.INVALID_ACCOUNT;
+		}
+		return (int) (id - 1);
+	}
+
+	private ByteBuffer slab(int slot) {
+		return slabs[slot >>> SLAB_BITS];
+	}
+
+	private int record(int slot) {
+		return (slot & SLAB_MASK) * recordSize;
+	}
+
+	private Lock lockOf(int slot) {
+		return stripedLock.getAt(slot % stripedLock.size());
+	}
+
+	@Override
+	public String createAccount(String personalId) {
+		createLock.lock();
+		try {
+			int slot = size;
+			if (slot >>> SLAB_BITS == slabs.length) {
+				ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+				grown[slabs.length] = ByteBuffer.allocateDirect(recordSize << SLAB_BITS).order(ByteOrder.nativeOrder());
+				slabs = grown;
+			}
+			if (!personalIds.add(personalId)) {
+				throw new AccountException("Personal Id duplicated");
+			}
+			size = slot + 1;
+			return NumericAccountIdStrategy.encode(slot + 1L);
+		} finally {
+			createLock.unlock();
+		}
+	}
+
+	/**
+	 * add a transaction to the history ring of the account, stamped no
+	 * earlier than the one before it. Caller holds the lock of the slot
+	 */
+	private void addTransaction(ByteBuffer slab, int rec, long signedUnits) {
+		long count = slab.getLong(rec + TXN_COUNT);
+		long timestamp = System.currentTimeMillis();
+		if (count > 0) {
+			int last = rec + HISTORY + (int) ((count - 1) % historyCapacity) * HISTORY_ENTRY;
+			timestamp = Math.max(timestamp, slab.getLong(last + 8));
+		}
+		int entry = rec + HISTORY + (int) (count % historyCapacity) * HISTORY_ENTRY;
+		slab.putLong(entry, signedUnits);
+		slab.putLong(entry + 8, timestamp);
+		slab.putLong(rec + TXN_COUNT, count + 1);
+	}
+
+	@Override
+	public void deposit(String accountno, double amt) {
+		int slot = slotOf(accountno);
+		long units = fixedPoint.toUnits(amt);
+		ByteBuffer slab = slab(slot);
+		int rec = record(slot);
+		Lock l = lockOf(slot);
+		l.lock();
+		try {
+			long balance = (long) LONGS.get(slab, rec + BALANCE);
+			LONGS.setRelease(slab, rec + BALANCE, fixedPoint.add(balance, units));
+			addTransaction(slab, rec, units);
+		} finally {
+			l.unlock();
+		}
+	}
+
+	@Override
+	public void withdraw(String accountno, double amt) {
+		int slot = slotOf(accountno);
+		long units = fixedPoint.toUnits(amt);
+		ByteBuffer slab = slab(slot);
+		int rec = record(slot);
+		Lock l = lockOf(slot);
+		l.lock();
+		try {
+			long balance = (long) LONGS.get(slab, rec + BALANCE);
+			if (balance < units) {
+				throw AccountException.INSUFFICIENT_BALANCE;
+			}
+			LONGS.setRelease(slab, rec + BALANCE, balance - units);
+			addTransaction(slab, rec, -units);
+		} finally {
+			l.unlock();
+		}
+	}
+
+	/**
+	 * Stripes are locked in ascending stripe order, so concurrent
+	 * transfers in opposite directions cannot deadlock.
+	 */
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		int fromSlot = slotOf(fromAccountno);
+		int toSlot = slotOf(toAccountno);
+		long units = fixedPoint.toUnits(amt);
+		if (fromSlot == toSlot) {
+			throw AccountException.TRANSFER_TO_SAME_ACCOUNT;
+		}
+		int fromStripe = fromSlot % stripedLock.size();
+		int toStripe = toSlot % stripedLock.size();
+		Lock first = stripedLock.getAt(Math.min(fromStripe, toStripe));
+		Lock second = stripedLock.getAt(Math.max(fromStripe, toStripe));
+		ByteBuffer fromSlab = slab(fromSlot);
+		ByteBuffer toSlab = slab(toSlot);
+		int fromRec = record(fromSlot);
+		int toRec = record(toSlot);
+		first.lock();
+		try {
+			if (second != first) {
+				second.lock();
+			}
+			try {
+				long fromBalance = (long) LONGS.get(fromSlab, fromRec + BALANCE);
+				if (fromBalance < units) {
+					throw AccountException.INSUFFICIENT_BALANCE;
+				}
+				long toBalance = fixedPoint.add((long) LONGS.get(toSlab, toRec + BALANCE), units);
+				LONGS.setRelease(fromSlab, fromRec + BALANCE, fromBalance - units);
+				LONGS.setRelease(toSlab, toRec + BALANCE, toBalance);
+				addTransaction(fromSlab, fromRec, -units);
+				addTransaction(toSlab, toRec, units);
+			} finally {
+				if (second != first) {
+					second.unlock();
+				}
+			}
+		} finally {
+			first.unlock();
+		}
+	}
+
+	@Override
+	public double enquirebalance(String accountno) {
+		int slot = slotOf(accountno);
+		return fixedPoint.toDouble((long) LONGS.getAcquire(slab(slot), record(slot) + BALANCE));
+	}
+
+	@Override
+	public List<Transaction> listLastNTransactions(String accountno, int n) {
+		int slot = slotOf(accountno);
+		if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
+			throw new AccountException("No of Transactions Arg not permitted");
+		}
+		ByteBuffer slab = slab(slot);
+		int rec = record(slot);
+		Lock l = lockOf(slot);
+		l.lock();
+		try {
+			long count = slab.getLong(rec + TXN_COUNT);
+			int k = (int) Math.min(Math.min(n, historyCapacity), count);
+			List<Transaction> result = new ArrayList<>(k);
+			for (long seq = count - k + 1; seq <= count; seq++) {
+				int entry = rec + HISTORY + (int) ((seq - 1) % historyCapacity) * HISTORY_ENTRY;
+				long signedUnits = slab.getLong(entry);
+				result.add(new Transaction(accountno, signedUnits > 0, fixedPoint.toDouble(Math.abs(signedUnits)),
+						seq, slab.getLong(entry + 8)));
+			}
+			return result;
+		} finally {
+			l.unlock();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.richardchankiyin.app;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Off-heap set of personal ids, for the engines that keep accounts off
+ * the heap and only need personal ids to reject duplicates in
+ * createAccount. Personal ids are appended once to an arena of direct
+ * chunks and found through an open-addressing index of (hash, arena
+ * reference + 1) entries, also direct, 0 marking a free entry. Not
+ * thread-safe, callers serialise createAccount.
+ *
+ * Holds up to about 100 million personal ids and 4 GiB of them.
+ */
+final class PersonalIdIndex {
+
+	private static final int ARENA_BITS = 24;
+	private static final int ARENA_CHUNK_SIZE = 1 << ARENA_BITS;
+	private static final int MAX_ARENA_CHUNKS = 1 << (Integer.SIZE - ARENA_BITS);
+	private static final int MIN_INDEX_CAPACITY = 1 << 10;
+	private static final int MAX_INDEX_CAPACITY = 1 << 27;
+
+	private ByteBuffer index;
+	private int indexCapacity;
+	private int size = 0;
+	private ByteBuffer[] arena = new ByteBuffer[0];
+
+	PersonalIdIndex() {
+		this.indexCapacity = MIN_INDEX_CAPACITY;
+		this.index = ByteBuffer.allocateDirect(indexCapacity * Long.BYTES);
+	}
+
+	private static int hash(String personalId) {
+		int h = personalId.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return false if personalId is already in the set
+	 * @throws AccountException Account Store Full if the set is full
+	 */
+	boolean add(String personalId) {
+		byte[] pid = personalId.getBytes(StandardCharsets.UTF_8);
+		if (pid.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Personal id too long: " + pid.length + " bytes");
+		}
+		int hash = hash(personalId);
+		int mask = indexCapacity - 1;
+		int i = hash & mask;
+		long entry;
+		while ((entry = index.getLong(i * Long.BYTES)) != 0) {
+			if ((int) (entry >>> 32) == hash && personalIdEquals((int) entry - 1, pid)) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		if ((size + 1L) * 4 > MAX_INDEX_CAPACITY * 3L) {
+			throw new AccountException("Account Store Full");
+		}
+		index.putLong(i * Long.BYTES, ((long) hash << 32) | Integer.toUnsignedLong(store(pid) + 1));
+		size++;
+		if (size * 4L > indexCapacity * 3L) {
+			growIndex();
+		}
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * direct bytes allocated for the arena and the index
+	 */
+	long offHeapBytes() {
+		return index.capacity() + (long) arena.length * ARENA_CHUNK_SIZE;
+	}
+
+	/**
+	 * append pid to the arena as short length and bytes
+	 * @return chunk number and offset of the entry
+	 */
+	private int store(byte[] pid) {
+		int needed = 2 + pid.length;
+		ByteBuffer chunk = arena.length == 0 ? null : arena[arena.length - 1];
+		if (chunk == null || chunk.remaining() < needed) {
+			if (arena.length == MAX_ARENA_CHUNKS) {
+				throw new AccountException("Account Store Full");
+			}
+			arena = Arrays.copyOf(arena, arena.length + 1);
+			chunk = ByteBuffer.allocateDirect(ARENA_CHUNK_SIZE);
+			arena[arena.length - 1] = chunk;
+		}
+		int ref = ((arena.length - 1) << ARENA_BITS) | chunk.position();
+		chunk.putShort((short) pid.length).put(pid);
+		return ref;
+	}
+
+	private boolean personalIdEquals(int ref, byte[] pid) {
+		ByteBuffer chunk = arena[ref >>> ARENA_BITS];
+		int offset = ref & (ARENA_CHUNK_SIZE - 1);
+		if (chunk.getShort(offset) != pid.length) {
+			return false;
+		}
+		for (int i = 0; i < pid.length; i++) {
+			if (chunk.get(offset + 2 + i) != pid[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void growIndex() {
+		int capacity = indexCapacity * 2;
+		ByteBuffer grown = ByteBuffer.allocateDirect(capacity * Long.BYTES);
+		int mask = capacity - 1;
+		for (int j = 0; j < indexCapacity; j++) {
+			long entry = index.getLong(j * Long.BYTES);
+			if (entry != 0) {
+				int i = (int) (entry >>> 32) & mask;
+				while (grown.getLong(i * Long.BYTES) != 0) {
+					i = (i + 1) & mask;
+				}
+				grown.putLong(i * Long.BYTES, entry);
+			}
+		}
+		index = grown;
+		indexCapacity = capacity;
+	}
+}
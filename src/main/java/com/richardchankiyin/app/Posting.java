@@ -0,0 +1,15 @@
+package com.richardchankiyin.app;
+
+/**
+ * A single deposit or withdraw request, used by {@link IAccount#applyBatch(java.util.List)}
+ */
+public record Posting(String accountno, boolean isDeposit, double amount) {
+
+	public static Posting deposit(String accountno, double amount) {
+		return new Posting(accountno, true, amount);
+	}
+
+	public static Posting withdraw(String accountno, double amount) {
+		return new Posting(accountno, false, amount);
+	}
+}
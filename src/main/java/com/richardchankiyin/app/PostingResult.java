@@ -0,0 +1,11 @@
+package com.richardchankiyin.app;
+
+/**
+ * Outcome of one posting of a batch, error is null when it was applied
+ */
+public record PostingResult(Posting posting, AccountException error) {
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+}
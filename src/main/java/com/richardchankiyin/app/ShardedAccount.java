@@ -0,0 +1,456 @@
+package com.richardchankiyin.app;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * IAsyncAccount that partitions accounts over N shards, each owned by a
+ * single thread consuming a bounded queue. A shard is the only thread to
+ * touch its accounts, so account state needs no locks at all.
+ *
+ * Accounts live on the shard of their account no, personal ids on the
+ * shard of the personal id. createAccount first reserves the personal id
+ * on its shard, then opens the account on the owning shard and only
+ * completes once it is open there; if it fails, the personal id is
+ * released. A transfer between accounts of two shards is made in steps,
+ * see {@link #transfer(String, String, double)}. Balances are long minor units, see
+ * {@link FixedPoint}. A full queue blocks the caller (backpressure), but
+ * a shard handing work to another shard never blocks: it uses an
+ * unbounded hand-off queue instead, so two busy shards cannot deadlock.
+ *
+ * A request that fails completes its future exceptionally and the shard
+ * goes on. Once closed, requests are rejected with Engine Closed, and any
+ * request a stopped shard still holds is failed the same way, so every
+ * future completes.
+ */
+public class ShardedAccount implements IAsyncAccount, Closeable {
+
+	private static final int DEFAULT_SCALE = 2;
+	private static final int MAX_LAST_LIST_N_VAL = 10;
+	private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+	private static final int DRAIN_BATCH = 256;
+
+	private final Shard[] shards;
+	private final FixedPoint fixedPoint;
+	private final int historyCapacity;
+	private volatile boolean closed = false;
+
+	private static final class Ledger {
+		private long balance = 0;
+		private final TransactionHistory history;
+
+		private Ledger(int historyCapacity) {
+			history = new TransactionHistory(historyCapacity);
+		}
+	}
+
+	/**
+	 * work for a shard and the future it completes, failed if body throws
+	 */
+	private record Task(Consumer<Shard> body, CompletableFuture<?> future) {
+	}
+
+	private static final class Shard implements Runnable {
+		private static final Task STOP = new Task(s -> { }, null);
+		private static final Task WAKE_UP = new Task(s -> { }, null);
+
+		private final BlockingQueue<Task> queue;
+		private final ConcurrentLinkedQueue<Task> handoff = new ConcurrentLinkedQueue<>();
+		private final Map<String,Ledger> ledgers = new HashMap<>();
+		private final Set<String> personalIds = new HashSet<>();
+		private final Thread thread;
+		private volatile boolean running = true;
+
+		private Shard(int index, int queueCapacity) {
+			queue = new ArrayBlockingQueue<>(queueCapacity);
+			thread = new Thread(this, "account-shard-" + index);
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			List<Task> batch = new ArrayList<>(DRAIN_BATCH);
+			try {
+				while (running) {
+					try {
+						batch.add(queue.take());
+					} catch (InterruptedException e) {
+						return;
+					}
+					queue.drainTo(batch, DRAIN_BATCH - 1);
+					for (Task task : batch) {
+						if (task == STOP) {
+							running = false;
+						} else {
+							execute(task);
+						}
+					}
+					batch.clear();
+					Task task;
+					while ((task = handoff.poll()) != null) {
+						execute(task);
+					}
+				}
+			} finally {
+				running = false;
+				failRemaining();
+			}
+		}
+
+		private void execute(Task task) {
+			try {
+				task.body.accept(this);
+			} catch (RuntimeException e) {
+				task.future.completeExceptionally(e);
+			}
+		}
+
+		/**
+		 * fail what is left in the queues of a stopped shard. Called by the
+		 * shard as it stops and by whoever queues to it afterwards
+		 */
+		private void failRemaining() {
+			Task task;
+			while ((task = queue.poll()) != null || (task = handoff.poll()) != null) {
+				if (task.future != null) {
+					task.future.completeExceptionally(new AccountException("Engine Closed"));
+				}
+			}
+		}
+
+		private Ledger getLedger(String accountno) {
+			Ledger ledger = ledgers.get(accountno);
+			if (ledger == null) {
+				throw AccountException.INVALID_ACCOUNT;
+			}
+			return ledger;
+		}
+	}
+
+	public ShardedAccount() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param shards number of shards (and threads), typically one per core
+	 * @param queueCapacity bound of the request queue of each shard
+	 */
+	public ShardedAccount(int shards, int queueCapacity) {
+		this(shards, queueCapacity, DEFAULT_SCALE, MAX_LAST_LIST_N_VAL);
+	}
+
+	/**
+	 * @param shards number of shards (and threads), typically one per core
+	 * @param queueCapacity bound of the request queue of each shard
+	 * @param scale number of decimal places kept in the balance
+	 * @param historyCapacity number of most recent transactions retained per account
+	 */
+	public ShardedAccount(int shards, int queueCapacity, int scale, int historyCapacity) {
+		if (shards <= 0) {
+			throw new IllegalArgumentException("Shards must be positive: " + shards);
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		}
+		if (historyCapacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + historyCapacity);
+		}
+		this.fixedPoint = new FixedPoint(scale);
+		this.historyCapacity = historyCapacity;
+		this.shards = new Shard[shards];
+		for (int i = 0; i < shards; i++) {
+			this.shards[i] = new Shard(i, queueCapacity);
+			this.shards[i].thread.start();
+		}
+	}
+
+	private Shard shardFor(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return shards[Math.floorMod(h, shards.length)];
+	}
+
+	private void submit(Shard shard, Consumer<Shard> body, CompletableFuture<?> future) {
+		if (closed || !shard.running) {
+			future.completeExceptionally(new AccountException("Engine Closed"));
+			return;
+		}
+		try {
+			shard.queue.put(new Task(body, future));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(new AccountException("Interrupted", e));
+			return;
+		}
+		// the shard may have stopped since it was checked
+		if (!shard.running) {
+			shard.failRemaining();
+		}
+	}
+
+	/**
+	 * queue task to owner from another shard, without blocking
+	 */
+	private static void handOff(Shard owner, Task task) {
+		owner.handoff.add(task);
+		// if the queue is full the owner is busy and checks handoff after its batch
+		owner.queue.offer(Shard.WAKE_UP);
+		if (!owner.running) {
+			owner.failRemaining();
+		}
+	}
+
+	/**
+	 * run action on the shard of key, for tests of how a shard handles
+	 * failures
+	 */
+	CompletableFuture<Void> runOnShard(String key, Runnable action) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		submit(shardFor(key), shard -> {
+			action.run();
+			future.complete(null);
+		}, future);
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<String> createAccount(String personalId) {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		submit(shardFor(personalId), shard -> {
+			if (!shard.personalIds.add(personalId)) {
+				future.completeExceptionally(new AccountException("Personal Id duplicated"));
+				return;
+			}
+			// e.g. the owner stopped: free the personal id for a retry
+			future.whenComplete((accountno, e) -> {
+				if (e != null) {
+					handOff(shard, new Task(s -> s.personalIds.remove(personalId), null));
+				}
+			});
+			String accountno = UUID.randomUUID().toString();
+			handOff(shardFor(accountno), new Task(o -> {
+				o.ledgers.put(accountno, new Ledger(historyCapacity));
+				future.complete(accountno);
+			}, future));
+		}, future);
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Void> deposit(String accountno, double amt) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		submit(shardFor(accountno), shard -> {
+			try {
+				deposit(shard, accountno, amt);
+				future.complete(null);
+			} catch (AccountException e) {
+				future.completeExceptionally(e);
+			}
+		}, future);
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Void> withdraw(String accountno, double amt) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		submit(shardFor(accountno), shard -> {
+			try {
+				withdraw(shard, accountno, amt);
+				future.complete(null);
+			} catch (AccountException e) {
+				future.completeExceptionally(e);
+			}
+		}, future);
+		return future;
+	}
+
+	private void deposit(Shard shard, String accountno, double amt) {
+		Ledger ledger = shard.getLedger(accountno);
+		long units = fixedPoint.toUnits(amt);
+		ledger.balance = fixedPoint.add(ledger.balance, units);
+		ledger.history.append(accountno, true, amt, System.currentTimeMillis());
+	}
+
+	private void withdraw(Shard shard, String accountno, double amt) {
+		Ledger ledger = shard.getLedger(accountno);
+		long units = fixedPoint.toUnits(amt);
+		if (ledger.balance < units) {
+			throw AccountException.INSUFFICIENT_BALANCE;
+		}
+		ledger.balance -= units;
+		ledger.history.append(accountno, false, amt, System.currentTimeMillis());
+	}
+
+	/**
+	 * Between accounts of one shard the transfer is made in one step. Across
+	 * shards the shard of fromAccountno takes the amount, the shard of
+	 * toAccountno adds it, and the shard of fromAccountno then records the
+	 * withdraw and completes the future. A reader in between sees the
+	 * amount in neither account. If toAccountno refuses it (Invalid
+	 * Account, Balance Overflow), the amount is given back and the future
+	 * fails with that error; a transfer cut short by close fails with
+	 * Engine Closed.
+	 */
+	@Override
+	public CompletableFuture<Void> transfer(String fromAccountno, String toAccountno, double amt) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		submit(shardFor(fromAccountno), shard -> {
+			try {
+				Ledger from = shard.getLedger(fromAccountno);
+				long units = fixedPoint.toUnits(amt);
+				if (fromAccountno.equals(toAccountno)) {
+					throw AccountException.TRANSFER_TO_SAME_ACCOUNT;
+				}
+				long timestamp = System.currentTimeMillis();
+				Shard owner = shardFor(toAccountno);
+				if (owner == shard) {
+					Ledger to = shard.getLedger(toAccountno);
+					if (from.balance < units) {
+						throw AccountException.INSUFFICIENT_BALANCE;
+					}
+					to.balance = fixedPoint.add(to.balance, units);
+					from.balance -= units;
+					from.history.append(fromAccountno, false, amt, timestamp);
+					to.history.append(toAccountno, true, amt, timestamp);
+					future.complete(null);
+					return;
+				}
+				if (from.balance < units) {
+					throw AccountException.INSUFFICIENT_BALANCE;
+				}
+				from.balance -= units;
+				handOff(owner, new Task(o -> {
+					try {
+						Ledger to = o.getLedger(toAccountno);
+						to.balance = fixedPoint.add(to.balance, units);
+						to.history.append(toAccountno, true, amt, timestamp);
+					} catch (AccountException e) {
+						handOff(shard, new Task(s -> {
+							from.balance += units;
+							future.completeExceptionally(e);
+						}, future));
+						return;
+					}
+					handOff(shard, new Task(s -> {
+						from.history.append(fromAccountno, false, amt, timestamp);
+						future.complete(null);
+					}, future));
+				}, future));
+			} catch (AccountException e) {
+				future.completeExceptionally(e);
+			}
+		}, future);
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<Double> enquirebalance(String accountno) {
+		CompletableFuture<Double> future = new CompletableFuture<>();
+		submit(shardFor(accountno), shard -> {
+			try {
+				future.complete(fixedPoint.toDouble(shard.getLedger(accountno).balance));
+			} catch (AccountException e) {
+				future.completeExceptionally(e);
+			}
+		}, future);
+		return future;
+	}
+
+	@Override
+	public CompletableFuture<List<Transaction>> listLastNTransactions(String accountno, int n) {
+		CompletableFuture<List<Transaction>> future = new CompletableFuture<>();
+		submit(shardFor(accountno), shard -> {
+			try {
+				Ledger ledger = shard.getLedger(accountno);
+				if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
+					throw new AccountException("No of Transactions Arg not permitted");
+				}
+				future.complete(ledger.history.lastN(n));
+			} catch (AccountException e) {
+				future.completeExceptionally(e);
+			}
+		}, future);
+		return future;
+	}
+
+	/**
+	 * The postings of each shard are applied in one request to it, in list
+	 * order, so postings to one account keep their order.
+	 */
+	@Override
+	public CompletableFuture<List<PostingResult>> applyBatch(List<Posting> postings) {
+		PostingResult[] results = new PostingResult[postings.size()];
+		Map<Shard,List<Integer>> byShard = new HashMap<>();
+		for (int i = 0; i < results.length; i++) {
+			Posting posting = postings.get(i);
+			if (posting.accountno() == null) {
+				results[i] = new PostingResult(posting, AccountException.INVALID_ACCOUNT);
+			} else {
+				byShard.computeIfAbsent(shardFor(posting.accountno()), k -> new ArrayList<>()).add(i);
+			}
+		}
+		List<CompletableFuture<Void>> parts = new ArrayList<>(byShard.size());
+		byShard.forEach((target, indexes) -> {
+			CompletableFuture<Void> part = new CompletableFuture<>();
+			submit(target, shard -> {
+				for (int i : indexes) {
+					Posting posting = postings.get(i);
+					AccountException error = null;
+					try {
+						if (posting.isDeposit()) {
+							deposit(shard, posting.accountno(), posting.amount());
+						} else {
+							withdraw(shard, posting.accountno(), posting.amount());
+						}
+					} catch (AccountException e) {
+						error = e;
+					}
+					results[i] = new PostingResult(posting, error);
+				}
+				part.complete(null);
+			}, part);
+			parts.add(part);
+		});
+		return CompletableFuture.allOf(parts.toArray(new CompletableFuture[0])).thenApply(v -> Arrays.asList(results));
+	}
+
+	/**
+	 * stop the shard threads once the requests already queued are
+	 * processed, rejecting any request made from now on
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (Shard shard : shards) {
+			try {
+				while (shard.thread.isAlive() && !shard.queue.offer(Shard.STOP, 10, TimeUnit.MILLISECONDS)) {
+					// the shard is still working through a full queue
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				shard.thread.interrupt();
+			}
+		}
+		for (Shard shard : shards) {
+			try {
+				shard.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
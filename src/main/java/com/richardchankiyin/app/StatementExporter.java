@@ -0,0 +1,252 @@
+package com.richardchankiyin.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Writes statements (balance and retained transactions) of accounts of an
+ * {@link Account} to a channel, for month-end runs over many accounts.
+ * Build the Account with {@link Account.Builder#retainAllTransactions()}
+ * for statements with every transaction rather than the last few.
+ *
+ * Transactions are encoded straight from the history into a direct buffer
+ * and the buffer is written to the channel, with no object allocated per
+ * transaction. Buffers are pooled and reused across exports. An account
+ * is copied a buffer at a time under its lock and the buffer is written
+ * out with the lock released, so a deposit or withdraw on the account
+ * waits for at most one buffer of encoding. The statement is as of the
+ * moment the first buffer of the account was taken: transactions
+ * posted later are left out and the balance matches the transactions.
+ *
+ * Layout: magic and version, then per account the account no (length
+ * and ASCII bytes), the balance, one record per transaction (kind 1
+ * deposit or 2 withdraw, sequence, timestamp, amount) and kind 0 to end
+ * the account.
+ */
+public class StatementExporter {
+
+	private static final int MAGIC = 0x53544d54;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte END = 0;
+	private static final byte DEPOSIT = 1;
+	private static final byte WITHDRAW = 2;
+	private static final int TRANSACTION_SIZE = 1 + 8 + 8 + 8;
+
+	/**
+	 * Receives the statements of an export file, in the order written
+	 */
+	public interface Handler {
+		void onAccount(String accountno, double balance);
+
+		void onTransaction(Transaction txn);
+	}
+
+	private final Account account;
+	private final ForkJoinPool pool;
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	public StatementExporter(Account account) {
+		this(account, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool pool that segments of a parallel export are written on
+	 */
+	public StatementExporter(Account account, ForkJoinPool pool) {
+		this.account = account;
+		this.pool = pool;
+	}
+
+	/**
+	 * write the statements of accountnos to out, in that order
+	 * @return number of transactions written
+	 * @throws AccountException Invalid Account if one of them does not exist
+	 */
+	public long export(List<String> accountnos, WritableByteChannel out) throws IOException {
+		ByteBuffer buf = takeBuffer();
+		try {
+			buf.putInt(MAGIC).putInt(VERSION);
+			long written = 0;
+			for (String accountno : accountnos) {
+				written += exportAccount(account.stateOf(accountno), buf, out);
+			}
+			drain(out, buf);
+			return written;
+		} finally {
+			buffers.offer(buf);
+		}
+	}
+
+	/**
+	 * write the statements of accountnos to file, replacing it
+	 * @return number of transactions written
+	 */
+	public long export(List<String> accountnos, Path file) throws IOException {
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			return export(accountnos, out);
+		}
+	}
+
+	/**
+	 * write the statements of accountnos to segments files in dir, each
+	 * holding a contiguous run of accountnos and written in parallel
+	 * @return the files, in the order of accountnos
+	 */
+	public List<Path> export(List<String> accountnos, Path dir, int segments) throws IOException {
+		if (segments <= 0) {
+			throw new IllegalArgumentException("Segments must be positive: " + segments);
+		}
+		List<Path> files = new ArrayList<>(segments);
+		for (int i = 0; i < segments; i++) {
+			files.add(dir.resolve(String.format("statements-%05d.bin", i)));
+		}
+		int size = accountnos.size();
+		try {
+			pool.submit(() -> IntStream.range(0, segments).parallel().forEach(i -> {
+				try {
+					export(accountnos.subList((int) ((long) size * i / segments), (int) ((long) size * (i + 1) / segments)), files.get(i));
+				} catch (IOException e) {
+					throw new AccountException("Export Failure", e);
+				}
+			})).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AccountException("Interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new AccountException("Export Failure", e.getCause());
+		}
+		return files;
+	}
+
+	/**
+	 * write the statements of every account to segments files in dir
+	 */
+	public List<Path> exportAll(Path dir, int segments) throws IOException {
+		return export(account.accountnos(), dir, segments);
+	}
+
+	/**
+	 * feed the statements in file to handler
+	 */
+	public static void read(Path file, Handler handler) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+			if (buf.remaining() < 8 || buf.getInt() != MAGIC) {
+				throw new IOException("Not a statement export: " + file);
+			}
+			int version = buf.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported statement export version " + version);
+			}
+			while (buf.hasRemaining()) {
+				byte[] acc = new byte[buf.getInt()];
+				buf.get(acc);
+				String accountno = new String(acc, StandardCharsets.US_ASCII);
+				handler.onAccount(accountno, buf.getDouble());
+				for (byte kind = buf.get(); kind != END; kind = buf.get()) {
+					long sequence = buf.getLong();
+					long timestamp = buf.getLong();
+					handler.onTransaction(new Transaction(accountno, kind == DEPOSIT, buf.getDouble(), sequence, timestamp));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the balance and then the transactions up to the last one
+	 * there was when the balance was read. Each time the buffer fills the
+	 * lock is released, the buffer drained and the copy resumed after the
+	 * last sequence written.
+	 */
+	private long exportAccount(AccountState state, ByteBuffer buf, WritableByteChannel out) throws IOException {
+		String accountno = state.accountno;
+		if (buf.remaining() < 4 + accountno.length() + 8 + TRANSACTION_SIZE + 1) {
+			drain(out, buf);
+		}
+		long written = 0;
+		long lastSequence = 0;
+		long cutoff = -1;
+		while (true) {
+			state.lock.lock();
+			try {
+				TransactionStore history = state.history;
+				int size = history.size();
+				if (cutoff < 0) {
+					cutoff = size == 0 ? 0 : history.get(size - 1).sequence();
+					buf.putInt(accountno.length());
+					for (int i = 0; i < accountno.length(); i++) {
+						buf.put((byte) accountno.charAt(i));
+					}
+					buf.putDouble(state.balance.doubleValue());
+				}
+				for (int i = indexAfter(history, lastSequence); i < size; i++) {
+					Transaction txn = history.get(i);
+					if (txn.sequence() > cutoff) {
+						break;
+					}
+					if (buf.remaining() < TRANSACTION_SIZE + 1) {
+						break;
+					}
+					buf.put(txn.isDeposit() ? DEPOSIT : WITHDRAW).putLong(txn.sequence()).putLong(txn.timestamp()).putDouble(txn.amount());
+					lastSequence = txn.sequence();
+					written++;
+				}
+			} finally {
+				state.lock.unlock();
+			}
+			if (lastSequence >= cutoff || buf.remaining() >= TRANSACTION_SIZE + 1) {
+				buf.put(END);
+				return written;
+			}
+			drain(out, buf);
+		}
+	}
+
+	/**
+	 * index of the first transaction with a sequence above sequence
+	 */
+	private static int indexAfter(TransactionStore history, long sequence) {
+		int low = 0;
+		int high = history.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (history.get(mid).sequence() <= sequence) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private ByteBuffer takeBuffer() {
+		ByteBuffer buf = buffers.poll();
+		return buf == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buf.clear();
+	}
+
+	private static void drain(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+}
@@ -0,0 +1,428 @@
+package com.richardchankiyin.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * IAccount keeping only recently used accounts on the heap and paging the
+ * rest out to a local file, for books where most accounts are dormant.
+ *
+ * Accounts are numbered by slot as in {@link OffHeapAccount} and have the
+ * same fixed-size record: the balance in long minor units (see
+ * {@link FixedPoint}), the number of transactions so far and a ring of the
+ * last historyCapacity transactions. The hot tier holds up to hotCapacity
+ * of them as heap ledgers, in access-ordered maps split into shards by
+ * slot. Touching an account that is not hot, by deposit, withdraw,
+ * transfer, enquirebalance or listLastNTransactions, reads its record from
+ * the file at slot * record size and makes it hot; the least recently used
+ * account of the shard is then evicted, written back first if it changed.
+ * Personal ids are only kept to reject duplicates, in an off-heap
+ * {@link PersonalIdIndex}, so the heap does not grow with the accounts.
+ *
+ * Each shard has one lock, held for the whole call including the file
+ * read and write, so a miss delays the other accounts of its shard.
+ * createAccount is serialised. The file is scratch space rather than a
+ * store to recover from: it is truncated when opened and deleted on close,
+ * or straight away on platforms that keep an open file without a name.
+ */
+public class TieredAccount implements IAccount, Closeable {
+
+	private static final int DEFAULT_SCALE = 2;
+	private static final int DEFAULT_HOT_CAPACITY = 1 << 16;
+	private static final int MAX_LAST_LIST_N_VAL = 10;
+
+	// account record layout
+	private static final int BALANCE = 0;
+	private static final int TXN_COUNT = 8;
+	private static final int HISTORY = 16;
+	private static final int HISTORY_ENTRY = 16;
+
+	/**
+	 * A hot account: the record as fields, history as (signed units,
+	 * timestamp) pairs.
+	 */
+	private static final class Ledger {
+		private long balance;
+		private long txnCount;
+		private final long[] history;
+		/** changed since read from or written to the file */
+		private boolean dirty;
+
+		private Ledger(int historyCapacity) {
+			this.history = new long[historyCapacity * 2];
+		}
+	}
+
+	private static final class Shard {
+		private final ReentrantLock lock = new ReentrantLock();
+		/** hot accounts by slot, least recently used first */
+		private final LinkedHashMap<Integer,Ledger> hot = new LinkedHashMap<>(16, 0.75f, true);
+		/** record buffer for the file reads and writes of this shard */
+		private final ByteBuffer io;
+
+		private Shard(int recordSize) {
+			this.io = ByteBuffer.allocateDirect(recordSize);
+		}
+	}
+
+	private final FixedPoint fixedPoint;
+	private final int historyCapacity;
+	private final int recordSize;
+	private final FileChannel file;
+	private final Shard[] shards;
+	private final int shardCapacity;
+	private final ReentrantLock createLock = new ReentrantLock();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	private volatile int size = 0;
+
+	// only touched under createLock
+	private final PersonalIdIndex personalIds = new PersonalIdIndex();
+
+	/**
+	 * pages out to a temporary file
+	 */
+	public TieredAccount() {
+		this(tempFile(), DEFAULT_HOT_CAPACITY, DEFAULT_SCALE, MAX_LAST_LIST_N_VAL);
+	}
+
+	/**
+	 * @param file file cold accounts are paged out to, replaced if it exists
+	 * @param hotCapacity number of accounts kept on the heap, at least 2
+	 * @param scale number of decimal places kept in the balance
+	 * @param historyCapacity number of most recent transactions retained per account
+	 */
+	public TieredAccount(Path file, int hotCapacity, int scale, int historyCapacity) {
+		if (hotCapacity < 2) {
+			throw new IllegalArgumentException("Hot capacity must be at least 2: " + hotCapacity);
+		}
+		if (historyCapacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + historyCapacity);
+		}
+		this.fixedPoint = new FixedPoint(scale);
+		this.historyCapacity = historyCapacity;
+		this.recordSize = HISTORY + historyCapacity * HISTORY_ENTRY;
+		// a shard holds at least 2, so the two accounts of a transfer stay hot together
+		int shardCount = Math.min(Account.defaultStripes(), hotCapacity / 2);
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(recordSize);
+		}
+		this.shardCapacity = hotCapacity / shardCount;
+		try {
+			this.file = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Path tempFile() {
+		try {
+			return Files.createTempFile("tiered-account", ".dat");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * number of account lookups served from the heap
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * number of account lookups that read the account back from the file
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * number of accounts paged out of the hot tier
+	 */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * number of accounts currently on the heap
+	 */
+	public int hotAccounts() {
+		int hot = 0;
+		for (Shard shard : shards) {
+			shard.lock.lock();
+			try {
+				hot += shard.hot.size();
+			} finally {
+				shard.lock.unlock();
+			}
+		}
+		return hot;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private int slotOf(String accountno) {
+		long id = NumericAccountIdStrategy.decode(accountno);
+		if (id == 0 || id > size) {
+			throw AccountException.INVALID_ACCOUNT;
+		}
+		return (int) (id - 1);
+	}
+
+	private Shard shardOf(int slot) {
+		return shards[slot % shards.length];
+	}
+
+	/**
+	 * the ledger of slot, read from the file if it is not hot. Caller
+	 * holds the lock of the shard
+	 */
+	private Ledger ledger(Shard shard, int slot) {
+		Ledger ledger = shard.hot.get(slot);
+		if (ledger != null) {
+			hits.increment();
+			return ledger;
+		}
+		misses.increment();
+		ledger = read(shard, slot);
+		shard.hot.put(slot, ledger);
+		evict(shard);
+		return ledger;
+	}
+
+	/**
+	 * page the least recently used accounts out while the shard is over
+	 * capacity. Caller holds the lock of the shard
+	 */
+	private void evict(Shard shard) {
+		Iterator<Map.Entry<Integer,Ledger>> it = shard.hot.entrySet().iterator();
+		while (shard.hot.size() > shardCapacity) {
+			Map.Entry<Integer,Ledger> eldest = it.next();
+			if (eldest.getValue().dirty) {
+				write(shard, eldest.getKey(), eldest.getValue());
+			}
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * An account never written to the file reads as zeros, as a new one.
+	 */
+	private Ledger read(Shard shard, int slot) {
+		ByteBuffer io = shard.io.clear();
+		try {
+			long position = (long) slot * recordSize;
+			while (io.hasRemaining()) {
+				if (file.read(io, position + io.position()) < 0) {
+					while (io.hasRemaining()) {
+						io.put((byte) 0);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new AccountException("Account Store Failure", e);
+		}
+		io.flip();
+		Ledger ledger = new Ledger(historyCapacity);
+		ledger.balance = io.getLong(BALANCE);
+		ledger.txnCount = io.getLong(TXN_COUNT);
+		for (int i = 0; i < ledger.history.length; i++) {
+			ledger.history[i] = io.getLong(HISTORY + i * Long.BYTES);
+		}
+		return ledger;
+	}
+
+	private void write(Shard shard, int slot, Ledger ledger) {
+		ByteBuffer io = shard.io.clear();
+		io.putLong(ledger.balance).putLong(ledger.txnCount);
+		for (long value : ledger.history) {
+			io.putLong(value);
+		}
+		io.flip();
+		try {
+			long position = (long) slot * recordSize;
+			while (io.hasRemaining()) {
+				file.write(io, position + io.position());
+			}
+		} catch (IOException e) {
+			throw new AccountException("Account Store Failure", e);
+		}
+		ledger.dirty = false;
+	}
+
+	@Override
+	public String createAccount(String personalId) {
+		createLock.lock();
+		try {
+			int slot = size;
+			if (!personalIds.add(personalId)) {
+				throw new AccountException("Personal Id duplicated");
+			}
+			// clean, as its record in the file is still zeros
+			Ledger ledger = new Ledger(historyCapacity);
+			Shard shard = shardOf(slot);
+			shard.lock.lock();
+			try {
+				shard.hot.put(slot, ledger);
+				evict(shard);
+			} finally {
+				shard.lock.unlock();
+			}
+			size = slot + 1;
+			return NumericAccountIdStrategy.encode(slot + 1L);
+		} finally {
+			createLock.unlock();
+		}
+	}
+
+	/**
+	 * add a transaction to the history ring of the ledger, stamped no
+	 * earlier than the one before it. Caller holds the lock of its shard
+	 */
+	private void addTransaction(Ledger ledger, long signedUnits) {
+		long count = ledger.txnCount;
+		long timestamp = System.currentTimeMillis();
+		if (count > 0) {
+			timestamp = Math.max(timestamp, ledger.history[(int) ((count - 1) % historyCapacity) * 2 + 1]);
+		}
+		int entry = (int) (count % historyCapacity) * 2;
+		ledger.history[entry] = signedUnits;
+		ledger.history[entry + 1] = timestamp;
+		ledger.txnCount = count + 1;
+		ledger.dirty = true;
+	}
+
+	@Override
+	public void deposit(String accountno, double amt) {
+		int slot = slotOf(accountno);
+		long units = fixedPoint.toUnits(amt);
+		Shard shard = shardOf(slot);
+		shard.lock.lock();
+		try {
+			Ledger ledger = ledger(shard, slot);
+			ledger.balance = fixedPoint.add(ledger.balance, units);
+			addTransaction(ledger, units);
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+
+	@Override
+	public void withdraw(String accountno, double amt) {
+		int slot = slotOf(accountno);
+		long units = fixedPoint.toUnits(amt);
+		Shard shard = shardOf(slot);
+		shard.lock.lock();
+		try {
+			Ledger ledger = ledger(shard, slot);
+			if (ledger.balance < units) {
+				throw AccountException.INSUFFICIENT_BALANCE;
+			}
+			ledger.balance -= units;
+			addTransaction(ledger, -units);
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Shards are locked in ascending order, so concurrent transfers in
+	 * opposite directions cannot deadlock.
+	 */
+	@Override
+	public void transfer(String fromAccountno, String toAccountno, double amt) {
+		int fromSlot = slotOf(fromAccountno);
+		int toSlot = slotOf(toAccountno);
+		long units = fixedPoint.toUnits(amt);
+		if (fromSlot == toSlot) {
+			throw AccountException.TRANSFER_TO_SAME_ACCOUNT;
+		}
+		Shard fromShard = shardOf(fromSlot);
+		Shard toShard = shardOf(toSlot);
+		Shard first = shards[Math.min(fromSlot % shards.length, toSlot % shards.length)];
+		Shard second = first == fromShard ? toShard : fromShard;
+		first.lock.lock();
+		try {
+			if (second != first) {
+				second.lock.lock();
+			}
+			try {
+				Ledger from = ledger(fromShard, fromSlot);
+				Ledger to = ledger(toShard, toSlot);
+				if (from.balance < units) {
+					throw AccountException.INSUFFICIENT_BALANCE;
+				}
+				long toBalance = fixedPoint.add(to.balance, units);
+				from.balance -= units;
+				to.balance = toBalance;
+				addTransaction(from, -units);
+				addTransaction(to, units);
+			} finally {
+				if (second != first) {
+					second.lock.unlock();
+				}
+			}
+		} finally {
+			first.lock.unlock();
+		}
+	}
+
+	@Override
+	public double enquirebalance(String accountno) {
+		int slot = slotOf(accountno);
+		Shard shard = shardOf(slot);
+		shard.lock.lock();
+		try {
+			return fixedPoint.toDouble(ledger(shard, slot).balance);
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+
+	@Override
+	public List<Transaction> listLastNTransactions(String accountno, int n) {
+		int slot = slotOf(accountno);
+		if (n <= 0 || n > MAX_LAST_LIST_N_VAL) {
+			throw new AccountException("No of Transactions Arg not permitted");
+		}
+		Shard shard = shardOf(slot);
+		shard.lock.lock();
+		try {
+			Ledger ledger = ledger(shard, slot);
+			long count = ledger.txnCount;
+			int k = (int) Math.min(Math.min(n, historyCapacity), count);
+			List<Transaction> result = new ArrayList<>(k);
+			for (long seq = count - k + 1; seq <= count; seq++) {
+				int entry = (int) ((seq - 1) % historyCapacity) * 2;
+				long signedUnits = ledger.history[entry];
+				result.add(new Transaction(accountno, signedUnits > 0, fixedPoint.toDouble(Math.abs(signedUnits)),
+						seq, ledger.history[entry + 1]));
+			}
+			return result;
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+}
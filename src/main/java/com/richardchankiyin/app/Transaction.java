@@ -1,5 +1,14 @@
 package com.richardchankiyin.app;
 
-public record Transaction(String accountno, boolean isDeposit, double amount) {
+/**
+ * @param sequence position of the transaction in its account, 1 for the
+ * first one and one more for each after it; 0 if the engine does not number them
+ * @param timestamp epoch millis the transaction was applied at, never
+ * decreasing within an account; 0 if the engine does not record it
+ */
+public record Transaction(String accountno, boolean isDeposit, double amount, long sequence, long timestamp) {
 
+	public Transaction(String accountno, boolean isDeposit, double amount) {
+		this(accountno, isDeposit, amount, 0, 0);
+	}
 }
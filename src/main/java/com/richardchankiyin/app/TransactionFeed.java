@@ -0,0 +1,308 @@
+package com.richardchankiyin.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Change feed of an {@link Account}: every transaction posted after a
+ * subscriber subscribes, delivered to it in batches. Subscribe through
+ * {@link Account#changeFeed()}.
+ *
+ * Transactions are put in the buffer of each subscriber under the lock of
+ * their account, so a subscriber sees the transactions of an account in
+ * sequence order; transactions of different accounts may interleave.
+ * Each onNext carries up to maxBatch transactions and counts as one of
+ * the items requested. Deliveries run on the executor of the feed, one at
+ * a time per subscriber.
+ *
+ * Buffers are bounded. When a subscriber's buffer is full, BLOCK makes
+ * the posting wait, holding the account lock, until the subscriber takes
+ * a batch; DROP leaves the transaction out for that subscriber and counts
+ * it in {@link #dropped()}. A BLOCK subscriber must therefore not post to
+ * the Account from onNext. With no subscriber a posting only reads one
+ * volatile field. Transactions are delivered once applied, which with a
+ * journal may be before they are durable.
+ */
+public class TransactionFeed implements Flow.Publisher<List<Transaction>> {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+	public static final int DEFAULT_MAX_BATCH = 64;
+
+	/**
+	 * what a posting does when a subscriber's buffer is full
+	 */
+	public enum OverflowPolicy { BLOCK, DROP }
+
+	private static final FeedSubscription[] NONE = new FeedSubscription[0];
+
+	private final Executor executor;
+	private final ReentrantLock subscribeLock = new ReentrantLock();
+	private final LongAdder dropped = new LongAdder();
+	private volatile FeedSubscription[] subscriptions = NONE;
+	private volatile boolean closed = false;
+
+	TransactionFeed(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * subscribe with a buffer of DEFAULT_BUFFER_SIZE transactions, batches
+	 * of up to DEFAULT_MAX_BATCH and the BLOCK policy
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super List<Transaction>> subscriber) {
+		subscribe(subscriber, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_BATCH, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * @param bufferSize number of transactions held for subscriber at most
+	 * @param maxBatch number of transactions delivered in one onNext at most
+	 * @param policy what a posting does when the buffer is full
+	 */
+	public void subscribe(Flow.Subscriber<? super List<Transaction>> subscriber, int bufferSize, int maxBatch, OverflowPolicy policy) {
+		Objects.requireNonNull(subscriber);
+		Objects.requireNonNull(policy);
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		}
+		if (maxBatch <= 0) {
+			throw new IllegalArgumentException("Max batch must be positive: " + maxBatch);
+		}
+		FeedSubscription subscription = new FeedSubscription(subscriber, bufferSize, maxBatch, policy);
+		subscribeLock.lock();
+		try {
+			if (!closed) {
+				FeedSubscription[] grown = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+				grown[subscriptions.length] = subscription;
+				subscriptions = grown;
+			}
+		} finally {
+			subscribeLock.unlock();
+		}
+		subscriber.onSubscribe(subscription);
+		if (closed) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * number of subscribers not cancelled
+	 */
+	public int subscribers() {
+		return subscriptions.length;
+	}
+
+	/**
+	 * number of transactions left out for a subscriber with the DROP
+	 * policy, over all subscribers
+	 */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	boolean hasSubscribers() {
+		return subscriptions.length != 0;
+	}
+
+	/**
+	 * caller holds the lock of the account of txn
+	 */
+	void publish(Transaction txn) {
+		for (FeedSubscription subscription : subscriptions) {
+			subscription.offer(txn);
+		}
+	}
+
+	/**
+	 * complete every subscriber once its buffer is delivered, and any
+	 * subscriber subscribing later straight away
+	 */
+	void close() {
+		FeedSubscription[] completing;
+		subscribeLock.lock();
+		try {
+			closed = true;
+			completing = subscriptions;
+			subscriptions = NONE;
+		} finally {
+			subscribeLock.unlock();
+		}
+		for (FeedSubscription subscription : completing) {
+			subscription.complete();
+		}
+	}
+
+	private void remove(FeedSubscription subscription) {
+		subscribeLock.lock();
+		try {
+			FeedSubscription[] current = subscriptions;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == subscription) {
+					FeedSubscription[] shrunk = Arrays.copyOf(current, current.length - 1);
+					System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+					subscriptions = shrunk;
+					return;
+				}
+			}
+		} finally {
+			subscribeLock.unlock();
+		}
+	}
+
+	/**
+	 * A ring buffer filled by posting threads and drained by at most one
+	 * delivery task at a time, run on the executor whenever there are both
+	 * transactions and demand.
+	 */
+	private final class FeedSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super List<Transaction>> subscriber;
+		private final int maxBatch;
+		private final OverflowPolicy policy;
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notFull = lock.newCondition();
+		private final Transaction[] buffer;
+		private int head = 0;
+		private int count = 0;
+		private final AtomicLong demand = new AtomicLong();
+		/** pending delivery signals, the task runs while it is above 0 */
+		private final AtomicInteger signals = new AtomicInteger();
+		private volatile boolean cancelled = false;
+		private volatile boolean completing = false;
+		private volatile Throwable failure = null;
+
+		private FeedSubscription(Flow.Subscriber<? super List<Transaction>> subscriber, int bufferSize, int maxBatch, OverflowPolicy policy) {
+			this.subscriber = subscriber;
+			this.maxBatch = maxBatch;
+			this.policy = policy;
+			this.buffer = new Transaction[bufferSize];
+		}
+
+		private void offer(Transaction txn) {
+			if (cancelled) {
+				return;
+			}
+			lock.lock();
+			try {
+				while (count == buffer.length) {
+					if (cancelled) {
+						return;
+					}
+					if (policy == OverflowPolicy.DROP) {
+						dropped.increment();
+						return;
+					}
+					notFull.awaitUninterruptibly();
+				}
+				buffer[(head + count) % buffer.length] = txn;
+				count++;
+			} finally {
+				lock.unlock();
+			}
+			signal();
+		}
+
+		private List<Transaction> poll() {
+			lock.lock();
+			try {
+				int n = Math.min(count, maxBatch);
+				List<Transaction> batch = new ArrayList<>(n);
+				for (int i = 0; i < n; i++) {
+					batch.add(buffer[head]);
+					buffer[head] = null;
+					head = head + 1 == buffer.length ? 0 : head + 1;
+				}
+				count -= n;
+				notFull.signalAll();
+				return batch;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private boolean isEmpty() {
+			lock.lock();
+			try {
+				return count == 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				failure = new IllegalArgumentException("Request must be positive: " + n);
+			} else {
+				demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			remove(this);
+			lock.lock();
+			try {
+				Arrays.fill(buffer, null);
+				count = 0;
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void complete() {
+			completing = true;
+			signal();
+		}
+
+		private void signal() {
+			if (signals.getAndIncrement() == 0) {
+				executor.execute(this::deliver);
+			}
+		}
+
+		/**
+		 * deliver batches while there are transactions and demand, then
+		 * onComplete or onError if due. Runs again if signalled meanwhile
+		 */
+		private void deliver() {
+			int missed = 1;
+			do {
+				try {
+					while (!cancelled && failure == null && demand.get() > 0) {
+						List<Transaction> batch = poll();
+						if (batch.isEmpty()) {
+							break;
+						}
+						if (demand.get() != Long.MAX_VALUE) {
+							demand.decrementAndGet();
+						}
+						subscriber.onNext(batch);
+					}
+					if (!cancelled && failure != null) {
+						cancel();
+						subscriber.onError(failure);
+					} else if (!cancelled && completing && isEmpty()) {
+						cancel();
+						subscriber.onComplete();
+					}
+				} catch (RuntimeException e) {
+					// a subscriber throwing is cancelled, per the Flow rules
+					cancel();
+				}
+				missed = signals.addAndGet(-missed);
+			} while (missed != 0);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.richardchankiyin.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring buffer keeping the most recent transactions of an
+ * account. Once full, every append overwrites the oldest entry, so memory
+ * per account stays constant however long the account lives.
+ *
+ * Not thread safe, callers guard it with the lock of the account.
+ */
+public class TransactionHistory implements TransactionStore {
+
+	private final Transaction[] ring;
+	private int next = 0;
+	private int size = 0;
+
+	public TransactionHistory(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+		}
+		ring = new Transaction[capacity];
+	}
+
+	/**
+	 * append a transaction in O(1) without allocation,
+	 * evicting the oldest one if the buffer is full
+	 * @param txn
+	 */
+	@Override
+	public void add(Transaction txn) {
+		ring[next] = txn;
+		next = next + 1 == ring.length ? 0 : next + 1;
+		if (size < ring.length) {
+			size++;
+		}
+	}
+
+	/**
+	 * copy of the last n transactions, oldest first.
+	 * Returns fewer than n if fewer are retained
+	 * @param n
+	 * @return list of transactions
+	 */
+	@Override
+	public List<Transaction> lastN(int n) {
+		int count = Math.min(n, size);
+		List<Transaction> result = new ArrayList<>(count);
+		int idx = next - count;
+		if (idx < 0) {
+			idx += ring.length;
+		}
+		for (int i = 0; i < count; i++) {
+			result.add(ring[idx]);
+			idx = idx + 1 == ring.length ? 0 : idx + 1;
+		}
+		return result;
+	}
+
+	@Override
+	public Transaction get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		int idx = next - size + index;
+		return ring[idx < 0 ? idx + ring.length : idx];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return ring.length;
+	}
+}
@@ -0,0 +1,58 @@
+package com.richardchankiyin.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every transaction of an account, kept in fixed-size chunks so that
+ * growing never copies the transactions themselves, only the (much
+ * smaller) table of chunks.
+ *
+ * Not thread safe, callers guard it with the lock of the account.
+ */
+public class TransactionLog implements TransactionStore {
+
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private Transaction[][] chunks = new Transaction[1][];
+	private int size = 0;
+
+	@Override
+	public void add(Transaction txn) {
+		int chunk = size >>> CHUNK_BITS;
+		if (chunk == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+		if (chunks[chunk] == null) {
+			chunks[chunk] = new Transaction[CHUNK_SIZE];
+		}
+		chunks[chunk][size & CHUNK_MASK] = txn;
+		size++;
+	}
+
+	@Override
+	public Transaction get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+	}
+
+	@Override
+	public List<Transaction> lastN(int n) {
+		int count = Math.min(n, size);
+		List<Transaction> result = new ArrayList<>(count);
+		for (int i = size - count; i < size; i++) {
+			result.add(get(i));
+		}
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
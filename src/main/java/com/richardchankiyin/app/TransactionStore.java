@@ -0,0 +1,94 @@
+package com.richardchankiyin.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactions of one account, oldest first, as kept by an engine. Entries
+ * appended through {@link #append} are numbered and timestamped in order,
+ * so both are sorted and a page is found by binary search in
+ * O(log n + page) without copying the rest.
+ *
+ * Implementations are not thread safe, callers guard them with the lock of
+ * the account.
+ */
+public interface TransactionStore {
+
+	public void add(Transaction txn);
+
+	/**
+	 * copy of the last n transactions, oldest first.
+	 * Returns fewer than n if fewer are retained
+	 */
+	public List<Transaction> lastN(int n);
+
+	/**
+	 * @param index 0 for the oldest transaction retained
+	 */
+	public Transaction get(int index);
+
+	public int size();
+
+	/**
+	 * add a transaction numbered one after the last one, stamped with
+	 * timestamp or the timestamp of the last one if that is later
+	 * @return the transaction added
+	 */
+	public default Transaction append(String accountno, boolean isDeposit, double amount, long timestamp) {
+		int size = size();
+		Transaction last = size == 0 ? null : get(size - 1);
+		Transaction txn = last == null
+				? new Transaction(accountno, isDeposit, amount, 1, timestamp)
+				: new Transaction(accountno, isDeposit, amount, last.sequence() + 1, Math.max(timestamp, last.timestamp()));
+		add(txn);
+		return txn;
+	}
+
+	/**
+	 * up to limit transactions with a sequence above afterSequence, oldest first.
+	 * Pass the sequence of the last one returned to get the next page
+	 */
+	public default List<Transaction> after(long afterSequence, int limit) {
+		return page(firstIndex(afterSequence, Long.MIN_VALUE), Long.MAX_VALUE, limit);
+	}
+
+	/**
+	 * up to limit transactions with fromTimestamp <= timestamp < toTimestamp
+	 * and a sequence above afterSequence, oldest first
+	 */
+	public default List<Transaction> between(long fromTimestamp, long toTimestamp, long afterSequence, int limit) {
+		return page(firstIndex(afterSequence, fromTimestamp), toTimestamp, limit);
+	}
+
+	/**
+	 * index of the first transaction with a sequence above afterSequence
+	 * and a timestamp at or after fromTimestamp
+	 */
+	private int firstIndex(long afterSequence, long fromTimestamp) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			Transaction txn = get(mid);
+			if (txn.sequence() <= afterSequence || txn.timestamp() < fromTimestamp) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private List<Transaction> page(int from, long toTimestamp, int limit) {
+		int to = (int) Math.min(size(), (long) from + limit);
+		List<Transaction> result = new ArrayList<>(Math.max(0, to - from));
+		for (int i = from; i < to; i++) {
+			Transaction txn = get(i);
+			if (txn.timestamp() >= toTimestamp) {
+				break;
+			}
+			result.add(txn);
+		}
+		return result;
+	}
+}
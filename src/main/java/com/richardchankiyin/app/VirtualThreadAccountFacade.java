@@ -0,0 +1,117 @@
+package com.richardchankiyin.app;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs every call against an {@link IAccount} on its own virtual thread,
+ * exposing it as an {@link IAsyncAccount}.
+ *
+ * Blocking inside the wrapped account is cheap here as long as it parks
+ * rather than pins the carrier thread: the engines only block on
+ * java.util.concurrent locks and conditions, which park. Code added under
+ * these call paths should keep to those and avoid synchronized, which
+ * pins the carrier while it waits.
+ *
+ * The number of calls in flight is bounded, so memory stays bounded
+ * however fast requests arrive: once the bound is reached, submitting
+ * blocks until a call finishes.
+ */
+public class VirtualThreadAccountFacade implements IAsyncAccount, AutoCloseable {
+
+	private final IAccount account;
+	private final ExecutorService executor;
+	private final Semaphore inFlight;
+
+	/**
+	 * @param account account to run calls against
+	 * @param maxInFlight maximum number of calls running or queued at once
+	 */
+	public VirtualThreadAccountFacade(IAccount account, int maxInFlight) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("Max in flight must be positive: " + maxInFlight);
+		}
+		this.account = account;
+		this.executor = Executors.newVirtualThreadPerTaskExecutor();
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+
+	private <T> CompletableFuture<T> submit(Supplier<T> call) {
+		inFlight.acquireUninterruptibly();
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return call.get();
+				} finally {
+					inFlight.release();
+				}
+			}, executor);
+		} catch (RuntimeException e) {
+			inFlight.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * number of calls that can still be submitted without blocking
+	 */
+	public int availablePermits() {
+		return inFlight.availablePermits();
+	}
+
+	@Override
+	public CompletableFuture<String> createAccount(String personalId) {
+		return submit(() -> account.createAccount(personalId));
+	}
+
+	@Override
+	public CompletableFuture<Void> deposit(String accountno, double amt) {
+		return submit(() -> {
+			account.deposit(accountno, amt);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> withdraw(String accountno, double amt) {
+		return submit(() -> {
+			account.withdraw(accountno, amt);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Double> enquirebalance(String accountno) {
+		return submit(() -> account.enquirebalance(accountno));
+	}
+
+	@Override
+	public CompletableFuture<Void> transfer(String fromAccountno, String toAccountno, double amt) {
+		return submit(() -> {
+			account.transfer(fromAccountno, toAccountno, amt);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<List<Transaction>> listLastNTransactions(String accountno, int n) {
+		return submit(() -> account.listLastNTransactions(accountno, n));
+	}
+
+	@Override
+	public CompletableFuture<List<PostingResult>> applyBatch(List<Posting> postings) {
+		return submit(() -> account.applyBatch(postings));
+	}
+
+	/**
+	 * wait for the calls in flight and stop accepting new ones
+	 */
+	@Override
+	public void close() {
+		executor.close();
+	}
+}
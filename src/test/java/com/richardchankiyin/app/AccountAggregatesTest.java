@@ -0,0 +1,181 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountAggregatesTest {
+	
+	@TempDir
+	Path dir;
+	
+	@Test
+	void testTotalsAndRanking() {
+		Account account = Account.builder().aggregates(2).build();
+		AccountAggregates aggregates = account.aggregates();
+		String acc1 = account.createAccount("pid1");
+		String acc2 = account.createAccount("pid2");
+		String acc3 = account.createAccount("pid3");
+		account.deposit(acc1, 100.25);
+		account.deposit(acc2, 50);
+		account.deposit(acc3, 75.5);
+		account.withdraw(acc3, 0.5);
+		
+		assertEquals(225.25, aggregates.totalBalance());
+		assertEquals(225.75, aggregates.totalDeposits());
+		assertEquals(0.5, aggregates.totalWithdrawals());
+		assertEquals(List.of(new AccountAggregates.RankedBalance(acc1, 100.25), new AccountAggregates.RankedBalance(acc3, 75),
+				new AccountAggregates.RankedBalance(acc2, 50)), aggregates.topBalances(100));
+		
+		account.transfer(acc1, acc2, 60);
+		assertEquals(225.25, aggregates.totalBalance());
+		assertEquals(225.75, aggregates.totalDeposits());
+		assertEquals(List.of(new AccountAggregates.RankedBalance(acc2, 110), new AccountAggregates.RankedBalance(acc3, 75)),
+				aggregates.topBalances(2));
+		
+		account.withdraw(acc1, 40.25);
+		assertEquals(2, aggregates.topBalances(10).size());
+		assertEquals(185, aggregates.totalBalance());
+		
+		assertThrows(AccountException.class, () -> account.withdraw(acc1, 1));
+		assertEquals(185, aggregates.totalBalance());
+		AccountException thrown = assertThrows(AccountException.class, () -> aggregates.topBalances(0));
+		assertEquals("No of Accounts Arg not permitted", thrown.getMessage());
+	}
+	
+	@Test
+	void testDisabledByDefault() {
+		assertNull(new Account().aggregates());
+		assertThrows(IllegalArgumentException.class, () -> Account.builder().aggregates(FixedPoint.MAX_SCALE + 1));
+	}
+	
+	@Test
+	void testAmountsFinerThanScale() {
+		Account account = Account.builder().aggregates(2).build();
+		String accountno = account.createAccount("pid");
+		account.deposit(accountno, 0.004);
+		account.deposit(accountno, 1.005);
+		assertEquals(1.01, account.aggregates().totalBalance());
+		assertEquals(1.009, account.enquirebalance(accountno));
+		AccountException thrown = assertThrows(AccountException.class, () -> account.deposit(accountno, 1e18));
+		assertEquals("Amount Overflow", thrown.getMessage());
+		assertEquals(1.009, account.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testRoundingDoesNotDrift() {
+		Account account = Account.builder().aggregates(2).build();
+		AccountAggregates aggregates = account.aggregates();
+		String small = account.createAccount("pid_small");
+		String many = account.createAccount("pid_many");
+		String once = account.createAccount("pid_once");
+		// rounded one posting at a time, this would count -0.01
+		account.deposit(small, 0.004);
+		account.deposit(small, 0.004);
+		account.withdraw(small, 0.005);
+		assertEquals(0.003, account.enquirebalance(small), 1e-12);
+		// and this 1.00
+		for (int i = 0; i < 100; i++) {
+			account.deposit(many, 0.005);
+		}
+		account.deposit(once, 0.75);
+		assertEquals(0.5, account.enquirebalance(many), 1e-12);
+		
+		assertEquals(1.25, aggregates.totalBalance());
+		assertEquals(List.of(new AccountAggregates.RankedBalance(once, 0.75), new AccountAggregates.RankedBalance(many, 0.5)),
+				aggregates.topBalances(10));
+		assertEquals(aggregates.totalDeposits() - aggregates.totalWithdrawals(), aggregates.totalBalance(), 1e-9);
+		
+		account.transfer(many, small, 0.497);
+		assertEquals(0.5, account.enquirebalance(small), 1e-12);
+		assertEquals(1.25, aggregates.totalBalance());
+		assertEquals(List.of(new AccountAggregates.RankedBalance(once, 0.75), new AccountAggregates.RankedBalance(small, 0.5)),
+				aggregates.topBalances(10));
+	}
+	
+	@Test
+	void testTotalsMatchBalancesUnderConcurrentPostings() throws Exception {
+		Account account = Account.builder().aggregates(2).build();
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			accountnos.add(account.createAccount("pid" + i));
+		}
+		ExecutorService es = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				futures.add(es.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < 5000; i++) {
+						String from = accountnos.get(random.nextInt(accountnos.size()));
+						String to = accountnos.get(random.nextInt(accountnos.size()));
+						try {
+							switch (random.nextInt(3)) {
+							case 0 -> account.deposit(from, random.nextInt(1, 10000) / 100d);
+							case 1 -> account.withdraw(from, random.nextInt(1, 10000) / 100d);
+							default -> account.transfer(from, to, random.nextInt(1, 10000) / 100d);
+							}
+						} catch (AccountException e) {
+							// insufficient balance or transfer to self
+						}
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		BigDecimal total = BigDecimal.ZERO;
+		for (String accountno : accountnos) {
+			total = total.add(BigDecimal.valueOf(account.enquirebalance(accountno)));
+		}
+		AccountAggregates aggregates = account.aggregates();
+		assertEquals(total.doubleValue(), aggregates.totalBalance(), 1e-6);
+		assertEquals(aggregates.totalDeposits() - aggregates.totalWithdrawals(), aggregates.totalBalance(), 1e-6);
+		List<AccountAggregates.RankedBalance> top = aggregates.topBalances(accountnos.size());
+		for (int i = 0; i < top.size(); i++) {
+			assertEquals(account.enquirebalance(top.get(i).accountno()), top.get(i).balance());
+			if (i > 0) {
+				assertTrue(top.get(i - 1).balance() >= top.get(i).balance());
+			}
+		}
+	}
+	
+	@Test
+	void testRebuiltOnReplayAndRestore() throws Exception {
+		Path journal = dir.resolve("accounts.journal");
+		Path checkpoint = dir.resolve("accounts.checkpoint");
+		String acc1;
+		String acc2;
+		try (Account account = Account.builder().journal(journal, DurabilityMode.PER_OP).checkpoint(checkpoint).aggregates(2).build()) {
+			acc1 = account.createAccount("pid1");
+			acc2 = account.createAccount("pid2");
+			account.deposit(acc1, 30);
+			account.checkpoint(checkpoint);
+			account.deposit(acc2, 20);
+			account.transfer(acc1, acc2, 5);
+		}
+		try (Account account = Account.builder().journal(journal, DurabilityMode.PER_OP).checkpoint(checkpoint).aggregates(2).build()) {
+			AccountAggregates aggregates = account.aggregates();
+			assertEquals(50, aggregates.totalBalance());
+			assertEquals(20, aggregates.totalDeposits());
+			// equal balances are ranked by account no
+			String first = acc1.compareTo(acc2) < 0 ? acc1 : acc2;
+			String second = first == acc1 ? acc2 : acc1;
+			assertEquals(List.of(new AccountAggregates.RankedBalance(first, 25), new AccountAggregates.RankedBalance(second, 25)),
+					aggregates.topBalances(5));
+		}
+	}
+}
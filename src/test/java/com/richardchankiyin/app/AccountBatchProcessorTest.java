@@ -0,0 +1,162 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountBatchProcessorTest {
+	private ForkJoinPool pool = null;
+	private ExecutorService es = null;
+
+	@TempDir
+	Path dir;
+
+	@BeforeEach
+	void setup() {
+		pool = new ForkJoinPool(4);
+		es = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdownNow();
+		es.shutdownNow();
+	}
+
+	@Test
+	void testInterestAndFeesArePostedAsTransactions() {
+		Account account = new Account();
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			accountnos.add(account.createAccount("pid_" + i));
+			if (i % 10 != 0) {
+				account.deposit(accountnos.get(i), 100);
+			}
+		}
+		// small chunks so accounts are spread over many parallel tasks
+		AccountBatchProcessor processor = new AccountBatchProcessor(account, pool, 97);
+		// 1% interest on funded accounts, a fee of 5 on empty ones, which is rejected
+		AccountBatchProcessor.Result result = processor.run((accountno, balance) -> balance > 0 ? balance / 100 : -5);
+
+		assertEquals(10_000, result.accounts());
+		assertEquals(9_000, result.postings());
+		assertEquals(1_000, result.rejected());
+		assertEquals(0, new BigDecimal("900000").compareTo(result.totalBefore()));
+		assertEquals(0, new BigDecimal("909000").compareTo(result.totalAfter()));
+		assertEquals(0, new BigDecimal("9000").compareTo(result.net()));
+		assertTrue(result.accountsPerSecond() > 0);
+
+		assertEquals(101d, account.enquirebalance(accountnos.get(1)));
+		List<Transaction> txns = account.listLastNTransactions(accountnos.get(1), 10);
+		assertEquals(2, txns.size());
+		assertTrue(txns.get(1).isDeposit());
+		assertEquals(1d, txns.get(1).amount());
+		assertEquals(0d, account.enquirebalance(accountnos.get(0)));
+		assertTrue(account.listLastNTransactions(accountnos.get(0), 10).isEmpty());
+
+		assertThrows(IllegalArgumentException.class, () -> new AccountBatchProcessor(account, pool, 0));
+	}
+
+	@Test
+	void testTotalsReconcileWithLiveTraffic() throws Exception {
+		Account account = Account.builder().aggregates(2).build();
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 5_000; i++) {
+			accountnos.add(account.createAccount("pid_" + i));
+			account.deposit(accountnos.get(i), 1_000);
+		}
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Future<Long>> live = new ArrayList<>();
+		for (int t = 0; t < 3; t++) {
+			live.add(es.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long transfers = 0;
+				while (running.get() || transfers < 1000) {
+					String from = accountnos.get(random.nextInt(accountnos.size()));
+					String to = accountnos.get(random.nextInt(accountnos.size()));
+					if (account.tryTransfer(from, to, 0.25) == ITryAccount.OK) {
+						transfers++;
+					}
+				}
+				return transfers;
+			}));
+		}
+		AccountBatchProcessor.Result result;
+		try {
+			result = new AccountBatchProcessor(account, pool, 64).run((accountno, balance) -> 0.5);
+		} finally {
+			running.set(false);
+		}
+		for (Future<Long> transfers : live) {
+			assertTrue(transfers.get(100, TimeUnit.SECONDS) >= 1000);
+		}
+
+		assertEquals(5_000, result.accounts());
+		assertEquals(5_000, result.postings());
+		assertEquals(0, new BigDecimal("2500").compareTo(result.net()));
+		// transfers moved money but created none
+		assertEquals(5_000 * 1_000d + 2_500d, account.aggregates().totalBalance());
+		assertEquals(5_000 * 1_000d + 2_500d, account.aggregates().totalDeposits());
+	}
+
+	@Test
+	void testRuleRunsOutsideTheLocks() throws Exception {
+		Account account = new Account();
+		String acc = account.createAccount("pid");
+		account.deposit(acc, 100);
+		AtomicInteger calls = new AtomicInteger();
+		// the first time round, a live deposit to the same account lands while the rule runs
+		AccountBatchProcessor.Result result = new AccountBatchProcessor(account, pool, 16).run((accountno, balance) -> {
+			if (calls.getAndIncrement() == 0) {
+				try {
+					es.submit(() -> account.deposit(accountno, 10)).get(10, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return account.enquirebalance(accountno) / 100;
+		});
+		// asked again with the new balance, posted once
+		assertEquals(2, calls.get());
+		assertEquals(1, result.postings());
+		assertEquals(0, new BigDecimal("110").compareTo(result.totalBefore()));
+		assertEquals(0, new BigDecimal("1.1").compareTo(result.net()));
+		assertEquals(111.1d, account.enquirebalance(acc));
+	}
+
+	@Test
+	void testPostingsAreJournaled() throws Exception {
+		Path journal = dir.resolve("journal.log");
+		List<String> accountnos = new ArrayList<>();
+		try (Account account = Account.builder().journal(journal, DurabilityMode.PER_OP).build()) {
+			for (int i = 0; i < 100; i++) {
+				accountnos.add(account.createAccount("pid_" + i));
+				account.deposit(accountnos.get(i), 10 * (i + 1));
+			}
+			AccountBatchProcessor.Result result = new AccountBatchProcessor(account, pool, 16).run((accountno, balance) -> -balance / 10);
+			assertEquals(100, result.postings());
+		}
+		try (Account replayed = Account.builder().journal(journal, DurabilityMode.PER_OP).build()) {
+			for (int i = 0; i < 100; i++) {
+				assertEquals(9d * (i + 1), replayed.enquirebalance(accountnos.get(i)), 1e-9);
+				assertFalse(replayed.listLastNTransactions(accountnos.get(i), 1).get(0).isDeposit());
+			}
+		}
+	}
+}
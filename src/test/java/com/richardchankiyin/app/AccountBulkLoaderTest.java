@@ -0,0 +1,116 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountBulkLoaderTest {
+	
+	@TempDir
+	Path dir;
+	
+	@Test
+	void testLoadsEveryRowAcrossChunks() throws Exception {
+		Path csv = dir.resolve("accounts.csv");
+		try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+			for (int i = 0; i < 10_000; i++) {
+				out.write("pid_" + i + "," + (i % 100) + ".5" + (i % 2 == 0 ? "\n" : "\r\n"));
+			}
+			out.write("\n");
+			out.write("pid_42,10\n");
+			out.write("no_balance\n");
+			out.write("bad_balance,abc\n");
+			out.write("negative_balance,-1\n");
+			out.write(",5\n");
+			out.write("zero_balance,0");
+		}
+		Account account = Account.builder().expectedAccounts(10_000).accountIdStrategy(AccountIdStrategy.numeric()).build();
+		account.createAccount("pid_7");
+		
+		// small chunks so lines are split across many parallel tasks
+		AccountBulkLoader loader = new AccountBulkLoader(account, new ForkJoinPool(4), 1000);
+		AccountBulkLoader.Result result = loader.load(csv);
+		
+		assertEquals(10_006, result.rows());
+		assertEquals(10_000, result.loaded());
+		assertEquals(2, result.duplicates());
+		assertEquals(4, result.rejected());
+		assertTrue(result.rowsPerSecond() > 0);
+		
+		assertEquals(0d, account.enquirebalance(account.accountnoOf("pid_7")));
+		// either pid_42 line may win, the chunks being loaded in parallel
+		double pid42 = account.enquirebalance(account.accountnoOf("pid_42"));
+		assertTrue(pid42 == 42.5d || pid42 == 10d);
+		assertEquals(99.5d, account.enquirebalance(account.accountnoOf("pid_9999")));
+		assertEquals(0d, account.enquirebalance(account.accountnoOf("zero_balance")));
+		assertTrue(account.listLastNTransactions(account.accountnoOf("zero_balance"), 1).isEmpty());
+		Transaction opening = account.listLastNTransactions(account.accountnoOf("pid_1"), 1).get(0);
+		assertTrue(opening.isDeposit());
+		assertEquals(1, opening.sequence());
+		AccountException thrown = assertThrows(AccountException.class, () -> account.createAccount("pid_5000"));
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+	}
+	
+	@Test
+	void testEachPersonalIdLoadedOnceWhateverTheChunks() throws Exception {
+		Path csv = dir.resolve("duplicates.csv");
+		try (BufferedWriter out = Files.newBufferedWriter(csv)) {
+			for (int copy = 1; copy <= 20; copy++) {
+				for (int i = 0; i < 500; i++) {
+					out.write("pid_" + i + "," + copy + "\n");
+				}
+			}
+		}
+		for (int chunkSize : new int[] {1, 64, 4096, 1 << 20}) {
+			Account account = new Account();
+			AccountBulkLoader.Result result = new AccountBulkLoader(account, new ForkJoinPool(4), chunkSize).load(csv);
+			assertEquals(500, result.loaded());
+			assertEquals(500 * 19, result.duplicates());
+			for (int i = 0; i < 500; i++) {
+				double balance = account.enquirebalance(account.accountnoOf("pid_" + i));
+				assertTrue(balance >= 1 && balance <= 20 && balance == Math.rint(balance), "chunk size " + chunkSize);
+			}
+		}
+	}
+	
+	@Test
+	void testLinesRefusedByAccountDoNotStopTheLoad() throws Exception {
+		Path csv = dir.resolve("accounts.csv");
+		Files.writeString(csv, "pid_a,100\nhuge,1e300\npid_b,0.25\n");
+		Account account = Account.builder().aggregates(2).build();
+		AccountBulkLoader.Result result = new AccountBulkLoader(account, new ForkJoinPool(4), 1).load(csv);
+		assertEquals(3, result.rows());
+		assertEquals(2, result.loaded());
+		assertEquals(1, result.rejected());
+		assertNull(account.accountnoOf("huge"));
+		assertEquals(100.25d, account.aggregates().totalBalance());
+	}
+	
+	@Test
+	void testImportIsJournaled() throws Exception {
+		Path csv = dir.resolve("accounts.csv");
+		Files.writeString(csv, "pid_a,100\npid_b,0.25\n");
+		Path journal = dir.resolve("accounts.journal");
+		try (Account account = Account.builder().journal(journal, DurabilityMode.ASYNC).build()) {
+			assertEquals(2, new AccountBulkLoader(account).load(csv).loaded());
+		}
+		try (Account account = Account.builder().journal(journal, DurabilityMode.ASYNC).build()) {
+			assertEquals(100d, account.enquirebalance(account.accountnoOf("pid_a")));
+			assertEquals(0.25d, account.enquirebalance(account.accountnoOf("pid_b")));
+		}
+	}
+	
+	@Test
+	void testEmptyFile() throws Exception {
+		Path csv = Files.createFile(dir.resolve("empty.csv"));
+		AccountBulkLoader.Result result = new AccountBulkLoader(new Account()).load(csv);
+		assertEquals(0, result.rows());
+		assertThrows(IllegalArgumentException.class, () -> new AccountBulkLoader(new Account(), ForkJoinPool.commonPool(), 0));
+	}
+}
@@ -0,0 +1,182 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountCheckpointTest {
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	
+	@TempDir
+	Path dir;
+	
+	@Test
+	void testCheckpointWithoutJournalRestoresAccounts() throws Exception {
+		Path checkpoint = dir.resolve("accounts.checkpoint");
+		Account account = new Account();
+		String accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+		account.deposit(accountno, 1000.0);
+		account.withdraw(accountno, 40.5);
+		account.deposit(accountno, 20.2);
+		List<String> others = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			String other = account.createAccount("pid_" + i);
+			account.deposit(other, i + 1);
+			others.add(other);
+		}
+		account.checkpoint(checkpoint);
+		
+		Account restored = Account.builder().checkpoint(checkpoint).build();
+		assertEquals(979.7d, restored.enquirebalance(accountno));
+		List<Transaction> txns = restored.listLastNTransactions(accountno, 10);
+		assertEquals(account.listLastNTransactions(accountno, 10), txns);
+		restored.deposit(accountno, 1d);
+		assertEquals(4, restored.listLastNTransactions(accountno, 1).get(0).sequence());
+		assertEquals(3, txns.size());
+		assertFalse(txns.get(1).isDeposit());
+		assertEquals(40.5d, txns.get(1).amount());
+		for (int i = 0; i < others.size(); i++) {
+			assertEquals(i + 1d, restored.enquirebalance(others.get(i)));
+		}
+		AccountException thrown = assertThrows(AccountException.class, () -> restored.createAccount(DEFAULT_PERSONAL_ID));
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+	}
+	
+	@Test
+	void testCheckpointReplaysOnlyJournalTail() throws Exception {
+		Path checkpoint = dir.resolve("accounts.checkpoint");
+		Path journal = dir.resolve("accounts.journal");
+		String accountno;
+		String lateAccountno;
+		try (Account account = Account.builder().journal(journal, DurabilityMode.BATCHED).checkpoint(checkpoint).build()) {
+			accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+			account.deposit(accountno, 100d);
+			account.checkpoint(checkpoint);
+			account.deposit(accountno, 50d);
+			lateAccountno = account.createAccount("late_personal_id");
+			account.transfer(accountno, lateAccountno, 30d);
+		}
+		
+		try (Account account = Account.builder().journal(journal, DurabilityMode.BATCHED).checkpoint(checkpoint).build()) {
+			assertEquals(120d, account.enquirebalance(accountno));
+			assertEquals(30d, account.enquirebalance(lateAccountno));
+			assertEquals(3, account.listLastNTransactions(accountno, 10).size());
+			account.deposit(lateAccountno, 1d);
+			account.checkpoint(checkpoint);
+			account.deposit(lateAccountno, 1d);
+		}
+		
+		try (Account account = Account.builder().journal(journal, DurabilityMode.BATCHED).checkpoint(checkpoint).build()) {
+			assertEquals(120d, account.enquirebalance(accountno));
+			assertEquals(32d, account.enquirebalance(lateAccountno));
+		}
+	}
+	
+	@Test
+	void testCheckpointTakenWhileWritersRun() throws Exception {
+		Path checkpoint = dir.resolve("accounts.checkpoint");
+		Path journal = dir.resolve("accounts.journal");
+		int accountCount = 50;
+		String[] accountnos = new String[accountCount];
+		double[] expected = new double[accountCount];
+		ExecutorService es = Executors.newFixedThreadPool(4);
+		try (Account account = Account.builder().journal(journal, DurabilityMode.ASYNC).build()) {
+			for (int i = 0; i < accountCount; i++) {
+				accountnos[i] = account.createAccount("pid_" + i);
+			}
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				writers.add(es.submit(() -> {
+					for (int j = 0; j < 2000; j++) {
+						account.deposit(accountnos[j % accountCount], 1d);
+					}
+				}));
+			}
+			writers.add(es.submit(() -> {
+				for (int j = 0; j < 20; j++) {
+					account.createAccount("concurrent_pid_" + j);
+				}
+			}));
+			writers.add(es.submit(() -> {
+				for (int j = 0; j < 2000; j++) {
+					account.tryTransfer(accountnos[j % accountCount], accountnos[(j * 7 + 1) % accountCount], 0.5d);
+				}
+			}));
+			account.checkpoint(checkpoint);
+			for (Future<?> writer : writers) {
+				writer.get(100, TimeUnit.SECONDS);
+			}
+			for (int i = 0; i < accountCount; i++) {
+				expected[i] = account.enquirebalance(accountnos[i]);
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		
+		try (Account account = Account.builder().journal(journal, DurabilityMode.ASYNC).checkpoint(checkpoint).build()) {
+			for (int i = 0; i < accountCount; i++) {
+				assertEquals(expected[i], account.enquirebalance(accountnos[i]));
+			}
+			for (int j = 0; j < 20; j++) {
+				String pid = "concurrent_pid_" + j;
+				AccountException thrown = assertThrows(AccountException.class, () -> account.createAccount(pid));
+				assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+			}
+		}
+	}
+	
+	/**
+	 * A transfer made after one of its accounts is copied into the
+	 * checkpoint and before the other is, in both copy orders: replay must
+	 * apply only the leg the checkpoint misses.
+	 */
+	@Test
+	void testTransferBetweenAccountCopiesIsReplayedOnce() throws Exception {
+		for (boolean fromFirst : new boolean[] {true, false}) {
+			Path checkpoint = dir.resolve("accounts.checkpoint." + fromFirst);
+			Path journal = dir.resolve("accounts.journal." + fromFirst);
+			String from;
+			String to;
+			try (Account account = Account.builder().journal(journal, DurabilityMode.PER_OP).aggregates(2).build()) {
+				from = account.createAccount("from_pid");
+				to = account.createAccount("to_pid");
+				account.deposit(from, 100d);
+				Map<String,String> copyOrder = new LinkedHashMap<>();
+				if (fromFirst) {
+					copyOrder.put("from_pid", from);
+					copyOrder.put("to_pid", to);
+				} else {
+					copyOrder.put("to_pid", to);
+					copyOrder.put("from_pid", from);
+				}
+				String second = fromFirst ? to : from;
+				// offset 0 and sequence 1 replay the whole journal, relying on journalSeq alone
+				AccountCheckpoint.write(checkpoint, copyOrder, accountno -> {
+					if (accountno.equals(second)) {
+						account.transfer(from, to, 30d);
+					}
+					return account.stateOf(accountno);
+				}, 0, 1, 4);
+			}
+			
+			try (Account account = Account.builder().journal(journal, DurabilityMode.PER_OP).checkpoint(checkpoint).aggregates(2).build()) {
+				assertEquals(70d, account.enquirebalance(from), "fromFirst " + fromFirst);
+				assertEquals(30d, account.enquirebalance(to), "fromFirst " + fromFirst);
+				assertEquals(2, account.listLastNTransactions(from, 10).size());
+				assertEquals(1, account.listLastNTransactions(to, 10).size());
+				assertEquals(100d, account.aggregates().totalBalance());
+			}
+		}
+	}
+}
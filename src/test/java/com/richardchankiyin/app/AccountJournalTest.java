@@ -0,0 +1,190 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountJournalTest {
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	
+	@TempDir
+	Path dir;
+	
+	private Account open(Path journal, DurabilityMode mode) {
+		return Account.builder().journal(journal, mode).journalFlushInterval(1).build();
+	}
+	
+	@Test
+	void testReplayRestoresAccountsInEveryMode() throws Exception {
+		for (DurabilityMode mode : DurabilityMode.values()) {
+			Path journal = dir.resolve(mode + ".journal");
+			String accountno;
+			String otherAccountno;
+			List<Transaction> before;
+			try (Account account = open(journal, mode)) {
+				accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+				otherAccountno = account.createAccount("other_personal_id");
+				account.deposit(accountno, 1000.0);
+				account.withdraw(accountno, 40.5);
+				account.deposit(accountno, 20.2);
+				account.transfer(accountno, otherAccountno, 100d);
+				assertThrows(AccountException.class, () -> account.withdraw(otherAccountno, 1000d));
+				before = account.listLastNTransactions(accountno, 10);
+			}
+			
+			try (Account account = open(journal, mode)) {
+				assertEquals(879.7d, account.enquirebalance(accountno), mode.name());
+				assertEquals(100d, account.enquirebalance(otherAccountno), mode.name());
+				List<Transaction> txns = account.listLastNTransactions(accountno, 10);
+				assertEquals(4, txns.size());
+				assertEquals(40.5d, txns.get(1).amount());
+				assertFalse(txns.get(3).isDeposit());
+				assertEquals(before, txns, mode.name());
+				AccountException thrown = assertThrows(AccountException.class, () -> account.createAccount(DEFAULT_PERSONAL_ID));
+				assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+				
+				account.deposit(otherAccountno, 1d);
+			}
+			
+			try (Account account = open(journal, mode)) {
+				assertEquals(101d, account.enquirebalance(otherAccountno), mode.name());
+			}
+		}
+	}
+	
+	@Test
+	void testTornTailIsTruncatedOnReplay() throws Exception {
+		Path journal = dir.resolve("torn.journal");
+		String accountno;
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+			account.deposit(accountno, 100d);
+			account.deposit(accountno, 50d);
+		}
+		long goodSize = Files.size(journal);
+		try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+			ch.truncate(goodSize - 3);
+		}
+		
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			assertEquals(100d, account.enquirebalance(accountno));
+			account.deposit(accountno, 25d);
+		}
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			assertEquals(125d, account.enquirebalance(accountno));
+		}
+	}
+	
+	@Test
+	void testCorruptRecordStopsReplay() throws Exception {
+		Path journal = dir.resolve("corrupt.journal");
+		String accountno;
+		try (Account account = open(journal, DurabilityMode.BATCHED)) {
+			accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+			account.deposit(accountno, 100d);
+			account.deposit(accountno, 50d);
+		}
+		try (FileChannel ch = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.wrap(new byte[] {0x7f}), Files.size(journal) - 1);
+		}
+		
+		try (Account account = open(journal, DurabilityMode.BATCHED)) {
+			assertEquals(100d, account.enquirebalance(accountno));
+		}
+	}
+	
+	@Test
+	void testNonFiniteAmountsAreNotJournaled() throws Exception {
+		Path journal = dir.resolve("nonfinite.journal");
+		String accountno;
+		String otherAccountno;
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+			otherAccountno = account.createAccount("other_personal_id");
+			account.deposit(accountno, 100d);
+			for (double amt : new double[] {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN}) {
+				AccountException thrown = assertThrows(AccountException.class, () -> account.deposit(accountno, amt));
+				assertEquals("Invalid Amount", thrown.getMessage());
+				assertThrows(AccountException.class, () -> account.withdraw(accountno, amt));
+				assertThrows(AccountException.class, () -> account.transfer(accountno, otherAccountno, amt));
+				assertEquals(ITryAccount.INVALID_AMOUNT, account.tryDeposit(accountno, amt));
+			}
+			account.deposit(accountno, 1d);
+		}
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			assertEquals(101d, account.enquirebalance(accountno));
+			assertEquals(0d, account.enquirebalance(otherAccountno));
+			assertEquals(2, account.listLastNTransactions(accountno, 10).size());
+		}
+	}
+	
+	@Test
+	void testConcurrentPerOpDepositsAreAllDurable() throws Exception {
+		Path journal = dir.resolve("concurrent.journal");
+		ExecutorService es = Executors.newFixedThreadPool(10);
+		String accountno;
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+			List<Callable<Void>> callableTasks = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				callableTasks.add(() -> {
+					for (int j = 0; j < 100; j++) {
+						account.deposit(accountno, 1d);
+					}
+					return null;
+				});
+			}
+			for (Future<Void> result : es.invokeAll(callableTasks)) {
+				result.get(100, TimeUnit.SECONDS);
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		
+		try (Account account = open(journal, DurabilityMode.PER_OP)) {
+			assertEquals(1000d, account.enquirebalance(accountno));
+		}
+	}
+	
+	@Test
+	void testClosedJournalRejectsOperations() throws IOException {
+		Account account = open(dir.resolve("closed.journal"), DurabilityMode.ASYNC);
+		String accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+		account.close();
+		AccountException thrown = assertThrows(AccountException.class, () -> account.deposit(accountno, 1d));
+		assertTrue(thrown.getMessage().contains("Journal Closed"));
+		assertEquals(0d, account.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testReplayedNumericIdsAreNotReissued() throws Exception {
+		Path journal = dir.resolve("numeric.journal");
+		String accountno;
+		try (Account account = Account.builder().journal(journal, DurabilityMode.BATCHED)
+				.accountIdStrategy(AccountIdStrategy.numeric()).build()) {
+			accountno = account.createAccount(DEFAULT_PERSONAL_ID);
+			account.deposit(accountno, 10d);
+		}
+		try (Account account = Account.builder().journal(journal, DurabilityMode.BATCHED)
+				.accountIdStrategy(AccountIdStrategy.numeric()).build()) {
+			assertEquals(10d, account.enquirebalance(accountno));
+			String next = account.createAccount("other_personal_id");
+			assertTrue(NumericAccountIdStrategy.decode(next) > NumericAccountIdStrategy.decode(accountno));
+		}
+	}
+}
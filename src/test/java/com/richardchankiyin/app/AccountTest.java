@@ -2,6 +2,7 @@ package com.richardchankiyin.app;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -344,4 +345,357 @@ class AccountTest {
 		assertEquals(140d, txns.get(2).amount());
 		
 	}
+	
+	@Test
+	void testListTransactionsIsNotAffectedBySubsequentDeposits() {
+		account.deposit(default_account_no, 100d);
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 5);
+		account.deposit(default_account_no, 200d);
+		
+		assertEquals(1, txns.size());
+		assertEquals(100d, txns.get(0).amount());
+	}
+	
+	@Test
+	void testHistoryCapacityLimitsRetainedTransactions() {
+		IAccount smallHistoryAccount = new Account(2);
+		String accountno = smallHistoryAccount.createAccount(DEFAULT_PERSONAL_ID);
+		smallHistoryAccount.deposit(accountno, 100d);
+		smallHistoryAccount.deposit(accountno, 200d);
+		smallHistoryAccount.deposit(accountno, 300d);
+		
+		List<Transaction> txns = smallHistoryAccount.listLastNTransactions(accountno, 5);
+		assertEquals(2, txns.size());
+		assertEquals(200d, txns.get(0).amount());
+		assertEquals(300d, txns.get(1).amount());
+		assertEquals(600d, smallHistoryAccount.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testNonPositiveHistoryCapacityNotAccepted() {
+		assertThrows(IllegalArgumentException.class, () -> new Account(0));
+	}
+	
+	@Test
+	void testBuilderRejectsInvalidSettings() {
+		assertThrows(IllegalArgumentException.class, () -> Account.builder().stripes(0));
+		assertThrows(IllegalArgumentException.class, () -> Account.builder().historyCapacity(-1));
+	}
+	
+	@Test
+	void testConcurrentDepositsWithConfiguredLocking() throws Exception {
+		IAccount[] configured = {
+				Account.builder().stripes(1).build(),
+				Account.builder().stripes(64).build(),
+				Account.builder().perAccountLocks().build() };
+		for (IAccount acc : configured) {
+			String accountno = acc.createAccount(DEFAULT_PERSONAL_ID);
+			List<Callable<Void>> callableTasks = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				callableTasks.add(() -> {
+					for (int j = 0; j < 100; j++) {
+						acc.deposit(accountno, 1d);
+					}
+					return null;
+				});
+			}
+			for (Future<Void> result : es.invokeAll(callableTasks)) {
+				result.get(100, TimeUnit.SECONDS);
+			}
+			assertEquals(1000d, acc.enquirebalance(accountno));
+			assertEquals(10, acc.listLastNTransactions(accountno, 10).size());
+		}
+	}
+	
+	@Test
+	void testApplyBatchMatchesSequentialApplication() {
+		IAccount sequential = new Account();
+		String other_account_no = account.createAccount("other_personal_id");
+		String seq_default_account_no = sequential.createAccount(DEFAULT_PERSONAL_ID);
+		String seq_other_account_no = sequential.createAccount("other_personal_id");
+		
+		double[][] steps = {{1, 100}, {0, 30}, {1, -5}, {0, 80}, {1, 20.2}, {0, 40.5}};
+		List<Posting> batch = new ArrayList<>();
+		for (double[] step : steps) {
+			batch.add(new Posting(default_account_no, step[0] == 1, step[1]));
+			batch.add(new Posting(other_account_no, step[0] == 0, step[1]));
+		}
+		batch.add(Posting.deposit("123", 10));
+		
+		List<PostingResult> results = account.applyBatch(batch);
+		assertEquals(batch.size(), results.size());
+		
+		int i = 0;
+		for (double[] step : steps) {
+			assertOutcome(results.get(i++), () -> {
+				if (step[0] == 1) {
+					sequential.deposit(seq_default_account_no, step[1]);
+				} else {
+					sequential.withdraw(seq_default_account_no, step[1]);
+				}
+			});
+			assertOutcome(results.get(i++), () -> {
+				if (step[0] == 0) {
+					sequential.deposit(seq_other_account_no, step[1]);
+				} else {
+					sequential.withdraw(seq_other_account_no, step[1]);
+				}
+			});
+		}
+		assertFalse(results.get(i).isSuccess());
+		assertTrue(results.get(i).error().getMessage().contains("Invalid Account"));
+		
+		assertEquals(sequential.enquirebalance(seq_default_account_no), account.enquirebalance(default_account_no));
+		assertEquals(sequential.enquirebalance(seq_other_account_no), account.enquirebalance(other_account_no));
+		assertEquals(sequential.listLastNTransactions(seq_default_account_no, 10).size(), account.listLastNTransactions(default_account_no, 10).size());
+	}
+	
+	private void assertOutcome(PostingResult result, Runnable sequentialCall) {
+		try {
+			sequentialCall.run();
+			assertTrue(result.isSuccess(), String.valueOf(result));
+		} catch (AccountException e) {
+			assertFalse(result.isSuccess(), String.valueOf(result));
+			assertEquals(e.getMessage(), result.error().getMessage());
+		}
+	}
+	
+	@Test
+	void testTransferMovesBalanceAndRecordsBothLegs() {
+		String other_account_no = account.createAccount("other_personal_id");
+		account.deposit(default_account_no, 100d);
+		account.transfer(default_account_no, other_account_no, 40.5d);
+		
+		assertEquals(59.5d, account.enquirebalance(default_account_no));
+		assertEquals(40.5d, account.enquirebalance(other_account_no));
+		Transaction withdrawLeg = account.listLastNTransactions(default_account_no, 1).get(0);
+		Transaction depositLeg = account.listLastNTransactions(other_account_no, 1).get(0);
+		assertFalse(withdrawLeg.isDeposit());
+		assertTrue(depositLeg.isDeposit());
+		assertEquals(40.5d, withdrawLeg.amount());
+		assertEquals(40.5d, depositLeg.amount());
+	}
+	
+	@Test
+	void testTransferRejected() {
+		String other_account_no = account.createAccount("other_personal_id");
+		account.deposit(default_account_no, 100d);
+		
+		AccountException thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, other_account_no, 200d));
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, "123", 10d));
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, other_account_no, 0d));
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+		thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, default_account_no, 10d));
+		assertTrue(thrown.getMessage().contains("Transfer to Same Account"));
+		
+		assertEquals(100d, account.enquirebalance(default_account_no));
+		assertEquals(0d, account.enquirebalance(other_account_no));
+		assertEquals(1, account.listLastNTransactions(default_account_no, 10).size());
+	}
+	
+	@Test
+	void testConcurrentOppositeTransfersDoNotDeadlock() throws Exception {
+		IAccount[] configured = { account, Account.builder().stripes(1).build(), Account.builder().perAccountLocks().build() };
+		for (IAccount acc : configured) {
+			String a = acc.createAccount("transfer_a");
+			String b = acc.createAccount("transfer_b");
+			acc.deposit(a, 1000d);
+			acc.deposit(b, 1000d);
+			List<Callable<Void>> callableTasks = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				boolean aToB = i % 2 == 0;
+				callableTasks.add(() -> {
+					for (int j = 0; j < 1000; j++) {
+						try {
+							acc.transfer(aToB ? a : b, aToB ? b : a, 1d);
+						} catch (AccountException e) {
+							assertTrue(e.getMessage().contains("Insufficient Balance"));
+						}
+					}
+					return null;
+				});
+			}
+			for (Future<Void> result : es.invokeAll(callableTasks)) {
+				result.get(100, TimeUnit.SECONDS);
+			}
+			assertEquals(2000d, acc.enquirebalance(a) + acc.enquirebalance(b));
+		}
+	}
+	
+	@Test
+	void testTransactionsNumberedAndTimestamped() {
+		long before = System.currentTimeMillis();
+		account.deposit(default_account_no, 100d);
+		account.withdraw(default_account_no, 10d);
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 2);
+		assertEquals(1, txns.get(0).sequence());
+		assertEquals(2, txns.get(1).sequence());
+		assertTrue(txns.get(0).timestamp() >= before);
+		assertTrue(txns.get(1).timestamp() >= txns.get(0).timestamp());
+	}
+	
+	@Test
+	void testPagingThroughAllTransactions() {
+		Account full = Account.builder().retainAllTransactions().build();
+		String accountno = full.createAccount(DEFAULT_PERSONAL_ID);
+		for (int i = 1; i <= 2500; i++) {
+			full.deposit(accountno, i);
+		}
+		long cursor = 0;
+		double total = 0;
+		List<Transaction> page;
+		do {
+			page = full.transactionsAfter(accountno, cursor, 1000);
+			for (Transaction txn : page) {
+				assertEquals(++cursor, txn.sequence());
+				total += txn.amount();
+			}
+		} while (page.size() == 1000);
+		assertEquals(2500, cursor);
+		assertEquals(full.enquirebalance(accountno), total);
+		assertEquals(10, full.listLastNTransactions(accountno, 10).size());
+		
+		long now = System.currentTimeMillis();
+		assertEquals(1000, full.transactionsBetween(accountno, 0, now + 1, 0, 1000).size());
+		assertTrue(full.transactionsBetween(accountno, now + 1, now + 2, 0, 1000).isEmpty());
+	}
+	
+	@Test
+	void testPagingValidation() {
+		Account acc = (Account) account;
+		AccountException thrown = assertThrows(AccountException.class, () -> acc.transactionsAfter("123", 0, 10));
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertThrows(AccountException.class, () -> acc.transactionsAfter(default_account_no, 0, 0));
+		assertTrue(thrown.getMessage().contains("Page Size not permitted"));
+		thrown = assertThrows(AccountException.class, () -> acc.transactionsAfter(default_account_no, 0, 1001));
+		assertTrue(thrown.getMessage().contains("Page Size not permitted"));
+		thrown = assertThrows(AccountException.class, () -> acc.transactionsBetween(default_account_no, 10, 5, 0, 10));
+		assertTrue(thrown.getMessage().contains("Invalid Time Range"));
+		
+		for (int i = 0; i < 15; i++) {
+			account.deposit(default_account_no, 1d);
+		}
+		// without retainAllTransactions only the last 10 can be paged through
+		List<Transaction> txns = acc.transactionsAfter(default_account_no, 0, 100);
+		assertEquals(10, txns.size());
+		assertEquals(6, txns.get(0).sequence());
+	}
+	
+	@Test
+	void testNumericAccountIds() {
+		Account numeric = Account.builder().accountIdStrategy(AccountIdStrategy.numeric()).build();
+		String accountno = numeric.createAccount(DEFAULT_PERSONAL_ID);
+		String other = numeric.createAccount("other_personal_id");
+		assertTrue(NumericAccountIdStrategy.decode(accountno) > 0);
+		assertNotEquals(accountno, other);
+		numeric.deposit(accountno, 100d);
+		numeric.transfer(accountno, other, 40d);
+		assertEquals(60d, numeric.enquirebalance(accountno));
+		assertEquals(40d, numeric.enquirebalance(other));
+		
+		for (String invalid : new String[] { "0" + accountno, "abc", default_account_no, "" }) {
+			AccountException thrown = assertThrows(AccountException.class, () -> numeric.deposit(invalid, 1d));
+			assertTrue(thrown.getMessage().contains("Invalid Account"));
+		}
+	}
+	
+	@Test
+	void testViewIsConsistentWhileWriting() throws Exception {
+		Account acc = (Account) account;
+		AccountException thrown = assertThrows(AccountException.class, () -> acc.view(default_account_no, 11));
+		assertTrue(thrown.getMessage().contains("No of Transactions Arg not permitted"));
+		
+		Future<?> writer = es.submit(() -> {
+			for (int i = 0; i < 20_000; i++) {
+				acc.deposit(default_account_no, 1d);
+			}
+		});
+		List<Callable<Void>> readers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			readers.add(() -> {
+				while (!writer.isDone()) {
+					// every deposit is 1, so the balance equals the sequence of the last one
+					AccountView view = acc.view(default_account_no, 10);
+					List<Transaction> txns = view.lastTransactions();
+					long lastSequence = txns.isEmpty() ? 0 : txns.get(txns.size() - 1).sequence();
+					assertEquals((double) lastSequence, view.balance());
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(readers)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		writer.get(100, TimeUnit.SECONDS);
+		assertEquals(20_000d, acc.view(default_account_no, 1).balance());
+	}
+	
+	@Test
+	void testTryPostingsReturnStatus() {
+		Account acc = (Account) account;
+		String other = acc.createAccount("other_personal_id");
+		assertEquals(ITryAccount.OK, acc.tryDeposit(default_account_no, 100));
+		assertEquals(ITryAccount.INVALID_ACCOUNT, acc.tryDeposit("no_such_account", 100));
+		assertEquals(ITryAccount.INVALID_AMOUNT, acc.tryDeposit(default_account_no, 0));
+		assertEquals(ITryAccount.INSUFFICIENT_BALANCE, acc.tryWithdraw(default_account_no, 100.01));
+		assertEquals(ITryAccount.INVALID_ACCOUNT, acc.tryWithdraw("no_such_account", -1));
+		assertEquals(ITryAccount.INVALID_AMOUNT, acc.tryWithdraw(default_account_no, -1));
+		assertEquals(ITryAccount.OK, acc.tryWithdraw(default_account_no, 40));
+		assertEquals(ITryAccount.TRANSFER_TO_SAME_ACCOUNT, acc.tryTransfer(default_account_no, default_account_no, 1));
+		assertEquals(ITryAccount.INVALID_ACCOUNT, acc.tryTransfer(default_account_no, "no_such_account", 1));
+		assertEquals(ITryAccount.INSUFFICIENT_BALANCE, acc.tryTransfer(default_account_no, other, 60.5));
+		assertEquals(ITryAccount.OK, acc.tryTransfer(default_account_no, other, 60));
+		assertEquals(0d, acc.enquirebalance(default_account_no));
+		assertEquals(60d, acc.enquirebalance(other));
+		assertEquals(3, acc.listLastNTransactions(default_account_no, 10).size());
+		
+		// balances are exact decimals, 0.1 + 0.2 covers 0.3
+		acc.deposit(other, 0.1);
+		acc.deposit(other, 0.2);
+		acc.withdraw(other, 60);
+		assertEquals(ITryAccount.OK, acc.tryWithdraw(other, 0.3));
+		// a balance equal to the amount as a double but below it exactly is still rejected
+		acc.deposit(other, 1);
+		acc.deposit(other, 1.5e-16);
+		assertEquals(1.0000000000000002, acc.enquirebalance(other));
+		assertEquals(ITryAccount.INSUFFICIENT_BALANCE, acc.tryWithdraw(other, 1.0000000000000002));
+		assertSame(AccountException.INSUFFICIENT_BALANCE, assertThrows(AccountException.class, () -> acc.withdraw(other, 1.0000000000000002)));
+	}
+	
+	@Test
+	void testRejectionsThrowSharedStacklessExceptions() {
+		AccountException thrown = assertThrows(AccountException.class, () -> account.withdraw(default_account_no, 1));
+		assertSame(AccountException.INSUFFICIENT_BALANCE, thrown);
+		assertEquals("Insufficient Balance", thrown.getMessage());
+		assertEquals(0, thrown.getStackTrace().length);
+		thrown.addSuppressed(new RuntimeException());
+		assertEquals(0, thrown.getSuppressed().length);
+		assertSame(AccountException.INVALID_ACCOUNT, assertThrows(AccountException.class, () -> account.deposit("no_such_account", 1)));
+		assertSame(AccountException.INVALID_AMOUNT, assertThrows(AccountException.class, () -> account.deposit(default_account_no, -1)));
+		assertSame(AccountException.TRANSFER_TO_SAME_ACCOUNT,
+				assertThrows(AccountException.class, () -> account.transfer(default_account_no, default_account_no, 1)));
+		assertNull(AccountException.forStatus(ITryAccount.OK));
+		assertThrows(IllegalArgumentException.class, () -> AccountException.forStatus(-1));
+	}
+	
+	@Test
+	void testRejectedTryWithdrawDoesNotAllocate() {
+		Account acc = (Account) account;
+		acc.deposit(default_account_no, 10.25);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long rejected = 0;
+		for (int i = 0; i < 10_000; i++) {
+			rejected += acc.tryWithdraw(default_account_no, 11);
+		}
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < 10_000; i++) {
+			rejected += acc.tryWithdraw(default_account_no, 11);
+		}
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+		assertEquals(20_000L * ITryAccount.INSUFFICIENT_BALANCE, rejected);
+		// allow for the odd allocation of the measurement itself, not one per call
+		assertTrue(allocated < 10_000, "allocated " + allocated + " bytes");
+	}
 }
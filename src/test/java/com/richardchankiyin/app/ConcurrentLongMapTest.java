@@ -0,0 +1,75 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLongMapTest {
+
+	@Test
+	void testPutGetAndGrow() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+		for (long key = 1; key <= 100_000; key++) {
+			assertNull(map.put(key, "v" + key));
+		}
+		assertEquals(100_000, map.size());
+		for (long key = 1; key <= 100_000; key++) {
+			assertEquals("v" + key, map.get(key));
+		}
+		assertNull(map.get(100_001));
+		assertFalse(map.containsKey(-1));
+		
+		assertEquals("v7", map.put(7, "seven"));
+		assertEquals("seven", map.putIfAbsent(7, "other"));
+		assertEquals("seven", map.get(7));
+		assertEquals(100_000, map.size());
+	}
+	
+	@Test
+	void testInvalidArguments() {
+		ConcurrentLongMap<String> map = new ConcurrentLongMap<>(1000);
+		assertThrows(IllegalArgumentException.class, () -> map.put(0, "zero"));
+		assertThrows(NullPointerException.class, () -> map.put(1, null));
+		assertNull(map.get(0));
+	}
+	
+	@Test
+	void testReadersSeeEveryCompletedPut() throws Exception {
+		ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+		ExecutorService es = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				long base = t * 1_000_000L;
+				tasks.add(() -> {
+					for (long key = base + 1; key <= base + 50_000; key++) {
+						map.put(key, key);
+						assertEquals(key, map.get(key));
+					}
+					return null;
+				});
+				tasks.add(() -> {
+					for (long key = base + 1; key <= base + 50_000; key++) {
+						Long value = map.get(key);
+						assertTrue(value == null || value == key);
+					}
+					return null;
+				});
+			}
+			for (Future<Void> result : es.invokeAll(tasks)) {
+				result.get(100, TimeUnit.SECONDS);
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		assertEquals(200_000, map.size());
+	}
+}
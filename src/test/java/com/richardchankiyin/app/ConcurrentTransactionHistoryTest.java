@@ -0,0 +1,51 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentTransactionHistoryTest {
+
+	@Test
+	void testOldestEvictedWhenFull() {
+		ConcurrentTransactionHistory history = new ConcurrentTransactionHistory(3);
+		for (int i = 1; i <= 7; i++) {
+			history.add(new Transaction("a", true, i));
+		}
+		
+		List<Transaction> txns = history.lastN(5);
+		assertEquals(3, txns.size());
+		assertEquals(5d, txns.get(0).amount());
+		assertEquals(6d, txns.get(1).amount());
+		assertEquals(7d, txns.get(2).amount());
+	}
+	
+	@Test
+	void testConcurrentAppendsKeepMostRecent() throws Exception {
+		ConcurrentTransactionHistory history = new ConcurrentTransactionHistory(10);
+		ExecutorService es = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(es.submit(() -> {
+					for (int j = 0; j < 10000; j++) {
+						history.add(new Transaction("a", true, 1d));
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(100, TimeUnit.SECONDS);
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		assertEquals(10, history.lastN(10).size());
+	}
+}
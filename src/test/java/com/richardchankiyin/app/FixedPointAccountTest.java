@@ -0,0 +1,171 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FixedPointAccountTest {
+	private IAccount account = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	private ExecutorService es = null;
+	
+	@BeforeEach
+	void setup() {
+		account = new FixedPointAccount();
+		default_account_no = account.createAccount(DEFAULT_PERSONAL_ID);
+		es = Executors.newFixedThreadPool(10);
+	}
+	
+	@AfterEach
+	void tearDown() {
+		if (es != null) {
+			es.shutdownNow();
+		}
+	}
+	
+	@Test
+	void testCreateDuplicateAccountFailed() {
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.createAccount(DEFAULT_PERSONAL_ID),
+		           "Expected account.createAccount(default_personal_id) to throw, but it didn't"
+		    );
+
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+	}
+	
+	@Test
+	void testDepositAccountDoesNotExist() {
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.deposit("123", 10),
+		           "Expected account.deposit(\"123\", 10) to throw, but it didn't"
+		    );
+
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+	}
+	
+	@Test
+	void testDepositAccountZeroFailed() {
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.deposit(default_account_no, 0),
+		           "Expected account.deposit(default_account_no, 0) to throw, but it didn't"
+		    );
+
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+	}
+	
+	@Test
+	void testWithdrawAccountBalanceInsufficient() {
+		account.deposit(default_account_no, 100d);
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.withdraw(default_account_no, 200d),
+		           "Expected account.withdraw(default_account_no, 200) to throw, but it didn't"
+		    );
+
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		assertEquals(100d, account.enquirebalance(default_account_no));
+	}
+	
+	@Test
+	void testDecimalDepositsAndWithdrawsAreExact() {
+		account.deposit(default_account_no, 1000.0);
+		account.withdraw(default_account_no, 40.5);
+		account.deposit(default_account_no, 20.2);
+		assertEquals(979.7d, account.enquirebalance(default_account_no));
+		
+		for (int i = 0; i < 10; i++) {
+			account.deposit(default_account_no, 0.1);
+		}
+		assertEquals(980.7d, account.enquirebalance(default_account_no));
+	}
+	
+	@Test
+	void testConfigurableScale() {
+		IAccount millis = new FixedPointAccount(3, 10);
+		String accountno = millis.createAccount(DEFAULT_PERSONAL_ID);
+		millis.deposit(accountno, 0.001);
+		millis.deposit(accountno, 1.0005);
+		assertEquals(1.002d, millis.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testConcurrentDepositsAllApplied() throws Exception {
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			callableTasks.add(() -> {
+				for (int j = 0; j < 1000; j++) {
+					account.deposit(default_account_no, 0.01);
+				}
+				return null;
+			});
+		}
+		List<Future<Void>> results = es.invokeAll(callableTasks);
+		for (Future<Void> result : results) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		assertEquals(100d, account.enquirebalance(default_account_no));
+	}
+	
+	@Test
+	void testListLastNTransactions() {
+		account.deposit(default_account_no, 100d);
+		account.withdraw(default_account_no, 50d);
+		account.deposit(default_account_no, 140d);
+		
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 2);
+		assertEquals(2, txns.size());
+		assertFalse(txns.get(0).isDeposit());
+		assertTrue(txns.get(1).isDeposit());
+		assertEquals(50d, txns.get(0).amount());
+		assertEquals(140d, txns.get(1).amount());
+		
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.listLastNTransactions(default_account_no, 11),
+		           "Expected account.listLastNTransactions(default_account_no, 11) to throw, but it didn't"
+		    );
+		assertTrue(thrown.getMessage().contains("No of Transactions Arg not permitted"));
+	}
+	
+	@Test
+	void testConcurrentOppositeTransfersKeepTotal() throws Exception {
+		String other_account_no = account.createAccount("other_personal_id");
+		account.deposit(default_account_no, 500d);
+		account.deposit(other_account_no, 500d);
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			boolean forward = i % 2 == 0;
+			callableTasks.add(() -> {
+				for (int j = 0; j < 1000; j++) {
+					try {
+						account.transfer(forward ? default_account_no : other_account_no, forward ? other_account_no : default_account_no, 0.5d);
+					} catch (AccountException e) {
+						assertTrue(e.getMessage().contains("Insufficient Balance"));
+					}
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(callableTasks)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		assertEquals(1000d, account.enquirebalance(default_account_no) + account.enquirebalance(other_account_no));
+		
+		AccountException thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, default_account_no, 1d));
+		assertTrue(thrown.getMessage().contains("Transfer to Same Account"));
+	}
+}
@@ -0,0 +1,69 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+
+class FixedPointTest {
+	private final FixedPoint cents = new FixedPoint(2);
+	
+	@Test
+	void testScaleOutOfRangeNotAccepted() {
+		assertThrows(IllegalArgumentException.class, () -> new FixedPoint(-1));
+		assertThrows(IllegalArgumentException.class, () -> new FixedPoint(FixedPoint.MAX_SCALE + 1));
+	}
+	
+	@Test
+	void testDecimalLiteralsConvertExactly() {
+		assertEquals(100000L, cents.toUnits(1000.0));
+		assertEquals(4050L, cents.toUnits(40.5));
+		assertEquals(2020L, cents.toUnits(20.2));
+		assertEquals(1010L, cents.toUnits(10.1));
+		assertEquals(979.7d, cents.toDouble(100000L - 4050L + 2020L));
+	}
+	
+	@Test
+	void testRoundsHalfUpLikeBigDecimal() {
+		double[] amounts = {1.005, 2.675, 0.125, 0.135, 1.115, 8.345, 0.994, 0.995, 123456.785};
+		for (double amt : amounts) {
+			long expected = BigDecimal.valueOf(amt).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+			assertEquals(expected, cents.toUnits(amt), "amount " + amt);
+		}
+	}
+	
+	@Test
+	void testInvalidAmountsRejected() {
+		double[] amounts = {0d, -1d, 0.001, Double.NaN, Double.POSITIVE_INFINITY};
+		for (double amt : amounts) {
+			AccountException thrown = assertThrows(AccountException.class, () -> cents.toUnits(amt));
+			assertTrue(thrown.getMessage().contains("Invalid Amount"), "amount " + amt);
+		}
+	}
+	
+	@Test
+	void testLargestAmountsConvert() {
+		// 2^62 to 2^63 minor units, where twice the units no longer fits in a long
+		assertEquals(4_700_000_000_000_000_000L, cents.toUnits(4.7e16));
+		assertEquals(5_000_000_000_000_000_000L, cents.toUnits(5e16));
+		assertEquals(9_000_000_000_000_000_000L, cents.toUnits(9e16));
+		assertEquals(4_503_599_627_370_496L, cents.toUnits(0x1p52 / 100));
+	}
+	
+	@Test
+	void testAmountOverflowRejected() {
+		for (double amt : new double[] {9.3e16, 1e17}) {
+			AccountException thrown = assertThrows(AccountException.class, () -> cents.toUnits(amt));
+			assertTrue(thrown.getMessage().contains("Amount Overflow"), "amount " + amt);
+		}
+	}
+	
+	@Test
+	void testBalanceOverflowRejected() {
+		AccountException thrown = assertThrows(AccountException.class, () -> cents.add(Long.MAX_VALUE - 1, 2));
+		assertTrue(thrown.getMessage().contains("Balance Overflow"));
+		assertEquals(Long.MAX_VALUE, cents.add(Long.MAX_VALUE - 1, 1));
+	}
+}
@@ -0,0 +1,210 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IdempotentAccountTest {
+	
+	private final AtomicLong clock = new AtomicLong();
+	private Account delegate;
+	private IdempotentAccount account;
+	private String accountno;
+	private String other;
+	
+	@BeforeEach
+	void setup() {
+		delegate = new Account();
+		account = new IdempotentAccount(delegate, 1000, Duration.ofMinutes(1), 4, clock::get);
+		accountno = account.createAccount("pid");
+		other = account.createAccount("other_pid");
+	}
+	
+	@Test
+	void testRetryIsPostedOnce() {
+		account.deposit("k1", accountno, 100);
+		account.deposit("k1", accountno, 100);
+		account.withdraw("k2", accountno, 30);
+		account.withdraw("k2", accountno, 30);
+		account.transfer("k3", accountno, other, 20);
+		account.transfer("k3", accountno, other, 20);
+		assertEquals(50d, account.enquirebalance(accountno));
+		assertEquals(20d, account.enquirebalance(other));
+		assertEquals(3, account.duplicates());
+		assertEquals(3, account.size());
+		
+		account.deposit(accountno, 1);
+		account.deposit(accountno, 1);
+		assertEquals(52d, account.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testRetryOfRejectionIsRejectedAgain() {
+		AccountException first = assertThrows(AccountException.class, () -> account.withdraw("k1", accountno, 10));
+		account.deposit("k2", accountno, 100);
+		AccountException retry = assertThrows(AccountException.class, () -> account.withdraw("k1", accountno, 10));
+		assertSame(first, retry);
+		assertEquals(100d, account.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testReusedKey() {
+		account.deposit("k1", accountno, 100);
+		AccountException thrown = assertThrows(AccountException.class, () -> account.deposit("k1", accountno, 99));
+		assertEquals("Idempotency Key Reused", thrown.getMessage());
+		thrown = assertThrows(AccountException.class, () -> account.withdraw("k1", accountno, 100));
+		assertEquals("Idempotency Key Reused", thrown.getMessage());
+		thrown = assertThrows(AccountException.class, () -> account.deposit(null, accountno, 100));
+		assertEquals("Invalid Idempotency Key", thrown.getMessage());
+		assertEquals(100d, account.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testKeysExpire() {
+		account.deposit("k1", accountno, 100);
+		clock.addAndGet(Duration.ofSeconds(59).toNanos());
+		account.deposit("k1", accountno, 100);
+		assertEquals(100d, account.enquirebalance(accountno));
+		clock.addAndGet(Duration.ofSeconds(1).toNanos());
+		account.deposit("k1", accountno, 100);
+		assertEquals(200d, account.enquirebalance(accountno));
+		
+		for (int i = 0; i < 10; i++) {
+			account.deposit("expiring" + i, other, 1);
+		}
+		clock.addAndGet(Duration.ofMinutes(2).toNanos());
+		account.deposit("k2", other, 1);
+		// the expired keys of the shard k2 went into are gone
+		assertTrue(account.size() < 12);
+	}
+	
+	@Test
+	void testOldestKeysEvictedAtCapacity() {
+		IdempotentAccount small = new IdempotentAccount(delegate, 8, Duration.ofMinutes(1), 1, clock::get);
+		for (int i = 0; i < 9; i++) {
+			small.deposit("k" + i, accountno, 1);
+		}
+		assertEquals(8, small.size());
+		small.deposit("k8", accountno, 1);
+		assertEquals(9d, small.enquirebalance(accountno));
+		small.deposit("k0", accountno, 1);
+		assertEquals(10d, small.enquirebalance(accountno));
+	}
+	
+	@Test
+	void testConcurrentDuplicatesWaitForFirst() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger posted = new AtomicInteger();
+		IAccount slow = new Account() {
+			@Override
+			public void deposit(String accountno, double amt) {
+				posted.incrementAndGet();
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.deposit(accountno, amt);
+			}
+		};
+		IdempotentAccount idempotent = new IdempotentAccount(slow, 1000, Duration.ofMinutes(1));
+		String acc = idempotent.createAccount("pid");
+		ExecutorService es = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			futures.add(es.submit(() -> idempotent.deposit("k1", acc, 5)));
+			assertTrue(entered.await(10, TimeUnit.SECONDS));
+			for (int i = 0; i < 7; i++) {
+				futures.add(es.submit(() -> idempotent.deposit("k1", acc, 5)));
+			}
+			release.countDown();
+			for (Future<?> f : futures) {
+				f.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		assertEquals(1, posted.get());
+		assertEquals(5d, idempotent.enquirebalance(acc));
+		assertEquals(7, idempotent.duplicates());
+	}
+	
+	@Test
+	void testDuplicatesWaitOnVirtualThreads() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		IAccount slow = new Account() {
+			@Override
+			public void withdraw(String accountno, double amt) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.withdraw(accountno, amt);
+			}
+		};
+		IdempotentAccount idempotent = new IdempotentAccount(slow, 1000, Duration.ofMinutes(1));
+		String acc = idempotent.createAccount("pid");
+		idempotent.deposit(acc, 10);
+		List<Future<?>> futures = new ArrayList<>();
+		try (ExecutorService es = Executors.newVirtualThreadPerTaskExecutor()) {
+			futures.add(es.submit(() -> idempotent.withdraw("k1", acc, 4)));
+			assertTrue(entered.await(10, TimeUnit.SECONDS));
+			// far more waiting duplicates than carrier threads
+			for (int i = 0; i < 1000; i++) {
+				futures.add(es.submit(() -> idempotent.withdraw("k1", acc, 4)));
+			}
+			// postings with other keys still run meanwhile
+			es.submit(() -> idempotent.deposit("k2", acc, 1)).get(10, TimeUnit.SECONDS);
+			release.countDown();
+			for (Future<?> f : futures) {
+				f.get(10, TimeUnit.SECONDS);
+			}
+		}
+		assertEquals(7d, idempotent.enquirebalance(acc));
+		assertEquals(1000, idempotent.duplicates());
+	}
+	
+	@Test
+	void testFailureIsNotRemembered() {
+		AtomicInteger calls = new AtomicInteger();
+		IAccount failing = new Account() {
+			@Override
+			public void deposit(String accountno, double amt) {
+				if (calls.incrementAndGet() == 1) {
+					throw new IllegalStateException("journal down");
+				}
+				super.deposit(accountno, amt);
+			}
+		};
+		IdempotentAccount idempotent = new IdempotentAccount(failing, 1000, Duration.ofMinutes(1));
+		String acc = idempotent.createAccount("pid");
+		assertThrows(IllegalStateException.class, () -> idempotent.deposit("k1", acc, 5));
+		idempotent.deposit("k1", acc, 5);
+		idempotent.deposit("k1", acc, 5);
+		assertEquals(5d, idempotent.enquirebalance(acc));
+		assertEquals(2, calls.get());
+	}
+	
+	@Test
+	void testInvalidSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new IdempotentAccount(delegate, 0, Duration.ofMinutes(1)));
+		assertThrows(IllegalArgumentException.class, () -> new IdempotentAccount(delegate, 10, Duration.ZERO));
+	}
+}
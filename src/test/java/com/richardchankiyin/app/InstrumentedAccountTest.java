@@ -0,0 +1,125 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.richardchankiyin.app.AccountMetrics.Operation;
+
+class InstrumentedAccountTest {
+	private AccountMetrics metrics = null;
+	private InstrumentedAccount account = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	
+	@BeforeEach
+	void setup() {
+		metrics = new AccountMetrics();
+		account = new InstrumentedAccount(Account.builder().stripes(4).metrics(metrics).build(), metrics);
+		default_account_no = account.createAccount(DEFAULT_PERSONAL_ID);
+	}
+	
+	@Test
+	void testLatencyRecordedPerOperation() {
+		account.deposit(default_account_no, 100);
+		account.withdraw(default_account_no, 10);
+		account.enquirebalance(default_account_no);
+		account.listLastNTransactions(default_account_no, 2);
+		account.applyBatch(List.of(Posting.deposit(default_account_no, 1), Posting.deposit(default_account_no, 1)));
+		
+		assertEquals(1, metrics.latency(Operation.CREATE_ACCOUNT).count());
+		assertEquals(1, metrics.latency(Operation.DEPOSIT).count());
+		assertEquals(1, metrics.latency(Operation.WITHDRAW).count());
+		assertEquals(1, metrics.latency(Operation.ENQUIRE_BALANCE).count());
+		assertEquals(1, metrics.latency(Operation.LIST_LAST_N_TRANSACTIONS).count());
+		assertEquals(1, metrics.latency(Operation.APPLY_BATCH).count());
+		assertEquals(6L, metrics.getOperationCounts().values().stream().mapToLong(Long::longValue).sum());
+	}
+	
+	@Test
+	void testRejectionsCountedByMessage() {
+		assertThrows(AccountException.class, () -> account.withdraw(default_account_no, 10));
+		assertThrows(AccountException.class, () -> account.withdraw(default_account_no, 10));
+		assertThrows(AccountException.class, () -> account.deposit("123", 10));
+		account.applyBatch(List.of(Posting.withdraw(default_account_no, 1)));
+		
+		assertEquals(3, metrics.rejections("Insufficient Balance"));
+		assertEquals(1, metrics.rejections("Invalid Account"));
+		assertEquals(0, metrics.rejections("Invalid Amount"));
+		assertEquals(2, metrics.latency(Operation.WITHDRAW).count());
+	}
+	
+	@Test
+	void testDisabledRecordsNothing() {
+		metrics.setEnabled(false);
+		account.deposit(default_account_no, 100);
+		assertThrows(AccountException.class, () -> account.withdraw(default_account_no, 1000));
+		assertEquals(0, metrics.latency(Operation.DEPOSIT).count());
+		assertEquals(0, metrics.rejections("Insufficient Balance"));
+		assertEquals(0, metrics.getLockAcquisitions()[0] + metrics.getLockAcquisitions()[1]
+				+ metrics.getLockAcquisitions()[2] + metrics.getLockAcquisitions()[3]);
+		
+		metrics.setEnabled(true);
+		account.deposit(default_account_no, 100);
+		assertEquals(1, metrics.latency(Operation.DEPOSIT).count());
+	}
+	
+	@Test
+	void testLockAcquisitionsAndContention() throws Exception {
+		Account inner = Account.builder().stripes(1).metrics(metrics).build();
+		String accountno = inner.createAccount("pid");
+		inner.deposit(accountno, 10);
+		assertEquals(1, metrics.getLockAcquisitions()[0]);
+		assertEquals(0, metrics.getLockContentions()[0]);
+		
+		// hold the only stripe so the next deposit has to wait for it
+		Lock stripe = inner.lockOf(accountno);
+		CountDownLatch started = new CountDownLatch(1);
+		stripe.lock();
+		Thread depositor;
+		try {
+			depositor = new Thread(() -> {
+				started.countDown();
+				inner.deposit(accountno, 10);
+			});
+			depositor.start();
+			started.await();
+			Thread.sleep(50);
+		} finally {
+			stripe.unlock();
+		}
+		depositor.join();
+		
+		assertEquals(2, metrics.getLockAcquisitions()[0]);
+		assertEquals(1, metrics.getLockContentions()[0]);
+		assertTrue(metrics.getLockWaitNanos() > 0);
+	}
+	
+	@Test
+	void testExposedOverJmx() throws Exception {
+		account.deposit(default_account_no, 100);
+		ObjectName name = metrics.register("instrumented-account-test");
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+			assertNotNull(server.getAttribute(name, "LatencyP99Nanos"));
+			assertNotNull(server.getAttribute(name, "Rejections"));
+			server.setAttribute(name, new Attribute("Enabled", false));
+			assertFalse(metrics.isEnabled());
+			server.invoke(name, "reset", null, null);
+			assertEquals(0, metrics.latency(Operation.DEPOSIT).count());
+		} finally {
+			metrics.unregister("instrumented-account-test");
+		}
+	}
+}
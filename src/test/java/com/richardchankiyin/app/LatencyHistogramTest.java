@@ -0,0 +1,64 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	@Test
+	void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.percentile(99));
+		assertEquals(0, histogram.max());
+	}
+
+	@Test
+	void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 50; i++) {
+			histogram.record(i);
+		}
+		assertEquals(50, histogram.count());
+		assertEquals(25, histogram.percentile(50));
+		assertEquals(50, histogram.percentile(100));
+		assertEquals(50, histogram.max());
+	}
+
+	@Test
+	void testLargeValuesWithinRelativeError() {
+		for (long value : new long[] {64, 1_000, 123_456, 10_000_000_000L, Long.MAX_VALUE}) {
+			long reported = LatencyHistogram.highestValueIn(LatencyHistogram.bucketFor(value));
+			assertTrue(reported >= value, "value " + value);
+			assertTrue(reported - value <= value / 32, "value " + value);
+		}
+	}
+
+	@Test
+	void testBucketsAreContiguous() {
+		for (int bucket = 1; bucket < LatencyHistogram.bucketFor(Long.MAX_VALUE); bucket++) {
+			long lowest = LatencyHistogram.highestValueIn(bucket - 1) + 1;
+			assertEquals(bucket, LatencyHistogram.bucketFor(lowest));
+			assertEquals(bucket, LatencyHistogram.bucketFor(LatencyHistogram.highestValueIn(bucket)));
+		}
+	}
+
+	@Test
+	void testPercentilesAndReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 990; i++) {
+			histogram.record(1_000);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(1_000_000);
+		}
+		histogram.record(-5);
+		assertEquals(1_001, histogram.count());
+		assertTrue(Math.abs(histogram.percentile(50) - 1_000) <= 1_000 / 32);
+		assertTrue(Math.abs(histogram.percentile(99.9) - 1_000_000) <= 1_000_000 / 32);
+		assertThrows(IllegalArgumentException.class, () -> histogram.percentile(101));
+		histogram.reset();
+		assertEquals(0, histogram.count());
+	}
+}
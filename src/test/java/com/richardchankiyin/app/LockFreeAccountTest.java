@@ -0,0 +1,168 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LockFreeAccountTest {
+	private IAccount account = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	private ExecutorService es = null;
+	
+	@BeforeEach
+	void setup() {
+		account = new LockFreeAccount();
+		default_account_no = account.createAccount(DEFAULT_PERSONAL_ID);
+		es = Executors.newFixedThreadPool(10);
+	}
+	
+	@AfterEach
+	void tearDown() {
+		if (es != null) {
+			es.shutdownNow();
+		}
+	}
+	
+	@Test
+	void testCreateDuplicateAccountFailed() {
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.createAccount(DEFAULT_PERSONAL_ID),
+		           "Expected account.createAccount(default_personal_id) to throw, but it didn't"
+		    );
+
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+	}
+	
+	@Test
+	void testInvalidAccountAndAmountRejected() {
+		AccountException thrown = assertThrows(AccountException.class, () -> account.deposit("123", 10));
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertThrows(AccountException.class, () -> account.withdraw(default_account_no, -10));
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+	}
+	
+	@Test
+	void testWithdrawAccountBalanceInsufficient() {
+		account.deposit(default_account_no, 100d);
+		AccountException thrown = assertThrows(
+				AccountException.class,
+		           () -> account.withdraw(default_account_no, 200d),
+		           "Expected account.withdraw(default_account_no, 200) to throw, but it didn't"
+		    );
+
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		assertEquals(100d, account.enquirebalance(default_account_no));
+		assertEquals(1, account.listLastNTransactions(default_account_no, 10).size());
+	}
+	
+	@Test
+	void testConcurrentWithdrawsNeverOverdraw() throws Exception {
+		account.deposit(default_account_no, 500d);
+		List<Callable<Integer>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			callableTasks.add(() -> {
+				int succeeded = 0;
+				for (int j = 0; j < 100; j++) {
+					try {
+						account.withdraw(default_account_no, 1d);
+						succeeded++;
+					} catch (AccountException e) {
+						assertTrue(e.getMessage().contains("Insufficient Balance"));
+					}
+				}
+				return succeeded;
+			});
+		}
+		int succeeded = 0;
+		for (Future<Integer> result : es.invokeAll(callableTasks)) {
+			succeeded += result.get(100, TimeUnit.SECONDS);
+		}
+		assertEquals(500, succeeded);
+		assertEquals(0d, account.enquirebalance(default_account_no));
+	}
+	
+	@Test
+	void testConcurrentDepositsAllApplied() throws Exception {
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			callableTasks.add(() -> {
+				for (int j = 0; j < 1000; j++) {
+					account.deposit(default_account_no, 0.01);
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(callableTasks)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		assertEquals(100d, account.enquirebalance(default_account_no));
+		assertEquals(10, account.listLastNTransactions(default_account_no, 10).size());
+	}
+	
+	@Test
+	void testListLastNTransactions() {
+		account.deposit(default_account_no, 100d);
+		account.withdraw(default_account_no, 50d);
+		account.deposit(default_account_no, 140d);
+		
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 5);
+		assertEquals(3, txns.size());
+		assertTrue(txns.get(0).isDeposit());
+		assertFalse(txns.get(1).isDeposit());
+		assertEquals(140d, txns.get(2).amount());
+	}
+	
+	@Test
+	void testTransfer() {
+		String other_account_no = account.createAccount("other_personal_id");
+		account.deposit(default_account_no, 100d);
+		account.transfer(default_account_no, other_account_no, 40.5d);
+		assertEquals(59.5d, account.enquirebalance(default_account_no));
+		assertEquals(40.5d, account.enquirebalance(other_account_no));
+		assertFalse(account.listLastNTransactions(default_account_no, 1).get(0).isDeposit());
+		assertTrue(account.listLastNTransactions(other_account_no, 1).get(0).isDeposit());
+
+		AccountException thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, other_account_no, 60d));
+		assertEquals("Insufficient Balance", thrown.getMessage());
+		thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, default_account_no, 1d));
+		assertEquals("Transfer to Same Account", thrown.getMessage());
+		assertEquals(59.5d, account.enquirebalance(default_account_no));
+	}
+
+	@Test
+	void testConcurrentTransfersKeepTotal() throws Exception {
+		String other_account_no = account.createAccount("other_personal_id");
+		account.deposit(default_account_no, 100d);
+		account.deposit(other_account_no, 100d);
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			boolean forward = i % 2 == 0;
+			callableTasks.add(() -> {
+				for (int j = 0; j < 1000; j++) {
+					try {
+						account.transfer(forward ? default_account_no : other_account_no, forward ? other_account_no : default_account_no, 0.5d);
+					} catch (AccountException e) {
+						// insufficient balance
+					}
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(callableTasks)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		assertEquals(200d, account.enquirebalance(default_account_no) + account.enquirebalance(other_account_no));
+	}
+}
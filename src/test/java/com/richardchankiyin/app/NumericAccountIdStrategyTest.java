@@ -0,0 +1,93 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class NumericAccountIdStrategyTest {
+
+	@Test
+	void testEncodeDecode() {
+		assertEquals("42", NumericAccountIdStrategy.encode(42));
+		assertEquals(42, NumericAccountIdStrategy.decode("42"));
+		assertEquals(Long.MAX_VALUE, NumericAccountIdStrategy.decode(Long.toString(Long.MAX_VALUE)));
+		assertEquals(0, NumericAccountIdStrategy.decode("9223372036854775808"));
+		assertEquals(0, NumericAccountIdStrategy.decode("042"));
+		assertEquals(0, NumericAccountIdStrategy.decode("-42"));
+		assertEquals(0, NumericAccountIdStrategy.decode("4a2"));
+		assertEquals(0, NumericAccountIdStrategy.decode(""));
+		assertEquals(0, NumericAccountIdStrategy.decode("0"));
+	}
+	
+	@Test
+	void testInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new NumericAccountIdStrategy(0, 10));
+		assertThrows(IllegalArgumentException.class, () -> new NumericAccountIdStrategy(1, 0));
+	}
+	
+	@Test
+	void testUniqueAcrossThreads() throws Exception {
+		NumericAccountIdStrategy ids = new NumericAccountIdStrategy(1, 16);
+		ExecutorService es = Executors.newFixedThreadPool(10);
+		List<Callable<List<Long>>> tasks = new ArrayList<>();
+		for (int t = 0; t < 10; t++) {
+			tasks.add(() -> {
+				List<Long> issued = new ArrayList<>();
+				for (int i = 0; i < 1000; i++) {
+					issued.add(ids.nextId());
+				}
+				return issued;
+			});
+		}
+		Set<Long> all = new HashSet<>();
+		try {
+			for (Future<List<Long>> result : es.invokeAll(tasks)) {
+				all.addAll(result.get(100, TimeUnit.SECONDS));
+			}
+		} finally {
+			es.shutdownNow();
+		}
+		assertEquals(10_000, all.size());
+	}
+	
+	@Test
+	void testThreadPerCallKeepsIdsDense() throws Exception {
+		NumericAccountIdStrategy ids = new NumericAccountIdStrategy(1, 64);
+		List<Future<Long>> results = new ArrayList<>();
+		try (ExecutorService es = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 10_000; i++) {
+				results.add(es.submit(ids::nextId));
+			}
+		}
+		Set<Long> all = new HashSet<>();
+		long max = 0;
+		for (Future<Long> result : results) {
+			long id = result.get(100, TimeUnit.SECONDS);
+			all.add(id);
+			max = Math.max(max, id);
+		}
+		assertEquals(10_000, all.size());
+		// at most one partly used range per stripe, not a range per thread
+		int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+		assertTrue(max <= 10_000 + stripes * 64, "max id " + max);
+	}
+	
+	@Test
+	void testAdvancePast() {
+		NumericAccountIdStrategy ids = new NumericAccountIdStrategy(1, 4);
+		ids.advancePast(100);
+		assertEquals(101, ids.nextId());
+		ids.advancePast(5);
+		assertEquals(102, ids.nextId());
+	}
+}
@@ -0,0 +1,125 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapAccountTest {
+	private OffHeapAccount account = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	private ExecutorService es = null;
+	
+	@BeforeEach
+	void setup() {
+		account = new OffHeapAccount();
+		default_account_no = account.createAccount(DEFAULT_PERSONAL_ID);
+		es = Executors.newFixedThreadPool(10);
+	}
+	
+	@AfterEach
+	void tearDown() {
+		if (es != null) {
+			es.shutdownNow();
+		}
+	}
+	
+	@Test
+	void testValidationSemantics() {
+		AccountException thrown = assertThrows(AccountException.class, () -> account.createAccount(DEFAULT_PERSONAL_ID));
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+		for (String invalid : new String[] { "123", "0", "abc", "01" }) {
+			thrown = assertThrows(AccountException.class, () -> account.deposit(invalid, 10));
+			assertTrue(thrown.getMessage().contains("Invalid Account"));
+		}
+		thrown = assertThrows(AccountException.class, () -> account.deposit(default_account_no, 0));
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+		thrown = assertThrows(AccountException.class, () -> account.withdraw(default_account_no, 10));
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		thrown = assertThrows(AccountException.class, () -> account.listLastNTransactions(default_account_no, 11));
+		assertTrue(thrown.getMessage().contains("No of Transactions Arg not permitted"));
+		assertThrows(IllegalArgumentException.class, () -> new OffHeapAccount(2, 0));
+	}
+	
+	@Test
+	void testDepositWithdrawAndHistoryRing() {
+		account.deposit(default_account_no, 1000.0);
+		account.withdraw(default_account_no, 40.5);
+		account.deposit(default_account_no, 20.2);
+		assertEquals(979.7d, account.enquirebalance(default_account_no));
+		for (int i = 1; i <= 12; i++) {
+			account.deposit(default_account_no, i);
+		}
+		
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 10);
+		assertEquals(10, txns.size());
+		assertEquals(6, txns.get(0).sequence());
+		assertEquals(3d, txns.get(0).amount());
+		assertEquals(15, txns.get(9).sequence());
+		assertTrue(txns.get(9).timestamp() >= txns.get(0).timestamp());
+		
+		OffHeapAccount small = new OffHeapAccount(2, 3);
+		String accountno = small.createAccount(DEFAULT_PERSONAL_ID);
+		small.deposit(accountno, 100);
+		small.withdraw(accountno, 10);
+		txns = small.listLastNTransactions(accountno, 10);
+		assertEquals(2, txns.size());
+		assertTrue(txns.get(0).isDeposit());
+		assertFalse(txns.get(1).isDeposit());
+		assertEquals(10d, txns.get(1).amount());
+	}
+	
+	@Test
+	void testManyAccountsAcrossSlabs() {
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 70_000; i++) {
+			accountnos.add(account.createAccount("pid_" + i));
+		}
+		for (int i = 0; i < 70_000; i += 997) {
+			account.deposit(accountnos.get(i), i + 1);
+		}
+		for (int i = 0; i < 70_000; i += 997) {
+			assertEquals(i + 1d, account.enquirebalance(accountnos.get(i)));
+		}
+		assertThrows(AccountException.class, () -> account.createAccount("pid_69999"));
+		assertTrue(account.offHeapBytes() > 0);
+	}
+	
+	@Test
+	void testConcurrentOppositeTransfersKeepTotal() throws Exception {
+		String other_account_no = account.createAccount("other_personal_id");
+		account.deposit(default_account_no, 500d);
+		account.deposit(other_account_no, 500d);
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			boolean forward = i % 2 == 0;
+			callableTasks.add(() -> {
+				for (int j = 0; j < 1000; j++) {
+					try {
+						account.transfer(forward ? default_account_no : other_account_no, forward ? other_account_no : default_account_no, 0.5d);
+					} catch (AccountException e) {
+						assertTrue(e.getMessage().contains("Insufficient Balance"));
+					}
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(callableTasks)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		assertEquals(1000d, account.enquirebalance(default_account_no) + account.enquirebalance(other_account_no));
+		
+		AccountException thrown = assertThrows(AccountException.class, () -> account.transfer(default_account_no, default_account_no, 1d));
+		assertTrue(thrown.getMessage().contains("Transfer to Same Account"));
+	}
+}
@@ -0,0 +1,217 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+class ShardedAccountTest {
+	private ShardedAccount account = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	
+	@BeforeEach
+	void setup() {
+		account = new ShardedAccount(4, 64);
+		default_account_no = account.createAccount(DEFAULT_PERSONAL_ID).join();
+	}
+	
+	@AfterEach
+	void tearDown() {
+		account.close();
+	}
+	
+	private AccountException assertRejected(Executable executable) {
+		CompletionException thrown = assertThrows(CompletionException.class, executable);
+		assertInstanceOf(AccountException.class, thrown.getCause());
+		return (AccountException) thrown.getCause();
+	}
+	
+	@Test
+	void testCreateDuplicateAccountFailed() {
+		AccountException thrown = assertRejected(() -> account.createAccount(DEFAULT_PERSONAL_ID).join());
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+	}
+	
+	@Test
+	void testValidationSemantics() {
+		AccountException thrown = assertRejected(() -> account.deposit("123", 10).join());
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertRejected(() -> account.deposit("123", -10).join());
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertRejected(() -> account.withdraw(default_account_no, 0).join());
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+		thrown = assertRejected(() -> account.withdraw(default_account_no, 10).join());
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		thrown = assertRejected(() -> account.listLastNTransactions(default_account_no, 11).join());
+		assertTrue(thrown.getMessage().contains("No of Transactions Arg not permitted"));
+		thrown = assertRejected(() -> account.enquirebalance("123").join());
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+	}
+	
+	@Test
+	void testDepositWithdrawAndList() {
+		account.deposit(default_account_no, 1000.0).join();
+		account.withdraw(default_account_no, 40.5).join();
+		account.deposit(default_account_no, 20.2).join();
+		assertEquals(979.7d, account.enquirebalance(default_account_no).join());
+		
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 2).join();
+		assertEquals(2, txns.size());
+		assertFalse(txns.get(0).isDeposit());
+		assertEquals(20.2d, txns.get(1).amount());
+	}
+	
+	@Test
+	void testManyConcurrentRequestsAcrossShards() throws Exception {
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			accountnos.add(account.createAccount("pid_" + i).get(100, TimeUnit.SECONDS));
+		}
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int j = 0; j < 100; j++) {
+			for (String accountno : accountnos) {
+				futures.add(account.deposit(accountno, 1d));
+			}
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(100, TimeUnit.SECONDS);
+		for (String accountno : accountnos) {
+			assertEquals(100d, account.enquirebalance(accountno).join());
+		}
+	}
+	
+	@Test
+	void testTransferWithinAndAcrossShards() throws Exception {
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			String accountno = account.createAccount("pid_" + i).join();
+			account.deposit(accountno, 100d).join();
+			accountnos.add(accountno);
+		}
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int j = 0; j < 19; j++) {
+			for (int i = 0; i < accountnos.size(); i++) {
+				futures.add(account.transfer(accountnos.get(i), accountnos.get((i + j + 1) % accountnos.size()), 1d));
+			}
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(100, TimeUnit.SECONDS);
+		for (String accountno : accountnos) {
+			// each account sent 19 and received 19
+			assertEquals(100d, account.enquirebalance(accountno).join());
+			assertEquals(10, account.listLastNTransactions(accountno, 10).join().size());
+		}
+		
+		String from = accountnos.get(0);
+		String to = accountnos.get(1);
+		account.transfer(from, to, 40.5).join();
+		assertEquals(59.5d, account.enquirebalance(from).join());
+		assertEquals(140.5d, account.enquirebalance(to).join());
+		List<Transaction> txns = account.listLastNTransactions(from, 1).join();
+		assertFalse(txns.get(0).isDeposit());
+		assertEquals(40.5d, txns.get(0).amount());
+	}
+	
+	@Test
+	void testRejectedTransferMovesNothing() {
+		AccountException thrown = assertRejected(() -> account.transfer(default_account_no, default_account_no, 1d).join());
+		assertTrue(thrown.getMessage().contains("Transfer to Same Account"));
+		thrown = assertRejected(() -> account.transfer(default_account_no, "123", 1d).join());
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		account.deposit(default_account_no, 10d).join();
+		// the amount leaves the account, then comes back as 123 does not exist
+		thrown = assertRejected(() -> account.transfer(default_account_no, "123", 1d).join());
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertRejected(() -> account.transfer("123", default_account_no, 1d).join());
+		assertTrue(thrown.getMessage().contains("Invalid Account"));
+		thrown = assertRejected(() -> account.transfer(default_account_no, "123", 0d).join());
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+		assertEquals(10d, account.enquirebalance(default_account_no).join());
+		assertEquals(1, account.listLastNTransactions(default_account_no, 10).join().size());
+	}
+	
+	@Test
+	void testApplyBatch() {
+		String other = account.createAccount("other_personal_id").join();
+		List<Posting> postings = List.of(Posting.deposit(default_account_no, 100), Posting.withdraw(default_account_no, 60),
+				Posting.withdraw(default_account_no, 60), Posting.deposit(other, 5), Posting.deposit("123", 1),
+				Posting.deposit(null, 1));
+		List<PostingResult> results = account.applyBatch(postings).join();
+		assertEquals(6, results.size());
+		for (int i = 0; i < 6; i++) {
+			assertSame(postings.get(i), results.get(i).posting());
+		}
+		assertTrue(results.get(0).isSuccess());
+		assertTrue(results.get(1).isSuccess());
+		assertTrue(results.get(2).error().getMessage().contains("Insufficient Balance"));
+		assertTrue(results.get(3).isSuccess());
+		assertTrue(results.get(4).error().getMessage().contains("Invalid Account"));
+		assertTrue(results.get(5).error().getMessage().contains("Invalid Account"));
+		assertEquals(40d, account.enquirebalance(default_account_no).join());
+		assertEquals(5d, account.enquirebalance(other).join());
+	}
+	
+	@Test
+	void testClosedEngineRejectsRequests() {
+		account.close();
+		AccountException thrown = assertRejected(() -> account.deposit(default_account_no, 1d).join());
+		assertTrue(thrown.getMessage().contains("Engine Closed"));
+	}
+	
+	@Test
+	void testFailingRequestDoesNotStopShard() throws Exception {
+		CompletableFuture<Void> failed = account.runOnShard(default_account_no, () -> {
+			throw new IllegalStateException("boom");
+		});
+		CompletionException thrown = assertThrows(CompletionException.class, () -> failed.join());
+		assertInstanceOf(IllegalStateException.class, thrown.getCause());
+		// the same shard keeps serving, well past its queue capacity
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			futures.add(account.deposit(default_account_no, 1d));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(100, TimeUnit.SECONDS);
+		assertEquals(1000d, account.enquirebalance(default_account_no).get(100, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	void testCloseCompletesEveryRequest() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> blocker = account.runOnShard(default_account_no, () -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		List<CompletableFuture<Void>> queued = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			queued.add(account.deposit(default_account_no, 1d));
+		}
+		Thread closer = new Thread(account::close);
+		closer.start();
+		// closing waits on the blocked shard
+		while (closer.getState() == Thread.State.NEW || closer.getState() == Thread.State.RUNNABLE) {
+			Thread.onSpinWait();
+		}
+		AccountException thrown = assertRejected(() -> account.deposit(default_account_no, 1d).join());
+		assertTrue(thrown.getMessage().contains("Engine Closed"));
+		thrown = assertRejected(() -> account.createAccount("late_personal_id").join());
+		assertTrue(thrown.getMessage().contains("Engine Closed"));
+		
+		release.countDown();
+		closer.join(TimeUnit.SECONDS.toMillis(100));
+		assertFalse(closer.isAlive());
+		blocker.get(100, TimeUnit.SECONDS);
+		// queued before close, so processed
+		CompletableFuture.allOf(queued.toArray(new CompletableFuture[0])).get(100, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,134 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StatementExporterTest {
+	
+	@TempDir
+	Path dir;
+	
+	private static class Statements implements StatementExporter.Handler {
+		final Map<String,Double> balances = new HashMap<>();
+		final Map<String,List<Transaction>> transactions = new HashMap<>();
+		
+		@Override
+		public void onAccount(String accountno, double balance) {
+			assertNull(balances.put(accountno, balance));
+			transactions.put(accountno, new ArrayList<>());
+		}
+		
+		@Override
+		public void onTransaction(Transaction txn) {
+			transactions.get(txn.accountno()).add(txn);
+		}
+	}
+	
+	@Test
+	void testExportsEveryTransactionAcrossBuffers() throws Exception {
+		Account account = Account.builder().retainAllTransactions().build();
+		String acc1 = account.createAccount("pid1");
+		String acc2 = account.createAccount("pid2");
+		String acc3 = account.createAccount("pid3");
+		for (int i = 1; i <= 5000; i++) {
+			account.deposit(acc1, i);
+		}
+		account.withdraw(acc1, 0.5);
+		account.deposit(acc2, 10.25);
+		
+		Path file = dir.resolve("statements.bin");
+		assertEquals(5002, new StatementExporter(account).export(List.of(acc1, acc2, acc3), file));
+		Statements statements = new Statements();
+		StatementExporter.read(file, statements);
+		
+		assertEquals(account.enquirebalance(acc1), statements.balances.get(acc1));
+		List<Transaction> txns = statements.transactions.get(acc1);
+		assertEquals(5001, txns.size());
+		for (int i = 0; i < 5000; i++) {
+			assertEquals(i + 1, txns.get(i).sequence());
+			assertEquals(i + 1d, txns.get(i).amount());
+			assertTrue(txns.get(i).isDeposit());
+		}
+		assertEquals(account.transactionsAfter(acc1, 5000, 1), txns.subList(5000, 5001));
+		assertEquals(account.listLastNTransactions(acc2, 1), statements.transactions.get(acc2));
+		assertEquals(0d, statements.balances.get(acc3));
+		assertTrue(statements.transactions.get(acc3).isEmpty());
+	}
+	
+	@Test
+	void testParallelSegments() throws Exception {
+		Account account = new Account();
+		for (int i = 0; i < 100; i++) {
+			String accountno = account.createAccount("pid" + i);
+			for (int j = 0; j <= i % 15; j++) {
+				account.deposit(accountno, j + 1);
+			}
+		}
+		List<Path> files = new StatementExporter(account).exportAll(dir, 7);
+		assertEquals(7, files.size());
+		Statements statements = new Statements();
+		for (Path file : files) {
+			StatementExporter.read(file, statements);
+		}
+		assertEquals(100, statements.balances.size());
+		for (int i = 0; i < 100; i++) {
+			String accountno = account.accountnoOf("pid" + i);
+			assertEquals(account.enquirebalance(accountno), statements.balances.get(accountno));
+			assertEquals(account.listLastNTransactions(accountno, 10), statements.transactions.get(accountno));
+		}
+		assertThrows(IllegalArgumentException.class, () -> new StatementExporter(account).exportAll(dir, 0));
+	}
+	
+	@Test
+	void testBalanceMatchesTransactionsUnderConcurrentPostings() throws Exception {
+		Account account = Account.builder().retainAllTransactions().build();
+		String accountno = account.createAccount("pid");
+		account.deposit(accountno, 1_000_000);
+		ExecutorService es = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> writer = es.submit(() -> {
+				for (int i = 0; i < 20_000; i++) {
+					account.deposit(accountno, 3);
+					account.withdraw(accountno, 1);
+				}
+			});
+			StatementExporter exporter = new StatementExporter(account);
+			for (int round = 0; round < 20 || !writer.isDone(); round++) {
+				Path file = dir.resolve("round" + round + ".bin");
+				exporter.export(List.of(accountno), file);
+				Statements statements = new Statements();
+				StatementExporter.read(file, statements);
+				BigDecimal sum = BigDecimal.ZERO;
+				long sequence = 0;
+				for (Transaction txn : statements.transactions.get(accountno)) {
+					assertEquals(++sequence, txn.sequence());
+					BigDecimal amount = BigDecimal.valueOf(txn.amount());
+					sum = txn.isDeposit() ? sum.add(amount) : sum.subtract(amount);
+				}
+				assertEquals(sum.doubleValue(), statements.balances.get(accountno));
+			}
+			writer.get();
+		} finally {
+			es.shutdownNow();
+		}
+	}
+	
+	@Test
+	void testInvalidAccount() {
+		AccountException thrown = assertThrows(AccountException.class,
+				() -> new StatementExporter(new Account()).export(List.of("no_such_account"), dir.resolve("x.bin")));
+		assertEquals("Invalid Account", thrown.getMessage());
+	}
+}
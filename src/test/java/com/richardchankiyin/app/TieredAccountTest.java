@@ -0,0 +1,161 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TieredAccountTest {
+	private TieredAccount account = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	private ExecutorService es = null;
+
+	@TempDir
+	Path dir;
+
+	@BeforeEach
+	void setup() {
+		account = new TieredAccount(dir.resolve("cold.dat"), 4, 2, 10);
+		default_account_no = account.createAccount(DEFAULT_PERSONAL_ID);
+		es = Executors.newFixedThreadPool(10);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (es != null) {
+			es.shutdownNow();
+		}
+		account.close();
+	}
+
+	@Test
+	void testValidationSemantics() {
+		AccountException thrown = assertThrows(AccountException.class, () -> account.createAccount(DEFAULT_PERSONAL_ID));
+		assertTrue(thrown.getMessage().contains("Personal Id duplicated"));
+		for (String invalid : new String[] { "123", "0", "abc", "01" }) {
+			thrown = assertThrows(AccountException.class, () -> account.deposit(invalid, 10));
+			assertTrue(thrown.getMessage().contains("Invalid Account"));
+		}
+		thrown = assertThrows(AccountException.class, () -> account.deposit(default_account_no, 0));
+		assertTrue(thrown.getMessage().contains("Invalid Amount"));
+		thrown = assertThrows(AccountException.class, () -> account.withdraw(default_account_no, 10));
+		assertTrue(thrown.getMessage().contains("Insufficient Balance"));
+		thrown = assertThrows(AccountException.class, () -> account.listLastNTransactions(default_account_no, 11));
+		assertTrue(thrown.getMessage().contains("No of Transactions Arg not permitted"));
+		assertThrows(IllegalArgumentException.class, () -> new TieredAccount(dir.resolve("x.dat"), 1, 2, 10));
+		assertThrows(IllegalArgumentException.class, () -> new TieredAccount(dir.resolve("x.dat"), 4, 2, 0));
+	}
+
+	@Test
+	void testColdAccountsAreLoadedBackWithTheirHistory() {
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			String accountno = account.createAccount("pid_" + i);
+			accountnos.add(accountno);
+			account.deposit(accountno, 1000 + i);
+			account.withdraw(accountno, 0.5);
+		}
+		assertEquals(4, account.hotAccounts());
+		assertTrue(account.evictions() >= 97);
+
+		long misses = account.misses();
+		for (int i = 0; i < 100; i++) {
+			String accountno = accountnos.get(i);
+			assertEquals(999.5d + i, account.enquirebalance(accountno));
+			List<Transaction> txns = account.listLastNTransactions(accountno, 10);
+			assertEquals(2, txns.size());
+			assertEquals(1000d + i, txns.get(0).amount());
+			assertTrue(txns.get(0).isDeposit());
+			assertEquals(0.5d, txns.get(1).amount());
+			assertFalse(txns.get(1).isDeposit());
+			assertEquals(2, txns.get(1).sequence());
+		}
+		// enquirebalance misses and listLastNTransactions then hits
+		assertEquals(misses + 100, account.misses());
+		assertTrue(account.hits() >= 100);
+
+		account.transfer(accountnos.get(0), accountnos.get(99), 99.5d);
+		assertEquals(900d, account.enquirebalance(accountnos.get(0)));
+		assertEquals(1198d, account.enquirebalance(accountnos.get(99)));
+		assertEquals(0d, account.enquirebalance(default_account_no));
+	}
+
+	@Test
+	void testHistoryRingSurvivesPaging() {
+		for (int i = 1; i <= 12; i++) {
+			account.deposit(default_account_no, i);
+			for (int j = 0; j < 8; j++) {
+				account.createAccount("pid_" + i + "_" + j);
+			}
+		}
+		List<Transaction> txns = account.listLastNTransactions(default_account_no, 10);
+		assertEquals(10, txns.size());
+		assertEquals(3, txns.get(0).sequence());
+		assertEquals(3d, txns.get(0).amount());
+		assertEquals(12, txns.get(9).sequence());
+		assertTrue(txns.get(9).timestamp() >= txns.get(0).timestamp());
+		assertEquals(78d, account.enquirebalance(default_account_no));
+	}
+
+	@Test
+	void testConcurrentTransfersAcrossTiersKeepTotal() throws Exception {
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			accountnos.add(account.createAccount("pid_" + i));
+			account.deposit(accountnos.get(i), 100d);
+		}
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			callableTasks.add(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int j = 0; j < 1000; j++) {
+					String from = accountnos.get(random.nextInt(50));
+					String to = accountnos.get(random.nextInt(50));
+					try {
+						account.transfer(from, to, 7.5d);
+					} catch (AccountException e) {
+						assertTrue(e.getMessage().contains("Insufficient Balance") || e.getMessage().contains("Transfer to Same Account"));
+					}
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(callableTasks)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		double total = 0;
+		for (String accountno : accountnos) {
+			total += account.enquirebalance(accountno);
+		}
+		assertEquals(5000d, total);
+		assertTrue(account.misses() > 0);
+	}
+
+	@Test
+	void testFileDeletedOnClose() throws Exception {
+		Path file = dir.resolve("scratch.dat");
+		TieredAccount scratch = new TieredAccount(file, 2, 2, 10);
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			accountnos.add(scratch.createAccount("pid_" + i));
+			scratch.deposit(accountnos.get(i), 10);
+		}
+		assertEquals(10d, scratch.enquirebalance(accountnos.get(0)));
+		scratch.close();
+		assertFalse(Files.exists(file));
+	}
+}
@@ -0,0 +1,210 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TransactionFeedTest {
+	private Account account = null;
+	private ExecutorService delivery = null;
+	private ExecutorService es = null;
+
+	/**
+	 * keeps the batches received, requesting initialRequest up front
+	 */
+	private static class CollectingSubscriber implements Flow.Subscriber<List<Transaction>> {
+		private final long initialRequest;
+		private final List<List<Transaction>> batches = new ArrayList<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile Flow.Subscription subscription;
+		private volatile Throwable error;
+
+		CollectingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public synchronized void onNext(List<Transaction> batch) {
+			batches.add(batch);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			done.countDown();
+		}
+
+		synchronized List<Transaction> received() {
+			List<Transaction> all = new ArrayList<>();
+			batches.forEach(all::addAll);
+			return all;
+		}
+
+		synchronized int batchCount() {
+			return batches.size();
+		}
+
+		synchronized int largestBatch() {
+			return batches.stream().mapToInt(List::size).max().orElse(0);
+		}
+
+		void awaitDone() throws InterruptedException {
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+		}
+	}
+
+	@BeforeEach
+	void setup() {
+		delivery = Executors.newSingleThreadExecutor();
+		account = Account.builder().changeFeedExecutor(delivery).build();
+		es = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		account.close();
+		es.shutdownNow();
+		delivery.shutdownNow();
+	}
+
+	private static void awaitReceived(CollectingSubscriber subscriber, int n) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (subscriber.received().size() < n) {
+			assertTrue(System.nanoTime() < deadline, "received " + subscriber.received().size() + " of " + n);
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	void testDeliversEveryTransactionInAccountOrder() throws Exception {
+		List<String> accountnos = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			accountnos.add(account.createAccount("pid_" + i));
+		}
+		CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		account.changeFeed().subscribe(subscriber, 256, 16, TransactionFeed.OverflowPolicy.BLOCK);
+		assertEquals(1, account.changeFeed().subscribers());
+
+		List<Callable<Void>> callableTasks = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			callableTasks.add(() -> {
+				for (int j = 0; j < 1000; j++) {
+					String accountno = accountnos.get(j % accountnos.size());
+					account.deposit(accountno, 10);
+					account.withdraw(accountno, 5);
+				}
+				return null;
+			});
+		}
+		for (Future<Void> result : es.invokeAll(callableTasks)) {
+			result.get(100, TimeUnit.SECONDS);
+		}
+		account.transfer(accountnos.get(0), accountnos.get(1), 1);
+		account.close();
+		subscriber.awaitDone();
+		assertNull(subscriber.error);
+
+		List<Transaction> received = subscriber.received();
+		assertEquals(8002, received.size());
+		assertTrue(subscriber.largestBatch() <= 16);
+		Map<String,Long> lastSequence = new HashMap<>();
+		for (Transaction txn : received) {
+			long expected = lastSequence.getOrDefault(txn.accountno(), 0L) + 1;
+			assertEquals(expected, txn.sequence());
+			lastSequence.put(txn.accountno(), txn.sequence());
+		}
+		Transaction last = received.get(received.size() - 1);
+		assertEquals(accountnos.get(1), last.accountno());
+		assertTrue(last.isDeposit());
+		assertEquals(0, account.changeFeed().subscribers());
+	}
+
+	@Test
+	void testBlockPolicyHoldsPostingsUntilRequested() throws Exception {
+		String accountno = account.createAccount("pid");
+		CollectingSubscriber subscriber = new CollectingSubscriber(1);
+		account.changeFeed().subscribe(subscriber, 4, 2, TransactionFeed.OverflowPolicy.BLOCK);
+		Future<?> posting = es.submit(() -> {
+			for (int i = 1; i <= 10; i++) {
+				account.deposit(accountno, i);
+			}
+		});
+		// one batch delivered and 4 buffered, a later deposit waits
+		awaitReceived(subscriber, 1);
+		assertThrows(TimeoutException.class, () -> posting.get(200, TimeUnit.MILLISECONDS));
+		assertEquals(1, subscriber.batchCount());
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		posting.get(30, TimeUnit.SECONDS);
+		awaitReceived(subscriber, 10);
+		List<Transaction> received = subscriber.received();
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i + 1d, received.get(i).amount());
+		}
+		assertEquals(0, account.changeFeed().dropped());
+	}
+
+	@Test
+	void testDropPolicyLeavesOutTransactionsOverTheBuffer() throws Exception {
+		String accountno = account.createAccount("pid");
+		CollectingSubscriber subscriber = new CollectingSubscriber(0);
+		account.changeFeed().subscribe(subscriber, 4, 64, TransactionFeed.OverflowPolicy.DROP);
+		for (int i = 1; i <= 10; i++) {
+			account.deposit(accountno, i);
+		}
+		assertEquals(6, account.changeFeed().dropped());
+		subscriber.subscription.request(1);
+		awaitReceived(subscriber, 4);
+		assertEquals(List.of(1d, 2d, 3d, 4d), subscriber.received().stream().map(Transaction::amount).toList());
+		assertEquals(1, subscriber.batchCount());
+	}
+
+	@Test
+	void testCancelAndInvalidRequest() throws Exception {
+		String accountno = account.createAccount("pid");
+		CollectingSubscriber cancelled = new CollectingSubscriber(Long.MAX_VALUE);
+		account.changeFeed().subscribe(cancelled);
+		cancelled.subscription.cancel();
+		assertEquals(0, account.changeFeed().subscribers());
+		account.deposit(accountno, 10);
+
+		CollectingSubscriber invalid = new CollectingSubscriber(0);
+		account.changeFeed().subscribe(invalid);
+		invalid.subscription.request(0);
+		invalid.awaitDone();
+		assertInstanceOf(IllegalArgumentException.class, invalid.error);
+		assertEquals(0, account.changeFeed().subscribers());
+		assertTrue(cancelled.received().isEmpty());
+
+		assertThrows(IllegalArgumentException.class, () -> account.changeFeed().subscribe(new CollectingSubscriber(1), 0, 1, TransactionFeed.OverflowPolicy.DROP));
+		assertThrows(IllegalArgumentException.class, () -> account.changeFeed().subscribe(new CollectingSubscriber(1), 1, 0, TransactionFeed.OverflowPolicy.DROP));
+	}
+}
@@ -0,0 +1,94 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TransactionHistoryTest {
+
+	@Test
+	void testNonPositiveCapacityNotAccepted() {
+		assertThrows(IllegalArgumentException.class, () -> new TransactionHistory(0));
+		assertThrows(IllegalArgumentException.class, () -> new TransactionHistory(-1));
+	}
+	
+	@Test
+	void testLastNWhenNotFull() {
+		TransactionHistory history = new TransactionHistory(5);
+		history.add(new Transaction("a", true, 1d));
+		history.add(new Transaction("a", false, 2d));
+		
+		List<Transaction> txns = history.lastN(5);
+		assertEquals(2, txns.size());
+		assertEquals(1d, txns.get(0).amount());
+		assertEquals(2d, txns.get(1).amount());
+		assertEquals(2, history.size());
+	}
+	
+	@Test
+	void testOldestEvictedWhenFull() {
+		TransactionHistory history = new TransactionHistory(3);
+		for (int i = 1; i <= 7; i++) {
+			history.add(new Transaction("a", true, i));
+		}
+		
+		assertEquals(3, history.size());
+		assertEquals(3, history.capacity());
+		List<Transaction> txns = history.lastN(3);
+		assertEquals(5d, txns.get(0).amount());
+		assertEquals(6d, txns.get(1).amount());
+		assertEquals(7d, txns.get(2).amount());
+		
+		txns = history.lastN(2);
+		assertEquals(2, txns.size());
+		assertEquals(6d, txns.get(0).amount());
+		assertEquals(7d, txns.get(1).amount());
+	}
+	
+	@Test
+	void testLastNIsACopy() {
+		TransactionHistory history = new TransactionHistory(3);
+		history.add(new Transaction("a", true, 1d));
+		List<Transaction> txns = history.lastN(3);
+		history.add(new Transaction("a", true, 2d));
+		
+		assertEquals(1, txns.size());
+		assertEquals(1d, txns.get(0).amount());
+	}
+	
+	@Test
+	void testAppendNumbersAndStampsInOrder() {
+		TransactionHistory history = new TransactionHistory(3);
+		history.append("a", true, 1d, 1000);
+		history.append("a", false, 2d, 900);
+		history.append("a", true, 3d, 1100);
+		
+		List<Transaction> txns = history.lastN(3);
+		assertEquals(1, txns.get(0).sequence());
+		assertEquals(3, txns.get(2).sequence());
+		assertEquals(1000, txns.get(1).timestamp());
+		assertEquals(1100, txns.get(2).timestamp());
+	}
+	
+	@Test
+	void testPagingOnlyOverRetained() {
+		TransactionHistory history = new TransactionHistory(5);
+		for (int i = 1; i <= 8; i++) {
+			history.append("a", true, i, i * 10);
+		}
+		List<Transaction> txns = history.after(0, 2);
+		assertEquals(2, txns.size());
+		assertEquals(4, txns.get(0).sequence());
+		txns = history.after(txns.get(1).sequence(), 10);
+		assertEquals(3, txns.size());
+		assertEquals(6, txns.get(0).sequence());
+		assertTrue(history.after(8, 10).isEmpty());
+		
+		txns = history.between(50, 70, 0, 10);
+		assertEquals(2, txns.size());
+		assertEquals(5, txns.get(0).sequence());
+		assertEquals(6, txns.get(1).sequence());
+	}
+}
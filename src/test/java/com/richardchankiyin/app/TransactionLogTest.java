@@ -0,0 +1,65 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TransactionLogTest {
+
+	private TransactionLog filled(int count) {
+		TransactionLog log = new TransactionLog();
+		for (int i = 1; i <= count; i++) {
+			log.append("a", i % 2 == 0, i, i / 100);
+		}
+		return log;
+	}
+
+	@Test
+	void testRetainsEverythingAcrossChunks() {
+		TransactionLog log = filled(5000);
+		assertEquals(5000, log.size());
+		assertEquals(1, log.get(0).sequence());
+		assertEquals(1025, log.get(1024).sequence());
+		assertEquals(5000d, log.get(4999).amount());
+		assertThrows(IndexOutOfBoundsException.class, () -> log.get(5000));
+		
+		List<Transaction> txns = log.lastN(3);
+		assertEquals(3, txns.size());
+		assertEquals(4998, txns.get(0).sequence());
+	}
+
+	@Test
+	void testPagesAfterSequence() {
+		TransactionLog log = filled(2500);
+		long cursor = 0;
+		int pages = 0;
+		int seen = 0;
+		List<Transaction> page;
+		do {
+			page = log.after(cursor, 1000);
+			for (Transaction txn : page) {
+				assertEquals(++cursor, txn.sequence());
+			}
+			seen += page.size();
+			pages++;
+		} while (page.size() == 1000);
+		assertEquals(2500, seen);
+		assertEquals(3, pages);
+	}
+
+	@Test
+	void testPagesWithinTimeRange() {
+		TransactionLog log = filled(2500);
+		// timestamps are sequence / 100, so [10, 12) holds sequences 1000 to 1199
+		List<Transaction> txns = log.between(10, 12, 0, 150);
+		assertEquals(150, txns.size());
+		assertEquals(1000, txns.get(0).sequence());
+		txns = log.between(10, 12, txns.get(149).sequence(), 150);
+		assertEquals(50, txns.size());
+		assertEquals(1199, txns.get(49).sequence());
+		assertTrue(log.between(30, 40, 0, 10).isEmpty());
+		assertTrue(log.between(10, 10, 0, 10).isEmpty());
+	}
+}
@@ -0,0 +1,79 @@
+package com.richardchankiyin.app;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class VirtualThreadAccountFacadeTest {
+	private static final int IN_FLIGHT = 100_000;
+	private Account account = null;
+	private VirtualThreadAccountFacade facade = null;
+	private final String DEFAULT_PERSONAL_ID = "default_personal_id";
+	private String default_account_no = null;
+	
+	@BeforeEach
+	void setup() {
+		account = new Account();
+		facade = new VirtualThreadAccountFacade(account, IN_FLIGHT);
+		default_account_no = facade.createAccount(DEFAULT_PERSONAL_ID).join();
+	}
+	
+	@AfterEach
+	void tearDown() {
+		facade.close();
+	}
+	
+	@Test
+	void testInvalidMaxInFlight() {
+		assertThrows(IllegalArgumentException.class, () -> new VirtualThreadAccountFacade(account, 0));
+	}
+	
+	@Test
+	void testRejectionsCompleteExceptionally() {
+		CompletionException thrown = assertThrows(CompletionException.class, () -> facade.withdraw(default_account_no, 10).join());
+		assertInstanceOf(AccountException.class, thrown.getCause());
+		assertTrue(thrown.getCause().getMessage().contains("Insufficient Balance"));
+		assertEquals(IN_FLIGHT, facade.availablePermits());
+	}
+	
+	@Test
+	void testDepositWithdrawAndList() {
+		facade.deposit(default_account_no, 1000.0).join();
+		facade.withdraw(default_account_no, 40.5).join();
+		assertEquals(959.5d, facade.enquirebalance(default_account_no).join());
+		assertEquals(2, facade.listLastNTransactions(default_account_no, 2).join().size());
+	}
+	
+	@Test
+	void testTransferAndApplyBatch() {
+		String other = facade.createAccount("other_personal_id").join();
+		facade.deposit(default_account_no, 100.0).join();
+		facade.transfer(default_account_no, other, 40.5).join();
+		CompletionException thrown = assertThrows(CompletionException.class, () -> facade.transfer(default_account_no, other, 100).join());
+		assertTrue(thrown.getCause().getMessage().contains("Insufficient Balance"));
+		List<PostingResult> results = facade.applyBatch(List.of(Posting.withdraw(other, 0.5), Posting.withdraw(other, 50))).join();
+		assertTrue(results.get(0).isSuccess());
+		assertTrue(results.get(1).error().getMessage().contains("Insufficient Balance"));
+		assertEquals(59.5d, facade.enquirebalance(default_account_no).join());
+		assertEquals(40d, facade.enquirebalance(other).join());
+		assertEquals(IN_FLIGHT, facade.availablePermits());
+	}
+	
+	@Test
+	void testHundredThousandRequestsInFlight() {
+		List<CompletableFuture<Void>> futures = new ArrayList<>(IN_FLIGHT);
+		for (int i = 0; i < IN_FLIGHT; i++) {
+			futures.add(facade.deposit(default_account_no, 1.0));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+		assertEquals(IN_FLIGHT, account.enquirebalance(default_account_no));
+		assertEquals(IN_FLIGHT, facade.availablePermits());
+	}
+}
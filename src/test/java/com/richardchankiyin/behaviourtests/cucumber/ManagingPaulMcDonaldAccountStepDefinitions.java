@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.List;
 
 import com.richardchankiyin.app.Account;
+import com.richardchankiyin.app.AccountEngine;
 import com.richardchankiyin.app.AccountException;
 import com.richardchankiyin.app.IAccount;
 import com.richardchankiyin.app.Transaction;
@@ -25,6 +26,12 @@ public class ManagingPaulMcDonaldAccountStepDefinitions {
 	}
 
 	
+    @Given("Paul's account is kept by the {word} engine")
+    public void paul_s_account_is_kept_by_the_engine(String engine) {
+        account = AccountEngine.valueOf(engine).create();
+        accountno = account.createAccount(pid);
+    }
+
     @Given("Paul has account balance {double}")
     public void paul_has_account_balance(double d) {
         account.deposit(accountno, d);